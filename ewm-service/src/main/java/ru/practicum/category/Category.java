@@ -1,9 +1,11 @@
 package ru.practicum.category;
 
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -22,6 +24,11 @@ public class Category {
     @Column(unique = true)
     private String name;
 
+    /** Момент последнего изменения: название категории входит в DTO событий */
+    @UpdateTimestamp
+    @Column(name = "updated_on")
+    private LocalDateTime updatedOn;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
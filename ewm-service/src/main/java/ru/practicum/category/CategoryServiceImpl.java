@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.category.dto.NewCategoryDto;
 import ru.practicum.event.EventRepository;
+import ru.practicum.event.cache.EventDetailsCache;
 import ru.practicum.exception.InvalidEventStateOrDate;
 
 import java.util.List;
@@ -18,6 +19,7 @@ import java.util.List;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
+    private final EventDetailsCache eventDetailsCache;
 
     /** Метод для создания новой категории */
     @Override
@@ -32,7 +34,10 @@ public class CategoryServiceImpl implements CategoryService {
                 .orElseThrow(() -> new ObjectNotFoundException(categoryId,
                         "Категория с идентификатором " + categoryId + " не найдена"));
 
-        return CategoryMapper.toCategoryDto(categoryRepository.save(CategoryMapper.toCategory(category, categoryDto)));
+        CategoryDto updated = CategoryMapper.toCategoryDto(categoryRepository.save(CategoryMapper.toCategory(category, categoryDto)));
+        // название категории входит в кэшированные DTO событий
+        eventDetailsCache.invalidateAll();
+        return updated;
     }
 
     /** Метод для удаления категории по идентификатору */
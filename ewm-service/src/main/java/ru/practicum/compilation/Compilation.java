@@ -1,10 +1,12 @@
 package ru.practicum.compilation;
 
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
 import ru.practicum.event.Event;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -27,6 +29,11 @@ public class Compilation {
     @NotNull
     private String title;
 
+    /** Момент последнего изменения подборки или ее состава */
+    @UpdateTimestamp
+    @Column(name = "updated_on")
+    private LocalDateTime updatedOn;
+
     @ManyToMany(cascade = { CascadeType.ALL })
     @JoinTable(name = "compilations_events",
             joinColumns = { @JoinColumn(name = "compilation_id") },
@@ -1,12 +1,25 @@
 package ru.practicum.compilation;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CompilationRepository extends JpaRepository<Compilation, Integer> {
     List<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
+
+    /**
+     * Подборки вместе с событиями, их категориями и инициаторами одним запросом.
+     * Коллекция не пагинируется в базе, поэтому страница подборок выбирается отдельно, а сюда передаются ее id.
+     */
+    @EntityGraph(attributePaths = {"events", "events.category", "events.user"})
+    List<Compilation> findDistinctWithEventsByIdIn(Collection<Integer> ids);
+
+    @EntityGraph(attributePaths = {"events", "events.category", "events.user"})
+    Optional<Compilation> findDistinctWithEventsById(int id);
 }
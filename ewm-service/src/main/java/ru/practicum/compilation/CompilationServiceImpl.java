@@ -11,7 +11,10 @@ import ru.practicum.compilation.dto.NewCompilationDto;
 import ru.practicum.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.event.Event;
 import ru.practicum.event.EventRepository;
+import ru.practicum.event.EventViewStats;
+import ru.practicum.event.dto.EventShortDto;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -24,12 +27,14 @@ public class CompilationServiceImpl implements CompilationService {
 
     private final EventRepository eventRepository;
 
+    private final EventViewStats eventViewStats;
+
     /** Создание компиляции */
     @Override
     public CompilationDto createCompilation(NewCompilationDto compilationDto) {
         Compilation compilation = CompilationMapper.toCompilation(compilationDto);
         addEventsInCompilation(compilation, compilationDto.getEvents());
-        return CompilationMapper.toCompilationDto(compilationRepository.save(compilation));
+        return withViews(CompilationMapper.toCompilationDto(compilationRepository.save(compilation)));
     }
 
     /** Обновление компиляции по идентификатору */
@@ -40,7 +45,9 @@ public class CompilationServiceImpl implements CompilationService {
 
         CompilationMapper.toCompilation(compilationDto, compilation);
         addEventsInCompilation(compilation, compilationDto.getEvents());
-        return CompilationMapper.toCompilationDto(compilationRepository.save(compilation));
+        // изменение только состава событий не делает сущность грязной, и @UpdateTimestamp бы не сработал
+        compilation.setUpdatedOn(LocalDateTime.now());
+        return withViews(CompilationMapper.toCompilationDto(compilationRepository.save(compilation)));
     }
 
     /** Удаление компиляции по идентификатору */
@@ -65,20 +72,43 @@ public class CompilationServiceImpl implements CompilationService {
         } else {
             compilations = compilationRepository.findAllByPinned(pinned, pageRequest);
         }
+        if (compilations.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        return compilations.stream()
-                .map(CompilationMapper::toCompilationDto)
-                .collect(Collectors.toList());
+        Map<Integer, Compilation> withEvents = compilationRepository.findDistinctWithEventsByIdIn(compilations.stream()
+                        .map(Compilation::getId)
+                        .collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(Compilation::getId, compilation -> compilation));
+
+        return withViews(compilations.stream()
+                .map(compilation -> CompilationMapper.toCompilationDto(withEvents.getOrDefault(compilation.getId(),
+                        compilation)))
+                .collect(Collectors.toList()));
     }
 
     /** Получение компиляции по идентификатору */
     @Override
     @Transactional(readOnly = true)
     public CompilationDto getCompilationById(int compId) {
-        Compilation compilation = compilationRepository.findById(compId)
+        Compilation compilation = compilationRepository.findDistinctWithEventsById(compId)
                 .orElseThrow(() -> new ObjectNotFoundException(compId,
                         "Компиляция с id " + compId + " не найдена"));
-        return CompilationMapper.toCompilationDto(compilation);
+        return withViews(CompilationMapper.toCompilationDto(compilation));
+    }
+
+    /** Просмотры событий всех подборок из {@link EventViewStats} */
+    private List<CompilationDto> withViews(List<CompilationDto> compilations) {
+        eventViewStats.withShortViews(compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .collect(Collectors.toList()));
+        // views входит в hashCode DTO, поэтому множества пересобираются после изменения
+        compilations.forEach(compilation -> compilation.setEvents(new HashSet<>(compilation.getEvents())));
+        return compilations;
+    }
+
+    private CompilationDto withViews(CompilationDto compilation) {
+        return withViews(List.of(compilation)).get(0);
     }
 
     /** Приватный метод для добавления событий к компиляции */
@@ -86,7 +116,7 @@ public class CompilationServiceImpl implements CompilationService {
     public Compilation addEventsInCompilation(Compilation compilation, Set<Integer> eventsId) {
         compilation.setEvents(new HashSet<>());
         if (eventsId != null && !eventsId.isEmpty()) {
-            for (Event event : eventRepository.findAllById(eventsId)) {
+            for (Event event : eventRepository.findAllByIdIn(eventsId)) {
                 compilation.addEvent(event);
             }
         }
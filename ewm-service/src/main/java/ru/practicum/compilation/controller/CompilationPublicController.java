@@ -2,17 +2,22 @@ package ru.practicum.compilation.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.compilation.CompilationService;
 import ru.practicum.compilation.dto.CompilationDto;
+import ru.practicum.version.ContentVersions;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -20,12 +25,17 @@ import java.util.List;
 @RequestMapping(path = "/compilations")
 public class CompilationPublicController {
     private final CompilationService compilationService;
+    private final ContentVersions contentVersions;
 
-    /** Метод для получения списка компиляций с возможностью фильтрации по прикреплённым */
+    /**
+     * Метод для получения списка компиляций с возможностью фильтрации по прикреплённым.
+     * Если подборки и их события не менялись с версии клиента, возвращается 304 без обращения к базе.
+     */
     @GetMapping
     public List<CompilationDto> getCompilations(@RequestParam(required = false) Boolean pinned,
                                                 @PositiveOrZero @RequestParam(defaultValue = "0") int from,
-                                                @Positive @RequestParam(defaultValue = "10") int size) {
+                                                @Positive @RequestParam(defaultValue = "10") int size,
+                                                WebRequest webRequest) {
         if (pinned == null) {
             log.info("Запрос на получение компиляций from={} size={}", from, size);
         } else if (pinned) {
@@ -33,13 +43,28 @@ public class CompilationPublicController {
         } else {
             log.info("Запрос на получение не закреплённых компиляций from={} size={}", from, size);
         }
+        ContentVersions.Version version = contentVersions.compilations();
+        if (webRequest.checkNotModified(version.getEtag(), version.getModifiedAt())) {
+            return null;
+        }
         return compilationService.getCompilations(pinned, from, size);
     }
 
-    /** Метод для получения информации о компиляции по её идентификатору */
+    /**
+     * Метод для получения информации о компиляции по её идентификатору; поддерживает условный запрос.
+     * Для отсутствующей компиляции версии нет, и ответ — 404 без заголовков версии.
+     */
     @GetMapping("/{compId}")
-    public CompilationDto getCompilationById(@Positive @PathVariable int compId) {
+    public ResponseEntity<CompilationDto> getCompilationById(@Positive @PathVariable int compId,
+                                                             HttpServletRequest request) {
         log.info("Запрос на получение информации о компиляции {}", compId);
-        return compilationService.getCompilationById(compId);
+        Optional<ContentVersions.Version> version = contentVersions.compilation(compId);
+        if (version.isPresent() && version.get().isNotModified(request)) {
+            return version.get().notModified();
+        }
+        CompilationDto compilation = compilationService.getCompilationById(compId);
+        return version.map(ContentVersions.Version::ok)
+                .orElseGet(ResponseEntity::ok)
+                .body(compilation);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package ru.practicum.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * Страница списка и курсор следующей страницы; nextCursor равен null на последней странице.
+ * Контроллеры отдают список в теле ответа, а курсор — в заголовке {@link #NEXT_CURSOR_HEADER}.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    /** Заголовок ответа с курсором следующей страницы */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    /** Записывает курсор следующей страницы в заголовок ответа и возвращает элементы страницы */
+    public List<T> writeTo(HttpServletResponse response) {
+        if (nextCursor != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return items;
+    }
+}
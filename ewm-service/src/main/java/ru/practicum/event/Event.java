@@ -2,6 +2,7 @@ package ru.practicum.event;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
 import ru.practicum.category.Category;
 import ru.practicum.compilation.Compilation;
 import ru.practicum.location.Location;
@@ -70,8 +71,16 @@ public class Event {
     private boolean requestModeration;
 
     private String description;
+
+    /** Пишется только {@link EventViewCounter}, чтобы сохранение сущности не затирало накопленные просмотры */
+    @Column(name = "views", updatable = false)
     private int views;
 
+    /** Момент последнего изменения события, кроме просмотров; из него строятся ETag и Last-Modified */
+    @UpdateTimestamp
+    @Column(name = "updated_on")
+    private LocalDateTime updatedOn;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "location_id", nullable = true, referencedColumnName = "id")
     @ToString.Exclude
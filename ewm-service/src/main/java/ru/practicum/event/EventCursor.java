@@ -0,0 +1,96 @@
+package ru.practicum.event;
+
+import ru.practicum.exception.InvalidPathVariableException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Позиция в списке событий для постраничного вывода по ключу: следующая страница начинается
+ * строго после события с этими значениями ключа сортировки. Клиенту отдается как непрозрачная строка.
+ */
+public final class EventCursor {
+    /** Порядок, для которого выдан курсор */
+    public enum Order {
+        /** event_date desc, id desc */
+        EVENT_DATE,
+        /** views desc, id desc */
+        VIEWS,
+        /** id asc */
+        ID
+    }
+
+    private final Order order;
+    private final LocalDateTime eventDate;
+    private final Integer views;
+    private final int id;
+
+    private EventCursor(Order order, LocalDateTime eventDate, Integer views, int id) {
+        this.order = order;
+        this.eventDate = eventDate;
+        this.views = views;
+        this.id = id;
+    }
+
+    /** Курсор на позицию после события */
+    public static EventCursor after(Event event, Order order) {
+        return after(event.getId(), event.getEventDate(), event.getViews(), order);
+    }
+
+    /** Курсор на позицию после события из краткого списка */
+    public static EventCursor after(EventShortView event, Order order) {
+        return after(event.getId(), event.getEventDate(), event.getViews(), order);
+    }
+
+    private static EventCursor after(int id, LocalDateTime eventDate, int views, Order order) {
+        return new EventCursor(order, order == Order.EVENT_DATE ? eventDate : null,
+                order == Order.VIEWS ? views : null, id);
+    }
+
+    /**
+     * @param token строка из заголовка X-Next-Cursor; пустая строка означает первую страницу
+     * @return курсор или null для первой страницы
+     * @throws InvalidPathVariableException если строка повреждена или выдана для другой сортировки
+     */
+    public static EventCursor decode(String token, Order expected) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            Order order = Order.valueOf(parts[0]);
+            if (order != expected || parts.length != 3) {
+                throw new InvalidPathVariableException("Курсор выдан для другой сортировки списка");
+            }
+            return new EventCursor(order,
+                    order == Order.EVENT_DATE ? LocalDateTime.parse(parts[1]) : null,
+                    order == Order.VIEWS ? Integer.valueOf(parts[1]) : null,
+                    Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            throw new InvalidPathVariableException("Некорректный курсор: " + token);
+        }
+    }
+
+    public String encode() {
+        String key = order == Order.EVENT_DATE ? eventDate.toString() : order == Order.VIEWS ? views.toString() : "";
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((order + "|" + key + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public LocalDateTime getEventDate() {
+        return eventDate;
+    }
+
+    public Integer getViews() {
+        return views;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventFilterRepository {
+    /**
+     * Страница опубликованных событий в кратком представлении.
+     *
+     * @param sort  VIEWS — по просмотрам, иначе по дате события; при равенстве — по убыванию id
+     * @param after курсор для той же сортировки: выбираются события строго после него; может быть null
+     * @return события страницы в порядке сортировки
+     */
+    List<EventShortView> findPublicEvents(Boolean paid,
+                                          LocalDateTime rangeStart,
+                                          LocalDateTime rangeEnd,
+                                          boolean onlyAvailable,
+                                          List<Integer> categories,
+                                          EventSort sort,
+                                          EventCursor after,
+                                          int offset,
+                                          int limit);
+
+    /**
+     * Страница событий для администратора в порядке id вместе с категориями, инициаторами и местами.
+     *
+     * @param afterId выбираются события с id больше этого значения (0 — с начала)
+     */
+    List<Event> findAdminEvents(List<Integer> users,
+                                List<EventState> states,
+                                List<Integer> categories,
+                                LocalDateTime rangeStart,
+                                LocalDateTime rangeEnd,
+                                int afterId,
+                                int offset,
+                                int limit);
+}
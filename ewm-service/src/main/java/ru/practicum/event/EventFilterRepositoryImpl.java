@@ -0,0 +1,135 @@
+package ru.practicum.event;
+
+import org.springframework.stereotype.Repository;
+import ru.practicum.category.Category;
+import ru.practicum.user.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Списки событий с необязательными фильтрами на Criteria API.
+ * В запрос попадают только заданные фильтры, а значения передаются параметрами своих типов
+ * (timestamp, перечисление состояния), без приведений в SQL. Поэтому для каждой комбинации фильтров
+ * план строится по фактическим условиям и может использовать индексы по event_date, views и внешним ключам.
+ */
+@Repository
+public class EventFilterRepositoryImpl implements EventFilterRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<EventShortView> findPublicEvents(Boolean paid,
+                                                 LocalDateTime rangeStart,
+                                                 LocalDateTime rangeEnd,
+                                                 boolean onlyAvailable,
+                                                 List<Integer> categories,
+                                                 EventSort sort,
+                                                 EventCursor after,
+                                                 int offset,
+                                                 int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventShortView> query = cb.createQuery(EventShortView.class);
+        Root<Event> event = query.from(Event.class);
+        Join<Event, Category> category = event.join("category");
+        Join<Event, User> user = event.join("user");
+        query.select(cb.construct(EventShortView.class,
+                event.get("id"), event.get("title"), event.get("annotation"), event.get("description"),
+                event.get("eventDate"), event.get("paid"), event.get("confirmedRequests"), event.get("views"),
+                category.get("id"), category.get("name"), user.get("id"), user.get("name")));
+
+        List<Predicate> where = dateRange(cb, event, rangeStart, rangeEnd);
+        where.add(cb.equal(event.get("state"), EventState.PUBLISHED));
+        if (paid != null) {
+            where.add(cb.equal(event.get("paid"), paid));
+        }
+        if (onlyAvailable) {
+            where.add(cb.greaterThan(event.<Integer>get("participantLimit"), event.<Integer>get("confirmedRequests")));
+        }
+        if (categories != null) {
+            where.add(event.get("category").get("id").in(categories));
+        }
+
+        Path<Integer> id = event.get("id");
+        if (sort == EventSort.VIEWS) {
+            Path<Integer> views = event.get("views");
+            if (after != null) {
+                where.add(cb.or(cb.lessThan(views, after.getViews()),
+                        cb.and(cb.equal(views, after.getViews()), cb.lessThan(id, after.getId()))));
+            }
+            query.orderBy(cb.desc(views), cb.desc(id));
+        } else {
+            Path<LocalDateTime> eventDate = event.get("eventDate");
+            if (after != null) {
+                where.add(cb.or(cb.lessThan(eventDate, after.getEventDate()),
+                        cb.and(cb.equal(eventDate, after.getEventDate()), cb.lessThan(id, after.getId()))));
+            }
+            query.orderBy(cb.desc(eventDate), cb.desc(id));
+        }
+        query.where(where.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Event> findAdminEvents(List<Integer> users,
+                                       List<EventState> states,
+                                       List<Integer> categories,
+                                       LocalDateTime rangeStart,
+                                       LocalDateTime rangeEnd,
+                                       int afterId,
+                                       int offset,
+                                       int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Event> query = cb.createQuery(Event.class);
+        Root<Event> event = query.from(Event.class);
+        event.fetch("category");
+        event.fetch("user");
+        event.fetch("location", JoinType.LEFT);
+
+        List<Predicate> where = dateRange(cb, event, rangeStart, rangeEnd);
+        if (states != null) {
+            where.add(event.get("state").in(states));
+        }
+        if (users != null) {
+            where.add(event.get("user").get("id").in(users));
+        }
+        if (categories != null) {
+            where.add(event.get("category").get("id").in(categories));
+        }
+        where.add(cb.greaterThan(event.get("id"), afterId));
+        query.where(where.toArray(new Predicate[0]))
+                .orderBy(cb.asc(event.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static List<Predicate> dateRange(CriteriaBuilder cb, Root<Event> event,
+                                             LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        List<Predicate> where = new ArrayList<>();
+        Path<LocalDateTime> eventDate = event.get("eventDate");
+        if (rangeStart != null) {
+            where.add(cb.greaterThanOrEqualTo(eventDate, rangeStart));
+        }
+        if (rangeEnd != null) {
+            where.add(cb.lessThanOrEqualTo(eventDate, rangeEnd));
+        }
+        return where;
+    }
+}
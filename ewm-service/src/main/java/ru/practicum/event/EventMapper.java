@@ -1,9 +1,10 @@
 package ru.practicum.event;
 
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import ru.practicum.DateFormatter;
 import ru.practicum.category.Category;
 import ru.practicum.category.CategoryMapper;
+import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
@@ -13,6 +14,7 @@ import ru.practicum.location.Location;
 import ru.practicum.location.LocationMapper;
 import ru.practicum.user.User;
 import ru.practicum.user.UserMapper;
+import ru.practicum.user.dto.UserShortDto;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -166,7 +168,40 @@ public class EventMapper {
      * @param events страница событий для преобразования
      * @return список кратких DTO событий
      */
-    public static List<EventShortDto> toEventShortDto(Page<Event> events) {
+    public static List<EventShortDto> toEventShortDto(Slice<Event> events) {
+        return events.stream()
+                .map(EventMapper::toEventShortDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Преобразует краткое представление EventShortView в краткий DTO EventShortDto.
+     *
+     * @param event краткое представление события
+     * @return краткий DTO события
+     */
+    public static EventShortDto toEventShortDto(EventShortView event) {
+        return EventShortDto.builder()
+                .id(event.getId())
+                .title(event.getTitle())
+                .description(event.getDescription())
+                .eventDate(DateFormatter.toString(event.getEventDate()))
+                .paid(event.isPaid())
+                .annotation(event.getAnnotation())
+                .confirmedRequests(event.getConfirmedRequests())
+                .views(event.getViews())
+                .initiator(new UserShortDto(event.getInitiatorId(), event.getInitiatorName()))
+                .category(new CategoryDto(event.getCategoryId(), event.getCategoryName()))
+                .build();
+    }
+
+    /**
+     * Преобразует список кратких представлений EventShortView в список кратких DTO с сохранением порядка.
+     *
+     * @param events список кратких представлений событий
+     * @return список кратких DTO событий
+     */
+    public static List<EventShortDto> toEventShortDto(List<EventShortView> events) {
         return events.stream()
                 .map(EventMapper::toEventShortDto)
                 .collect(Collectors.toList());
@@ -178,9 +213,21 @@ public class EventMapper {
      * @param events страница событий для преобразования
      * @return список полных DTO событий
      */
-    public static List<EventFullDto> toEventFullDto(Page<Event> events) {
+    public static List<EventFullDto> toEventFullDto(Slice<Event> events) {
+        return events.stream()
+                .map(EventMapper::toEventFullDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Преобразует список объектов Event в список полных DTO EventFullDto с сохранением порядка.
+     *
+     * @param events список событий для преобразования
+     * @return список полных DTO событий
+     */
+    public static List<EventFullDto> toEventFullDto(List<Event> events) {
         return events.stream()
                 .map(EventMapper::toEventFullDto)
                 .collect(Collectors.toList());
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package ru.practicum.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventSearchRepository {
+    /**
+     * Поиск опубликованных событий по подстроке аннотации или описания без учета регистра.
+     *
+     * @param text       текст запроса; ищется целиком, символы % и _ действуют как в LIKE
+     * @param candidates события, среди которых идет поиск, например кандидаты из индекса в памяти;
+     *                   null — среди всех
+     * @param after      курсор для сортировки EVENT_DATE или VIEWS: выбираются события строго после него; может быть null
+     * @return идентификаторы событий страницы в порядке сортировки
+     */
+    List<Integer> searchPublicEventIds(String text,
+                                       List<Integer> candidates,
+                                       Boolean paid,
+                                       LocalDateTime rangeStart,
+                                       LocalDateTime rangeEnd,
+                                       boolean onlyAvailable,
+                                       List<Integer> categories,
+                                       EventSort sort,
+                                       EventCursor after,
+                                       int offset,
+                                       int limit);
+}
@@ -0,0 +1,110 @@
+package ru.practicum.event;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.event.search.SearchText;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Текстовый поиск опубликованных событий: текст ищется как подстрока аннотации или описания без учета
+ * регистра, как и раньше в JPQL с upper(...) like, но через ILIKE, который использует GIN-индексы pg_trgm
+ * по обоим столбцам. Индекс по триграммам работает для подстрок от трех символов, в том числе из середины слова
+ * и из одних стоп-слов; более короткий текст проверяется просмотром строк после остальных фильтров.
+ * <p>
+ * Сортировка RELEVANCE задается только явно и ранжирует найденные события по events.search_vector:
+ * tsvector аннотации (вес A) и описания (вес B) в русской и английской конфигурациях. Ранг влияет
+ * только на порядок, поэтому запрос, чьи слова целиком отброшены словарем, находит те же события.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class EventSearchRepositoryImpl implements EventSearchRepository {
+    private static final String TS_QUERY = "(to_tsquery('russian', :query) || to_tsquery('english', :query))";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Override
+    public List<Integer> searchPublicEventIds(String text,
+                                              List<Integer> candidates,
+                                              Boolean paid,
+                                              LocalDateTime rangeStart,
+                                              LocalDateTime rangeEnd,
+                                              boolean onlyAvailable,
+                                              List<Integer> categories,
+                                              EventSort sort,
+                                              EventCursor after,
+                                              int offset,
+                                              int limit) {
+        if (candidates != null && candidates.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("text", text)
+                .addValue("state", EventState.PUBLISHED.name())
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("select e.id from events e where e.state = :state " +
+                "and (e.annotation ilike '%' || :text || '%' or e.description ilike '%' || :text || '%')");
+        if (candidates != null) {
+            sql.append(" and e.id in (:candidates)");
+            params.addValue("candidates", candidates);
+        }
+        if (paid != null) {
+            sql.append(" and e.paid = :paid");
+            params.addValue("paid", paid);
+        }
+        if (rangeStart != null) {
+            sql.append(" and e.event_date >= :rangeStart");
+            params.addValue("rangeStart", rangeStart);
+        }
+        if (rangeEnd != null) {
+            sql.append(" and e.event_date <= :rangeEnd");
+            params.addValue("rangeEnd", rangeEnd);
+        }
+        if (onlyAvailable) {
+            sql.append(" and e.participant_limit > e.confirmed_requests");
+        }
+        if (categories != null) {
+            sql.append(" and e.category_id in (:categories)");
+            params.addValue("categories", categories);
+        }
+        if (after != null) {
+            if (after.getOrder() == EventCursor.Order.VIEWS) {
+                sql.append(" and (e.views, e.id) < (:afterViews, :afterId)");
+                params.addValue("afterViews", after.getViews());
+            } else {
+                sql.append(" and (e.event_date, e.id) < (:afterDate, :afterId)");
+                params.addValue("afterDate", after.getEventDate());
+            }
+            params.addValue("afterId", after.getId());
+        }
+        switch (sort) {
+            case VIEWS:
+                sql.append(" order by e.views desc, e.id desc");
+                break;
+            case EVENT_DATE:
+                sql.append(" order by e.event_date desc, e.id desc");
+                break;
+            default:
+                sql.append(" order by ts_rank_cd(e.search_vector, " + TS_QUERY + ") desc, e.id");
+                params.addValue("query", toTsQuery(SearchText.words(text)));
+        }
+        sql.append(" limit :limit offset :offset");
+
+        log.debug("searchPublicEventIds.sql = {}", sql);
+        return namedJdbcTemplate.queryForList(sql.toString(), params, Integer.class);
+    }
+
+    /** Слова в виде 'слово':* & 'слово':*; кавычки внутри слов удваиваются по правилам tsquery */
+    private static String toTsQuery(List<String> words) {
+        return words.stream()
+                .map(word -> "'" + word.replace("'", "''") + "':*")
+                .collect(Collectors.joining(" & "));
+    }
+}
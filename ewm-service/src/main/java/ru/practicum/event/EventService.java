@@ -13,12 +13,16 @@ public interface EventService {
 
     List<EventShortDto> findByUserId(int userId, int from, int size);
 
+    CursorPage<EventShortDto> findByUserIdAfter(int userId, String cursor, int size);
+
     EventFullDto findByIdAndUserId(int eventId, int userId);
 
     EventFullDto updateUserEvent(int userId, int eventId, UpdateEventUserRequest eventDto);
 
     EventFullDto findByIdAndState(int eventId);
 
+    void countView(int eventId);
+
     Event getEventById(int eventId);
 
     EventFullDto updateEventByAdmin(int eventId, UpdateEventAdminRequest eventDto);
@@ -33,7 +37,15 @@ public interface EventService {
                                           int from,
                                           int size);
 
-
+    CursorPage<EventShortDto> findPublicEventsAfter(String text,
+                                                    Integer[] categories,
+                                                    Boolean paid,
+                                                    String rangeStart,
+                                                    String rangeEnd,
+                                                    boolean onlyAvailable,
+                                                    String sort,
+                                                    String cursor,
+                                                    int size);
 
     List<EventFullDto> findAdminEvents(Integer[] users,
                                        String[] states,
@@ -43,6 +55,14 @@ public interface EventService {
                                        int from,
                                        int size);
 
+    CursorPage<EventFullDto> findAdminEventsAfter(Integer[] users,
+                                                  String[] states,
+                                                  Integer[] categories,
+                                                  String rangeStart,
+                                                  String rangeEnd,
+                                                  String cursor,
+                                                  int size);
+
     List<EventFullDto> findEventsByPlaceId(int placeId, int from, int size);
 
     List<EventFullDto> findEventsByPlaceName(String placeName, int from, int size);
@@ -3,6 +3,7 @@ package ru.practicum.event;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.ObjectNotFoundException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -16,6 +17,8 @@ import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
 import ru.practicum.event.dto.UpdateEventAdminRequest;
 import ru.practicum.event.dto.UpdateEventUserRequest;
+import ru.practicum.event.cache.EventDetailsCache;
+import ru.practicum.event.search.EventSearchIndex;
 import ru.practicum.eventsinplace.EventsInPlaceMapper;
 import ru.practicum.eventsinplace.EventsInPlaceRepository;
 import ru.practicum.exception.InvalidEventStateOrDate;
@@ -31,6 +34,10 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -41,9 +48,18 @@ public class EventServiceImpl implements EventService {
     private final CategoryService categoryService;
     private final UserService userService;
     private final EventsInPlaceRepository eventsInPlaceRepository;
+    private final EventViewCounter eventViewCounter;
+    private final EventDetailsCache eventDetailsCache;
+    private final EventViewStats eventViewStats;
+    private final EventSearchRepository eventSearchRepository;
+    private final EventFilterRepository eventFilterRepository;
+    private final ObjectProvider<EventSearchIndex> eventSearchIndex;
 
     /**
-     * Найти событие по идентификатору и состоянию.
+     * Найти опубликованное событие.
+     * Событие берется из {@link EventDetailsCache}, а из базы читается только при промахе.
+     * Число просмотров в ответе берется из {@link EventViewStats}, как и в списках событий;
+     * сам просмотр учитывается отдельно через {@link #countView(int)}.
      *
      * @param eventId идентификатор события
      * @return полное DTO события
@@ -51,27 +67,38 @@ public class EventServiceImpl implements EventService {
      */
     @Override
     public EventFullDto findByIdAndState(int eventId) {
-        Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
-                .orElseThrow(() -> new ObjectNotFoundException(eventId, "Событие с id " + eventId + " не найдено"));
+        EventFullDto eventDto = eventDetailsCache.get(eventId, () -> EventMapper.toEventFullDto(eventRepository
+                .findByIdAndState(eventId, EventState.PUBLISHED)
+                .orElseThrow(() -> new ObjectNotFoundException(eventId, "Событие с id " + eventId + " не найдено"))));
 
-        eventRepository.save(event);
+        return eventViewStats.withFullViews(eventDto);
+    }
 
-        return EventMapper.toEventFullDto(event);
+    /**
+     * Учесть просмотр опубликованного события.
+     * Просмотр копится в {@link EventViewCounter} и попадает в базу при очередном сбросе,
+     * поэтому учет не пишет в таблицу и не требует чтения события.
+     *
+     * @param eventId идентификатор события
+     */
+    @Override
+    public void countView(int eventId) {
+        eventViewCounter.increment(eventId);
     }
 
     /**
      * Найти публичные события с учетом фильтров и сортировки.
      *
-     * @param text          текст для поиска в названии или аннотации
+     * @param text          подстрока для поиска в аннотации или описании без учета регистра
      * @param categories    массив идентификаторов категорий
      * @param paid          флаг оплачиваемости
      * @param rangeStart    начальная дата для фильтрации по дате события
      * @param rangeEnd      конечная дата для фильтрации по дате события
      * @param onlyAvailable флаг доступности только на текущую дату
-     * @param sort          поле для сортировки (EVENT_DATE или VIEWS)
+     * @param sort          поле для сортировки (EVENT_DATE, VIEWS или RELEVANCE); если не задано — по дате
      * @param from          смещение страницы
      * @param size          размер страницы
-     * @return список кратких DTO публичных событий
+     * @return список кратких DTO публичных событий с просмотрами из {@link EventViewStats}
      * @throws InvalidPathVariableException если передан некорректный путь или параметр
      */
     @Override
@@ -84,25 +111,84 @@ public class EventServiceImpl implements EventService {
                                                 String sort,
                                                 int from,
                                                 int size) {
-        Sort sortBy;
-        if (sort.equalsIgnoreCase("EVENT_DATE")) {
-            sortBy = Sort.by(Sort.Direction.DESC, "eventDate");
-        } else if (sort.equalsIgnoreCase("VIEWS")) {
-            sortBy = Sort.by(Sort.Direction.DESC, "views");
-        } else {
-            throw new InvalidPathVariableException("Некорректный параметр сортировки: " + sort);
+        EventSort eventSort = EventSort.from(sort);
+        validateCategories(categories);
+
+        return eventViewStats.withShortViews(EventMapper.toEventShortDto(searchPublicEvents(text, categories, paid,
+                rangeStart, rangeEnd, onlyAvailable, eventSort, null, from * size, size)));
+    }
+
+    /**
+     * Найти публичные события постранично по курсору.
+     * Страница начинается строго после события из курсора, поэтому ее стоимость не растет с номером страницы
+     * и не требует подсчета общего числа событий. Поддерживаются порядки EVENT_DATE (по умолчанию) и VIEWS;
+     * порядок по релевантности не имеет устойчивого ключа и для курсора не поддерживается.
+     *
+     * @param cursor курсор из предыдущей страницы; пустая строка — первая страница
+     * @param size   размер страницы
+     * @return краткие DTO событий и курсор следующей страницы
+     * @throws InvalidPathVariableException если курсор некорректен или выдан для другой сортировки
+     */
+    @Override
+    public CursorPage<EventShortDto> findPublicEventsAfter(String text,
+                                                           Integer[] categories,
+                                                           Boolean paid,
+                                                           String rangeStart,
+                                                           String rangeEnd,
+                                                           boolean onlyAvailable,
+                                                           String sort,
+                                                           String cursor,
+                                                           int size) {
+        EventSort eventSort = EventSort.from(sort);
+        if (eventSort == EventSort.RELEVANCE && hasText(text)) {
+            throw new InvalidPathVariableException("Сортировка RELEVANCE не поддерживается при выборке по курсору");
         }
-        Pageable page = PageRequest.of(from, size, sortBy);
+        validateCategories(categories);
 
-        if (categories != null) {
-            List<Integer> categoriesInList = new ArrayList<>(Arrays.asList(categories));
-            if (categoriesInList.stream().anyMatch((category -> category <= 0))) {
-                throw new InvalidPathVariableException("Некорректное значение параметра categories");
-            }
+        EventCursor.Order order = eventSort == EventSort.VIEWS ? EventCursor.Order.VIEWS : EventCursor.Order.EVENT_DATE;
+        List<EventShortView> events = searchPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
+                eventSort, EventCursor.decode(cursor, order), 0, size + 1);
+
+        return new CursorPage<>(eventViewStats.withShortViews(EventMapper.toEventShortDto(firstOf(events, size))),
+                nextCursor(events, size, event -> EventCursor.after(event, order)));
+    }
+
+    /**
+     * Страница публичных событий.
+     * Текстовый запрос выполняется поиском подстроки {@link EventSearchRepository}; если включен индекс в памяти
+     * {@link EventSearchIndex}, тот же запрос идет только среди кандидатов из индекса. Без текста индекс сам
+     * выбирает страницу, кроме сортировки по просмотрам и фильтра onlyAvailable: эти поля меняются слишком часто
+     * для индекса. В обоих случаях поиск возвращает идентификаторы страницы, а сами события затем загружаются
+     * по ним. События выбираются в кратком представлении {@link EventShortView}, без загрузки сущностей.
+     */
+    private List<EventShortView> searchPublicEvents(String text,
+                                           Integer[] categories,
+                                           Boolean paid,
+                                           String rangeStart,
+                                           String rangeEnd,
+                                           boolean onlyAvailable,
+                                           EventSort eventSort,
+                                           EventCursor after,
+                                           int offset,
+                                           int limit) {
+        LocalDateTime start = rangeStart == null ? null : DateFormatter.toLocalDateTime(rangeStart);
+        LocalDateTime end = rangeEnd == null ? null : DateFormatter.toLocalDateTime(rangeEnd);
+        List<Integer> categoryIds = categories == null ? null : Arrays.asList(categories);
+
+        EventSearchIndex index = eventSearchIndex.getIfAvailable();
+        boolean indexReady = index != null && index.isReady();
+        if (hasText(text)) {
+            List<Integer> candidates = indexReady ? index.candidates(text, categoryIds, paid) : null;
+            return findShortViewsInOrder(eventSearchRepository.searchPublicEventIds(text, candidates, paid, start,
+                    end, onlyAvailable, categoryIds, eventSort, after, offset, limit));
         }
 
-        return EventMapper.toEventShortDto(eventRepository.findPublicEvents(text, paid, rangeStart, rangeEnd,
-                onlyAvailable, categories == null ? null : Arrays.asList(categories), page));
+        if (indexReady && eventSort != EventSort.VIEWS && !onlyAvailable) {
+            return findShortViewsInOrder(index.search(categoryIds, paid, start, end, eventSort, after, offset, limit));
+        }
+
+        return eventFilterRepository.findPublicEvents(paid, start, end, onlyAvailable, categoryIds, eventSort,
+                after, offset, limit);
     }
 
     /**
@@ -156,7 +242,10 @@ public class EventServiceImpl implements EventService {
             location = locationRepository.save(LocationMapper.toLocation(locationDto));
         }
 
-        return EventMapper.toEventFullDto(eventRepository.save(EventMapper.toEvent(eventDto, event, category, location, event.getUser())));
+        Event saved = eventRepository.save(EventMapper.toEvent(eventDto, event, category, location, event.getUser()));
+        eventSearchIndex.ifAvailable(index -> index.update(saved));
+        eventDetailsCache.invalidate(eventId);
+        return EventMapper.toEventFullDto(saved);
     }
 
     /**
@@ -169,7 +258,7 @@ public class EventServiceImpl implements EventService {
      * @param rangeEnd   конечная дата для фильтрации по дате события
      * @param from       смещение страницы
      * @param size       размер страницы
-     * @return список полных DTO событий администратора
+     * @return список полных DTO событий администратора с просмотрами из {@link EventViewStats}
      * @throws InvalidPathVariableException если передан некорректный путь или параметр
      */
     @Override
@@ -180,14 +269,43 @@ public class EventServiceImpl implements EventService {
                                               String rangeEnd,
                                               int from,
                                               int size) {
-        Pageable page = PageRequest.of(from, size, Sort.by(Sort.Direction.ASC, "id"));
+        return eventViewStats.withFullViews(EventMapper.toEventFullDto(searchAdminEvents(users, states, categories,
+                rangeStart, rangeEnd, 0, from * size, size)));
+    }
 
-        if (categories != null) {
-            List<Integer> categoriesInList = new ArrayList<>(Arrays.asList(categories));
-            if (categoriesInList.stream().anyMatch((category -> category <= 0))) {
-                throw new InvalidPathVariableException("Некорректное значение параметра categories");
-            }
-        }
+    /**
+     * Найти события администратора постранично по курсору, в порядке идентификаторов.
+     *
+     * @param cursor курсор из предыдущей страницы; пустая строка — первая страница
+     * @param size   размер страницы
+     * @return полные DTO событий и курсор следующей страницы
+     * @throws InvalidPathVariableException если передан некорректный курсор или параметр
+     */
+    @Override
+    public CursorPage<EventFullDto> findAdminEventsAfter(Integer[] users,
+                                                         String[] states,
+                                                         Integer[] categories,
+                                                         String rangeStart,
+                                                         String rangeEnd,
+                                                         String cursor,
+                                                         int size) {
+        EventCursor after = EventCursor.decode(cursor, EventCursor.Order.ID);
+        List<Event> events = searchAdminEvents(users, states, categories, rangeStart, rangeEnd,
+                after == null ? 0 : after.getId(), 0, size + 1);
+
+        return new CursorPage<>(eventViewStats.withFullViews(EventMapper.toEventFullDto(firstOf(events, size))),
+                nextCursor(events, size, event -> EventCursor.after(event, EventCursor.Order.ID)));
+    }
+
+    private List<Event> searchAdminEvents(Integer[] users,
+                                          String[] states,
+                                          Integer[] categories,
+                                          String rangeStart,
+                                          String rangeEnd,
+                                          int afterId,
+                                          int offset,
+                                          int limit) {
+        validateCategories(categories);
 
         if (users != null) {
             List<Integer> usersInList = new ArrayList<>(Arrays.asList(users));
@@ -196,11 +314,12 @@ public class EventServiceImpl implements EventService {
             }
         }
 
-        return EventMapper.toEventFullDto(eventRepository
-                .findAdminEvents(users == null ? null : Arrays.asList(users),
-                        states == null ? null : Arrays.asList(states),
-                        categories == null ? null : Arrays.asList(categories),
-                        rangeStart, rangeEnd, page));
+        return eventFilterRepository.findAdminEvents(users == null ? null : Arrays.asList(users),
+                states == null ? null : Arrays.stream(states).map(EventState::from).collect(Collectors.toList()),
+                categories == null ? null : Arrays.asList(categories),
+                rangeStart == null ? null : DateFormatter.toLocalDateTime(rangeStart),
+                rangeEnd == null ? null : DateFormatter.toLocalDateTime(rangeEnd),
+                afterId, offset, limit);
     }
 
     /**
@@ -247,7 +366,26 @@ public class EventServiceImpl implements EventService {
     @Override
     public List<EventShortDto> findByUserId(int userId, int from, int size) {
         Pageable page = PageRequest.of(from, size, Sort.by(Sort.Direction.ASC, "id"));
-        return EventMapper.toEventShortDto(eventRepository.findByUserId(userId, page));
+        return EventMapper.toEventShortDto(eventRepository.findUserEvents(userId, 0, page).getContent());
+    }
+
+    /**
+     * Найти события пользователя постранично по курсору, в порядке идентификаторов.
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор из предыдущей страницы; пустая строка — первая страница
+     * @param size   размер страницы
+     * @return краткие DTO событий и курсор следующей страницы
+     * @throws InvalidPathVariableException если передан некорректный курсор
+     */
+    @Override
+    public CursorPage<EventShortDto> findByUserIdAfter(int userId, String cursor, int size) {
+        EventCursor after = EventCursor.decode(cursor, EventCursor.Order.ID);
+        List<EventShortView> events = eventRepository.findUserEvents(userId, after == null ? 0 : after.getId(),
+                PageRequest.of(0, size + 1, Sort.by(Sort.Direction.ASC, "id"))).getContent();
+
+        return new CursorPage<>(EventMapper.toEventShortDto(firstOf(events, size)),
+                nextCursor(events, size, event -> EventCursor.after(event, EventCursor.Order.ID)));
     }
 
     /**
@@ -313,8 +451,10 @@ public class EventServiceImpl implements EventService {
             }
         }
 
-        return EventMapper.toEventFullDto(eventRepository
-                .save(EventMapper.toEvent(eventDto, event, category, location, user)));
+        Event saved = eventRepository.save(EventMapper.toEvent(eventDto, event, category, location, user));
+        eventSearchIndex.ifAvailable(index -> index.update(saved));
+        eventDetailsCache.invalidate(eventId);
+        return EventMapper.toEventFullDto(saved);
     }
 
     /**
@@ -357,4 +497,40 @@ public class EventServiceImpl implements EventService {
     public List<EventFullDto> findEventsByPlaceName(String placeName, int from, int size) {
         return EventsInPlaceMapper.toEventFullDto(eventsInPlaceRepository.findEventsByPlaceName(placeName, from, size));
     }
+
+    private static void validateCategories(Integer[] categories) {
+        if (categories != null) {
+            List<Integer> categoriesInList = new ArrayList<>(Arrays.asList(categories));
+            if (categoriesInList.stream().anyMatch((category -> category <= 0))) {
+                throw new InvalidPathVariableException("Некорректное значение параметра categories");
+            }
+        }
+    }
+
+    private static boolean hasText(String text) {
+        return text != null && !text.isBlank();
+    }
+
+    /** Первые size событий из выборки size + 1 */
+    private static <T> List<T> firstOf(List<T> events, int size) {
+        return events.size() > size ? events.subList(0, size) : events;
+    }
+
+    /** Курсор после последнего события страницы или null, если следующей страницы нет */
+    private static <T> String nextCursor(List<T> events, int size, Function<T, EventCursor> cursor) {
+        return events.size() > size ? cursor.apply(events.get(size - 1)).encode() : null;
+    }
+
+    /** Краткие представления событий по идентификаторам в порядке списка */
+    private List<EventShortView> findShortViewsInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, EventShortView> events = eventRepository.findShortViews(ids).stream()
+                .collect(Collectors.toMap(EventShortView::getId, Function.identity()));
+        return ids.stream()
+                .map(events::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 }
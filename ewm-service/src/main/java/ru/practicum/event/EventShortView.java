@@ -0,0 +1,26 @@
+package ru.practicum.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка краткого списка событий: только поля {@link ru.practicum.event.dto.EventShortDto}
+ * вместе с именами категории и инициатора. Создается конструктором прямо в JPQL-запросе,
+ * поэтому не попадает в контекст персистентности и не проверяется на изменения при коммите.
+ */
+@Value
+public class EventShortView {
+    int id;
+    String title;
+    String annotation;
+    String description;
+    LocalDateTime eventDate;
+    boolean paid;
+    int confirmedRequests;
+    int views;
+    int categoryId;
+    String categoryName;
+    int initiatorId;
+    String initiatorName;
+}
@@ -0,0 +1,26 @@
+package ru.practicum.event;
+
+import ru.practicum.exception.InvalidPathVariableException;
+
+/** Порядок публичного списка событий */
+public enum EventSort {
+    EVENT_DATE,
+    VIEWS,
+    /** По релевантности текстовому запросу, только по явному запросу; без текста равносилен EVENT_DATE */
+    RELEVANCE;
+
+    /**
+     * @param sort значение параметра sort; если не задано, события упорядочиваются по дате
+     */
+    public static EventSort from(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return EVENT_DATE;
+        }
+        for (EventSort value : values()) {
+            if (value.name().equalsIgnoreCase(sort)) {
+                return value;
+            }
+        }
+        throw new InvalidPathVariableException("Некорректный параметр сортировки: " + sort);
+    }
+}
@@ -1,7 +1,22 @@
 package ru.practicum.event;
 
+import ru.practicum.exception.InvalidPathVariableException;
+
 public enum EventState {
     PENDING,
     PUBLISHED,
-    CANCELED
-}
\ No newline at end of file
+    CANCELED;
+
+    /**
+     * @param state значение параметра запроса
+     * @throws InvalidPathVariableException если такого состояния нет
+     */
+    public static EventState from(String state) {
+        for (EventState value : values()) {
+            if (value.name().equals(state)) {
+                return value;
+            }
+        }
+        throw new InvalidPathVariableException("Некорректное значение параметра states: " + state);
+    }
+}
@@ -0,0 +1,132 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.event.cache.EventDetailsCache;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись просмотров событий. Просмотр увеличивает счетчик события в памяти,
+ * а фоновый поток раз в explore-with-me.views.flush-interval переносит накопленные приросты
+ * в events.views одним UPDATE для всех событий.
+ * <p>
+ * Счетчик увеличивается и снимается атомарными операциями карты над записью события: сброс забирает
+ * значение вместе с записью, и следующий просмотр начинает новую запись, поэтому просмотры не теряются
+ * и простаивающие события не остаются в карте.
+ */
+@Slf4j
+@Component
+public class EventViewCounter {
+    private final JdbcTemplate jdbcTemplate;
+    private final EventDetailsCache eventDetailsCache;
+    private final Duration flushInterval;
+    private final ConcurrentHashMap<Integer, Long> pending = new ConcurrentHashMap<>();
+    private final Timer flushTimer;
+    private ScheduledExecutorService scheduler;
+
+    public EventViewCounter(JdbcTemplate jdbcTemplate,
+                            EventDetailsCache eventDetailsCache,
+                            MeterRegistry meterRegistry,
+                            @Value("${explore-with-me.views.flush-interval:PT5S}") Duration flushInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventDetailsCache = eventDetailsCache;
+        this.flushInterval = flushInterval;
+        this.flushTimer = meterRegistry.timer("ewm.views.flush");
+        meterRegistry.gauge("ewm.views.pending", pending,
+                map -> map.values().stream().mapToLong(Long::longValue).sum());
+        meterRegistry.gaugeMapSize("ewm.views.pending.events", List.of(), pending);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ewm-views-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        flushQuietly();
+    }
+
+    /** Учитывает просмотр события */
+    public void increment(int eventId) {
+        pending.merge(eventId, 1L, Long::sum);
+    }
+
+    /** Просмотры события, еще не записанные в базу */
+    public long pending(int eventId) {
+        Long views = pending.get(eventId);
+        return views == null ? 0 : views;
+    }
+
+    /**
+     * Переносит накопленные просмотры в events.views; при ошибке приросты возвращаются в счетчики.
+     * Снятый со счетчика прирост сразу учитывается в {@link EventDetailsCache}, чтобы сумма записанных
+     * и ожидающих просмотров в кэшированном событии не проседала на время записи. После записи кэш
+     * отбрасывает загрузки, которые могли прочитать events.views без этих приростов.
+     */
+    public synchronized void flush() {
+        List<Integer> ids = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        for (Integer eventId : pending.keySet()) {
+            pending.computeIfPresent(eventId, (id, delta) -> {
+                ids.add(id);
+                deltas.add(delta);
+                eventDetailsCache.addStoredViews(id, delta);
+                return null;
+            });
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement stmt = connection.prepareStatement("update events e set views = coalesce(e.views, 0) + d.delta " +
+                        "from unnest(?, ?) as d(id, delta) where e.id = d.id");
+                stmt.setArray(1, connection.createArrayOf("integer", ids.toArray()));
+                stmt.setArray(2, connection.createArrayOf("bigint", deltas.toArray()));
+                return stmt;
+            });
+        } catch (RuntimeException e) {
+            for (int i = 0; i < ids.size(); i++) {
+                pending.merge(ids.get(i), deltas.get(i), Long::sum);
+                eventDetailsCache.addStoredViews(ids.get(i), -deltas.get(i));
+            }
+            throw e;
+        } finally {
+            eventDetailsCache.storedViewsWritten(ids);
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        log.debug("Просмотры {} событий записаны в базу", ids.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи просмотров событий", e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.client.ClientStatsGet;
+import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.EventShortDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Просмотры событий из сервера статистики для списков, подборок и карточки события. Идентификаторы всех
+ * событий страницы собираются в один запрос к /stats, так что страница стоит не больше одного обращения
+ * к серверу статистики. Полученные значения кэшируются на explore-with-me.views.cache-ttl; если сервер
+ * статистики недоступен или не ответил за stats.client.query-timeout, показывается events.views
+ * плюс приросты, еще не сброшенные {@link EventViewCounter}.
+ * <p>
+ * Сортировка VIEWS идет по столбцу events.views: число сервера статистики нельзя использовать в ORDER BY,
+ * поэтому порядок страницы может расходиться с показанными числами на просмотры, еще не сброшенные в таблицу.
+ */
+@Slf4j
+@Component
+public class EventViewStats {
+    private static final LocalDateTime STATS_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private final ClientStatsGet clientStatsGet;
+    private final EventViewCounter eventViewCounter;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final boolean unique;
+    private final ConcurrentHashMap<Integer, CachedViews> cache = new ConcurrentHashMap<>();
+    private final Counter fallbacks;
+
+    public EventViewStats(ClientStatsGet clientStatsGet,
+                          EventViewCounter eventViewCounter,
+                          MeterRegistry meterRegistry,
+                          @Value("${explore-with-me.views.cache-ttl:PT10S}") Duration ttl,
+                          @Value("${explore-with-me.views.cache-max-entries:100000}") int maxEntries,
+                          @Value("${explore-with-me.views.unique:false}") boolean unique) {
+        this.clientStatsGet = clientStatsGet;
+        this.eventViewCounter = eventViewCounter;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.unique = unique;
+        this.fallbacks = meterRegistry.counter("ewm.views.stats.fallback");
+    }
+
+    public List<EventShortDto> withShortViews(List<EventShortDto> events) {
+        enrich(events, EventShortDto::getId, EventShortDto::getViews, EventShortDto::setViews);
+        return events;
+    }
+
+    public List<EventFullDto> withFullViews(List<EventFullDto> events) {
+        enrich(events, EventFullDto::getId, EventFullDto::getViews, EventFullDto::setViews);
+        return events;
+    }
+
+    public EventFullDto withFullViews(EventFullDto event) {
+        enrich(List.of(event), EventFullDto::getId, EventFullDto::getViews, EventFullDto::setViews);
+        return event;
+    }
+
+    private <T> void enrich(List<T> events, ToIntFunction<T> idOf, ToIntFunction<T> storedViewsOf,
+                            ObjIntConsumer<T> setViews) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Integer, Long> views = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (T event : events) {
+            int id = idOf.applyAsInt(event);
+            CachedViews cached = cache.get(id);
+            if (cached != null && cached.expiresAt > now) {
+                views.put(id, cached.views);
+            } else if (!views.containsKey(id) && !missing.contains(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            views.putAll(load(missing, now));
+        }
+        for (T event : events) {
+            int id = idOf.applyAsInt(event);
+            Long value = views.get(id);
+            setViews.accept(event, value == null
+                    ? (int) (storedViewsOf.applyAsInt(event) + eventViewCounter.pending(id))
+                    : value.intValue());
+        }
+    }
+
+    /** Один запрос к серверу статистики за всеми событиями; при ошибке возвращает пустую карту */
+    private Map<Integer, Long> load(List<Integer> ids, long now) {
+        Map<String, Integer> idsByUri = new HashMap<>();
+        for (Integer id : ids) {
+            idsByUri.put("/events/" + id, id);
+        }
+
+        List<EndpointHitStatDto> stats;
+        try {
+            stats = clientStatsGet.getStats(STATS_START, LocalDateTime.now(), idsByUri.keySet(), unique);
+        } catch (RestClientException e) {
+            fallbacks.increment();
+            log.warn("Не удалось получить просмотры {} событий из сервера статистики: {}", ids.size(), e.getMessage());
+            return Map.of();
+        }
+
+        Map<Integer, Long> views = new HashMap<>();
+        ids.forEach(id -> views.put(id, 0L));
+        if (stats != null) {
+            for (EndpointHitStatDto stat : stats) {
+                Integer id = idsByUri.get(stat.getUri());
+                if (id != null && stat.getHits() != null) {
+                    views.merge(id, stat.getHits().longValue(), Long::sum);
+                }
+            }
+        }
+
+        if (cache.size() + views.size() > maxEntries) {
+            evict(now);
+        }
+        views.forEach((id, value) -> cache.put(id, new CachedViews(value, now + ttlMillis)));
+        return views;
+    }
+
+    /** Удаляет истекшие записи; если кэш и после этого переполнен, очищает его целиком */
+    private void evict(long now) {
+        cache.values().removeIf(cached -> cached.expiresAt <= now);
+        if (cache.size() >= maxEntries) {
+            log.warn("Кэш просмотров событий переполнен ({} записей), кэш сброшен", cache.size());
+            cache.clear();
+        }
+    }
+
+    private static final class CachedViews {
+        private final long views;
+        private final long expiresAt;
+
+        private CachedViews(long views, long expiresAt) {
+            this.views = views;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
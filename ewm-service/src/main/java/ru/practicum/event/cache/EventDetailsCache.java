@@ -0,0 +1,157 @@
+package ru.practicum.event.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.event.dto.EventFullDto;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш полных DTO опубликованных событий для GET /events/{id}, не больше
+ * explore-with-me.event-cache.max-entries записей с вытеснением по W-TinyLFU.
+ * <p>
+ * В записи хранится снимок DTO и число просмотров, уже записанных в базу: {@link ru.practicum.event.EventViewCounter}
+ * при сбросе прибавляет к нему перенесенные приросты, поэтому сумма с еще не записанными просмотрами
+ * остается актуальной без перечитывания события. Запись удаляется при изменении события, его категории
+ * или числа подтвержденных заявок; внутри транзакции — еще раз после коммита, чтобы параллельное
+ * чтение не вернуло в кэш незакоммиченное состояние.
+ * <p>
+ * Загрузка при промахе идет без блокировок, поэтому за время загрузки запись может быть удалена
+ * или получить прирост просмотров. Каждое такое событие увеличивает поколение ключа, и загруженный
+ * DTO кладется в кэш, только если поколение не изменилось с начала загрузки; иначе он возвращается
+ * вызывающему без кэширования. Поколения хранятся по полосам ключей: совпадение полос лишь изредка
+ * оставляет лишний промах.
+ */
+@Slf4j
+@Component
+public class EventDetailsCache {
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final TinyLfuCache<Integer, CachedEvent> cache;
+    private final long[] generations = new long[GENERATION_STRIPES];
+    private final Counter hits;
+    private final Counter misses;
+
+    public EventDetailsCache(MeterRegistry meterRegistry,
+                             @Value("${explore-with-me.event-cache.max-entries:10000}") int maxEntries) {
+        this.cache = new TinyLfuCache<>(maxEntries);
+        this.hits = meterRegistry.counter("ewm.event-cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("ewm.event-cache.requests", "result", "miss");
+        meterRegistry.gauge("ewm.event-cache.size", cache, TinyLfuCache::size);
+    }
+
+    /**
+     * Копия DTO события из кэша или из loader при промахе. Просмотры в копии — записанные в базу,
+     * без еще не сброшенных счетчиком.
+     *
+     * @param loader загрузка события из базы; исключение из него пробрасывается, а промах не кэшируется
+     */
+    public EventFullDto get(int eventId, Supplier<EventFullDto> loader) {
+        long generation;
+        synchronized (cache) {
+            CachedEvent cached = cache.get(eventId);
+            if (cached != null) {
+                hits.increment();
+                return cached.copy();
+            }
+            generation = generations[stripe(eventId)];
+        }
+        misses.increment();
+        CachedEvent loaded = new CachedEvent(loader.get());
+        synchronized (cache) {
+            if (generations[stripe(eventId)] == generation) {
+                cache.put(eventId, loaded);
+            } else {
+                log.debug("Событие {} изменилось во время загрузки и не кэшируется", eventId);
+            }
+        }
+        return loaded.copy();
+    }
+
+    /** Учитывает просмотры, перенесенные в базу, в записи события, если она есть в кэше */
+    public void addStoredViews(int eventId, long delta) {
+        synchronized (cache) {
+            generations[stripe(eventId)]++;
+            CachedEvent cached = cache.peek(eventId);
+            if (cached != null) {
+                cached.storedViews.addAndGet(delta);
+            }
+        }
+    }
+
+    /**
+     * Отмечает, что UPDATE с приростами просмотров событий завершен: загрузка, начатая после
+     * {@link #addStoredViews} и прочитавшая events.views до коммита, не попадет в кэш
+     */
+    public void storedViewsWritten(List<Integer> eventIds) {
+        synchronized (cache) {
+            for (int eventId : eventIds) {
+                generations[stripe(eventId)]++;
+            }
+        }
+    }
+
+    public void invalidate(int eventId) {
+        invalidateEntry(eventId);
+        afterCommit(() -> invalidateEntry(eventId));
+    }
+
+    public void invalidateAll() {
+        invalidateEntries();
+        afterCommit(this::invalidateEntries);
+    }
+
+    private void invalidateEntry(int eventId) {
+        synchronized (cache) {
+            generations[stripe(eventId)]++;
+            cache.invalidate(eventId);
+        }
+    }
+
+    private void invalidateEntries() {
+        synchronized (cache) {
+            for (int i = 0; i < generations.length; i++) {
+                generations[i]++;
+            }
+            cache.invalidateAll();
+        }
+    }
+
+    private static int stripe(int eventId) {
+        return Math.floorMod(eventId, GENERATION_STRIPES);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static final class CachedEvent {
+        private final EventFullDto event;
+        private final AtomicLong storedViews;
+
+        private CachedEvent(EventFullDto event) {
+            this.event = event;
+            this.storedViews = new AtomicLong(event.getViews());
+        }
+
+        private EventFullDto copy() {
+            return event.toBuilder()
+                    .views((int) storedViews.get())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.event.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный по числу записей кэш с политикой W-TinyLFU.
+ * <p>
+ * Новые записи попадают в небольшое LRU-окно (1% емкости). Вытесненная из окна запись проходит
+ * в основную область, только если по частотному скетчу к ней обращались чаще, чем к кандидату
+ * на вытеснение из основной области. Основная область — сегментированный LRU: испытательный сегмент
+ * и защищенный (80% основной области), куда запись переходит при повторном обращении.
+ * Так однократные обращения к редким ключам не вытесняют популярные записи.
+ * <p>
+ * Все операции синхронизированы на экземпляре: они выполняются за O(1) и много дешевле запроса в базу.
+ */
+public class TinyLfuCache<K, V> {
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    public TinyLfuCache(int maximumSize) {
+        if (maximumSize < 2) {
+            throw new IllegalArgumentException("Емкость кэша должна быть не меньше 2");
+        }
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.protectedCapacity = mainCapacity * 8 / 10;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /** Значение по ключу с учетом обращения в частотном скетче; null, если записи нет */
+    public synchronized V get(K key) {
+        sketch.increment(key.hashCode());
+        V value = window.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = protectedSegment.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = probation.remove(key);
+        if (value != null) {
+            protectedSegment.put(key, value);
+            if (protectedSegment.size() > protectedCapacity) {
+                Map.Entry<K, V> demoted = removeEldest(protectedSegment);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+        return value;
+    }
+
+    /** Значение по ключу без учета обращения и без изменения порядка вытеснения */
+    public synchronized V peek(K key) {
+        V value = window.get(key);
+        if (value == null) {
+            value = protectedSegment.get(key);
+        }
+        if (value == null) {
+            value = probation.get(key);
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (window.replace(key, value) != null
+                || protectedSegment.replace(key, value) != null
+                || probation.replace(key, value) != null) {
+            return;
+        }
+        window.put(key, value);
+        if (window.size() > windowCapacity) {
+            Map.Entry<K, V> candidate = removeEldest(window);
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        if (window.remove(key) == null && protectedSegment.remove(key) == null) {
+            probation.remove(key);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    private void admit(K key, V value) {
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(key, value);
+            return;
+        }
+        LinkedHashMap<K, V> victims = probation.isEmpty() ? protectedSegment : probation;
+        K victim = victims.keySet().iterator().next();
+        if (sketch.frequency(key.hashCode()) > sketch.frequency(victim.hashCode())) {
+            victims.remove(victim);
+            probation.put(key, value);
+        }
+    }
+
+    private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> map) {
+        Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+        Map.Entry<K, V> eldest = iterator.next();
+        Map.Entry<K, V> removed = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return removed;
+    }
+
+    /**
+     * Count-Min скетч частот с 4-битными счетчиками в четырех строках.
+     * Когда число учтенных обращений достигает десятикратной ширины, все счетчики делятся пополам,
+     * чтобы частоты отражали недавнюю популярность, а не всю историю.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0x7f4a7c15, 0x2545f491, 0x9e3779b9};
+
+        private final byte[][] rows;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize - 1) << 1);
+            this.rows = new byte[SEEDS.length][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < rows.length; i++) {
+                int index = index(hash, i);
+                if (rows[i][index] < 15) {
+                    rows[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import ru.practicum.event.EventService;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.UpdateEventAdminRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -21,7 +22,7 @@ import java.util.List;
 public class EventAdminController {
     private final EventService eventService;
 
-    /** Получение списка событий администратором */
+    /** Получение списка событий администратором; с параметром cursor — постранично по курсору, см. X-Next-Cursor */
     @GetMapping
     @Transactional(readOnly = true)
     public List<EventFullDto> findAdminEvents(@RequestParam(required = false) Integer[] users,
@@ -30,10 +31,16 @@ public class EventAdminController {
                                               @RequestParam(required = false) String rangeStart,
                                               @RequestParam(required = false) String rangeEnd,
                                               @PositiveOrZero @RequestParam(defaultValue = "0") int from,
-                                              @Positive @RequestParam(defaultValue = "10") int size) {
+                                              @Positive @RequestParam(defaultValue = "10") int size,
+                                              @RequestParam(required = false) String cursor,
+                                              HttpServletResponse response) {
         log.info("Запрос на получение событий пользователей={} категории={} состояния={} rangeStart={}" +
-                        " rangeEnd={} from={} size={}",
-                users, categories, states, rangeStart, rangeEnd, from, size);
+                        " rangeEnd={} from={} size={} cursor={}",
+                users, categories, states, rangeStart, rangeEnd, from, size, cursor);
+        if (cursor != null) {
+            return eventService.findAdminEventsAfter(users, states, categories, rangeStart, rangeEnd, cursor, size)
+                    .writeTo(response);
+        }
         return eventService.findAdminEvents(users, states, categories, rangeStart, rangeEnd, from, size);
     }
 
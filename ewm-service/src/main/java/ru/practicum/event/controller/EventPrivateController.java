@@ -16,6 +16,7 @@ import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.request.dto.EventRequestStatusUpdateResult;
 import ru.practicum.request.dto.ParticipationRequestDto;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -37,13 +38,18 @@ public class EventPrivateController {
         return eventService.createEvent(userId, eventDto);
     }
 
-    /** Получение списка событий пользователя */
+    /** Получение списка событий пользователя; с параметром cursor — постранично по курсору, см. X-Next-Cursor */
     @GetMapping
     @Transactional(readOnly = true)
     public List<EventShortDto> findByUserId(@Positive @PathVariable int userId,
                                             @PositiveOrZero @RequestParam(defaultValue = "0") int from,
-                                            @Positive @RequestParam(defaultValue = "10") int size) {
-        log.info("Запрос на получение событий пользователя {} from={} size={}", userId, from, size);
+                                            @Positive @RequestParam(defaultValue = "10") int size,
+                                            @RequestParam(required = false) String cursor,
+                                            HttpServletResponse response) {
+        log.info("Запрос на получение событий пользователя {} from={} size={} cursor={}", userId, from, size, cursor);
+        if (cursor != null) {
+            return eventService.findByUserIdAfter(userId, cursor, size).writeTo(response);
+        }
         return eventService.findByUserId(userId, from, size);
     }
 
@@ -2,20 +2,26 @@ package ru.practicum.event.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import ru.practicum.DateFormatter;
 import ru.practicum.client.ClientStatsPost;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.event.EventService;
+import ru.practicum.event.EventSort;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.version.ContentVersions;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -25,28 +31,44 @@ public class EventPublicController {
     private static final String APP_NAME = "explore-with-me";
     private final EventService eventService;
     private final ClientStatsPost clientStats;
+    private final ContentVersions contentVersions;
 
-    /** Получение полной информации о событии по ID */
+    /**
+     * Получение полной информации о событии по ID.
+     * Ответ снабжается ETag и Last-Modified из {@link ContentVersions}. Просмотр и хит статистики
+     * учитываются до проверки условного запроса, как и в списке событий, поэтому ответ 304 тоже считается
+     * просмотром; само событие при 304 не читается. Для отсутствующего события версии нет, и запрос
+     * с любым If-None-Match, в том числе *, получает 404 без заголовков версии и без учета просмотра.
+     */
     @GetMapping("/{id}")
-    public EventFullDto getEventByIdAndState(@Positive @PathVariable int id, HttpServletRequest request) {
+    public ResponseEntity<EventFullDto> getEventByIdAndState(@Positive @PathVariable int id,
+                                                             HttpServletRequest request) {
         log.info("Запрос на получение события {}", id);
 
+        Optional<ContentVersions.Version> version = contentVersions.event(id);
+        if (version.isPresent()) {
+            countView(id, request);
+            if (version.get().isNotModified(request)) {
+                return version.get().notModified();
+            }
+        }
         EventFullDto event = eventService.findByIdAndState(id);
-        event.setViews(event.getViews() + 1);
+        if (version.isEmpty()) {
+            // событие опубликовали между чтением версии и чтением события
+            countView(id, request);
+        }
 
-        log.info("IP клиента: {}", request.getRemoteAddr());
-        log.info("Путь эндпоинта: {}", request.getRequestURI());
-        clientStats.addStatInfo(EndpointHitDto.builder()
-                .app(APP_NAME)
-                .ip(request.getRemoteAddr())
-                .uri(request.getRequestURI())
-                .timestamp(DateFormatter.toString(LocalDateTime.now()))
-                .build());
-
-        return event;
+        return version.map(ContentVersions.Version::ok)
+                .orElseGet(ResponseEntity::ok)
+                .body(event);
     }
 
-    /** Получение списка публичных событий */
+    /**
+     * Получение списка публичных событий.
+     * Если передан параметр cursor (пустой — первая страница), from не используется: страница выбирается
+     * после события из курсора, а курсор следующей страницы возвращается в заголовке X-Next-Cursor.
+     * Списки, кроме упорядоченных по просмотрам, поддерживают условный запрос по версии событий.
+     */
     @GetMapping
     public List<EventShortDto> findPublicEvents(@RequestParam(required = false) String text,
                                                 @RequestParam(required = false) Integer[] categories,
@@ -54,16 +76,38 @@ public class EventPublicController {
                                                 @RequestParam(required = false) String rangeStart,
                                                 @RequestParam(required = false) String rangeEnd,
                                                 @RequestParam(defaultValue = "false") boolean onlyAvailable,
-                                                @RequestParam(defaultValue = "EVENT_DATE") String sort,
+                                                @RequestParam(required = false) String sort,
                                                 @PositiveOrZero @RequestParam(defaultValue = "0") int from,
                                                 @Positive @RequestParam(defaultValue = "10") int size,
-                                                HttpServletRequest request) {
+                                                @RequestParam(required = false) String cursor,
+                                                HttpServletRequest request,
+                                                HttpServletResponse response,
+                                                WebRequest webRequest) {
         log.info("Запрос на получение списка событий text={} categories={} paid={} rangeStart={} rangeEnd={} onlyAvailable={} " +
-                        "sort={} from={} size={}", text, categories, paid, rangeStart, rangeEnd,
-                onlyAvailable, sort, from, size);
+                        "sort={} from={} size={} cursor={}", text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, sort, from, size, cursor);
+
+        ContentVersions.Version version = contentVersions.eventList();
+        List<EventShortDto> events = null;
+        // порядок по просмотрам меняется без изменения событий, поэтому такие списки всегда читаются заново
+        if (EventSort.VIEWS.name().equalsIgnoreCase(sort)
+                || !webRequest.checkNotModified(version.getEtag(), version.getModifiedAt())) {
+            events = cursor == null
+                    ? eventService.findPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size)
+                    : eventService.findPublicEventsAfter(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort,
+                            cursor, size).writeTo(response);
+        }
+
+        addStatInfo(request);
+        return events;
+    }
 
-        List<EventShortDto> events = eventService.findPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size);
+    private void countView(int id, HttpServletRequest request) {
+        eventService.countView(id);
+        addStatInfo(request);
+    }
 
+    private void addStatInfo(HttpServletRequest request) {
         log.info("IP клиента: {}", request.getRemoteAddr());
         log.info("Путь эндпоинта: {}", request.getRequestURI());
         clientStats.addStatInfo(EndpointHitDto.builder()
@@ -72,7 +116,5 @@ public class EventPublicController {
                 .uri(request.getRequestURI())
                 .timestamp(DateFormatter.toString(LocalDateTime.now()))
                 .build());
-
-        return events;
     }
 }
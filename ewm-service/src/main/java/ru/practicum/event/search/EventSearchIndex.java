@@ -0,0 +1,412 @@
+package ru.practicum.event.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.practicum.event.Event;
+import ru.practicum.event.EventCursor;
+import ru.practicum.event.EventSort;
+import ru.practicum.event.EventState;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс опубликованных событий в памяти процесса: RoaringBitmap идентификаторов событий для каждой триграммы
+ * аннотации и описания, рядом — битмапы категорий и платности.
+ * <p>
+ * Поля и нормализация те же, что у поиска в базе {@link ru.practicum.event.EventSearchRepository}: подстрока
+ * аннотации или описания без учета регистра. Событие, содержащее текст запроса, содержит и все его триграммы
+ * в нижнем регистре, поэтому пересечение битмапов дает надмножество подходящих событий. Окончательная проверка
+ * ILIKE, фильтры и порядок страницы выполняются тем же SQL, что и без индекса, только среди кандидатов,
+ * так что оба пути возвращают одни и те же события. Без текста индекс сам выбирает страницу по категориям,
+ * платности и дате, а Postgres нужен только для загрузки событий страницы.
+ * <p>
+ * Индекс строится при старте и перестраивается раз в explore-with-me.search.index.refresh-interval,
+ * чтобы подхватить изменения других экземпляров сервиса. Изменения этого экземпляра применяются сразу
+ * через {@link #update(Event)}; изменения, пришедшие во время перестроения, повторяются на новом индексе.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "explore-with-me.search.index", name = "enabled", havingValue = "true")
+public class EventSearchIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration refreshInterval;
+    private final int maxCandidates;
+    private final Timer selectTimer;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data;
+    private List<Event> updatesDuringRebuild;
+    private ScheduledExecutorService scheduler;
+
+    public EventSearchIndex(JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${explore-with-me.search.index.refresh-interval:PT10M}") Duration refreshInterval,
+                            @Value("${explore-with-me.search.index.max-candidates:5000}") int maxCandidates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshInterval = refreshInterval;
+        this.maxCandidates = maxCandidates;
+        this.selectTimer = meterRegistry.timer("ewm.search.index.select");
+        meterRegistry.gauge("ewm.search.index.events", this, index -> index.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ewm-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /** Индекс построен и может отвечать на запросы */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return data != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Добавляет, обновляет или удаляет событие в зависимости от его состояния */
+    public void update(Event event) {
+        lock.writeLock().lock();
+        try {
+            if (updatesDuringRebuild != null) {
+                updatesDuringRebuild.add(event);
+            }
+            if (data != null) {
+                apply(data, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Идентификаторы страницы опубликованных событий, подходящих под фильтры, без текстового запроса
+     *
+     * @param sort  EVENT_DATE или RELEVANCE, без текста равносильная EVENT_DATE; порядок по просмотрам
+     *              индекс не поддерживает
+     * @param after курсор для сортировки EVENT_DATE: выбираются события строго после него; может быть null
+     */
+    public List<Integer> search(List<Integer> categories,
+                                Boolean paid,
+                                LocalDateTime rangeStart,
+                                LocalDateTime rangeEnd,
+                                EventSort sort,
+                                EventCursor after,
+                                int offset,
+                                int limit) {
+        if (sort == EventSort.VIEWS) {
+            throw new IllegalArgumentException("Индекс не поддерживает сортировку по просмотрам");
+        }
+        lock.readLock().lock();
+        try {
+            long started = System.nanoTime();
+            RoaringBitmap candidates = data.match(null, categories, paid);
+            selectTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return data.page(candidates, rangeStart, rangeEnd, after, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Кандидаты для текстового запроса: опубликованные события с заданными категориями и платностью,
+     * содержащие все триграммы текста. Это надмножество событий, которые найдет ILIKE.
+     *
+     * @return идентификаторы кандидатов или null, если индекс не сужает выборку: в тексте нет ни одной
+     * триграммы без подстановочных символов LIKE или кандидатов больше explore-with-me.search.index.max-candidates
+     */
+    public List<Integer> candidates(String text, List<Integer> categories, Boolean paid) {
+        Set<Long> trigrams = queryTrigrams(text);
+        if (trigrams.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            long started = System.nanoTime();
+            RoaringBitmap candidates = data.match(trigrams, categories, paid);
+            selectTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            if (candidates.getCardinality() > maxCandidates) {
+                return null;
+            }
+            List<Integer> ids = new ArrayList<>(candidates.getCardinality());
+            candidates.forEach((int id) -> ids.add(id));
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Перестраивает индекс по всем опубликованным событиям */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long started = System.currentTimeMillis();
+        IndexData rebuilt = new IndexData();
+        try {
+            jdbcTemplate.query("select id, annotation, description, category_id, paid, event_date from events " +
+                            "where state = ?",
+                    (RowCallbackHandler) rs -> rebuilt.apply(rs.getInt("id"), EventState.PUBLISHED,
+                            rs.getString("annotation"), rs.getString("description"), (Integer) rs.getObject("category_id"),
+                            rs.getBoolean("paid"), rs.getTimestamp("event_date") == null
+                                    ? null : rs.getTimestamp("event_date").toLocalDateTime()),
+                    EventState.PUBLISHED.name());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                updatesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild.forEach(event -> apply(rebuilt, event));
+            updatesDuringRebuild = null;
+            data = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс поиска событий построен за {} мс: {} событий, {} триграмм",
+                System.currentTimeMillis() - started, rebuilt.size(), rebuilt.terms());
+    }
+
+    private static void apply(IndexData target, Event event) {
+        target.apply(event.getId(), event.getState(), event.getAnnotation(), event.getDescription(),
+                event.getCategory() == null ? null : event.getCategory().getId(), event.isPaid(),
+                event.getEventDate());
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return data == null ? 0 : data.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Ошибка построения индекса поиска событий", e);
+        }
+    }
+
+    /**
+     * Триграммы текста запроса. Символы % и _ в LIKE совпадают с любыми символами, поэтому триграммы берутся
+     * только из частей между ними; обратная косая черта экранирует следующий символ, и такой текст
+     * индекс не разбирает.
+     */
+    static Set<Long> queryTrigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        if (text == null || text.indexOf('\\') >= 0) {
+            return trigrams;
+        }
+        for (String literal : text.split("[%_]")) {
+            addTrigrams(trigrams, literal);
+        }
+        return trigrams;
+    }
+
+    /** Триграммы строки в нижнем регистре; регистр приводится посимвольно, чтобы длина строки не менялась */
+    static void addTrigrams(Set<Long> trigrams, String text) {
+        if (text == null || text.length() < 3) {
+            return;
+        }
+        char first = Character.toLowerCase(text.charAt(0));
+        char second = Character.toLowerCase(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            char third = Character.toLowerCase(text.charAt(i));
+            trigrams.add((long) first << 32 | (long) second << 16 | third);
+            first = second;
+            second = third;
+        }
+    }
+
+    /** Содержимое индекса; потокобезопасность обеспечивает блокировка {@link EventSearchIndex} */
+    private static final class IndexData {
+        private final Map<Long, RoaringBitmap> trigrams = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> categories = new HashMap<>();
+        private final RoaringBitmap paid = new RoaringBitmap();
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final Map<Integer, Doc> docs = new HashMap<>();
+
+        int size() {
+            return docs.size();
+        }
+
+        int terms() {
+            return trigrams.size();
+        }
+
+        void apply(int id, EventState state, String annotation, String description, Integer categoryId,
+                   boolean isPaid, LocalDateTime eventDate) {
+            remove(id);
+            if (state != EventState.PUBLISHED) {
+                return;
+            }
+            Set<Long> eventTrigrams = new HashSet<>();
+            addTrigrams(eventTrigrams, annotation);
+            addTrigrams(eventTrigrams, description);
+            Doc doc = new Doc(eventTrigrams.stream().mapToLong(Long::longValue).toArray(), categoryId,
+                    eventDate == null ? Long.MIN_VALUE : eventDate.toEpochSecond(ZoneOffset.UTC));
+            docs.put(id, doc);
+            all.add(id);
+            eventTrigrams.forEach(trigram -> trigrams.computeIfAbsent(trigram, t -> new RoaringBitmap()).add(id));
+            if (categoryId != null) {
+                categories.computeIfAbsent(categoryId, c -> new RoaringBitmap()).add(id);
+            }
+            if (isPaid) {
+                paid.add(id);
+            }
+        }
+
+        private void remove(int id) {
+            Doc doc = docs.remove(id);
+            if (doc == null) {
+                return;
+            }
+            all.remove(id);
+            paid.remove(id);
+            for (long trigram : doc.trigrams) {
+                removeFrom(trigrams, trigram, id);
+            }
+            if (doc.categoryId != null) {
+                removeFrom(categories, doc.categoryId, id);
+            }
+        }
+
+        /** @param queryTrigrams триграммы текста запроса; null — без текстового фильтра */
+        RoaringBitmap match(Set<Long> queryTrigrams, List<Integer> categoryIds, Boolean isPaid) {
+            RoaringBitmap result = all.clone();
+            if (queryTrigrams != null) {
+                for (Long trigram : queryTrigrams) {
+                    RoaringBitmap matching = trigrams.get(trigram);
+                    if (matching == null) {
+                        return new RoaringBitmap();
+                    }
+                    result.and(matching);
+                }
+            }
+            if (categoryIds != null) {
+                RoaringBitmap inCategories = new RoaringBitmap();
+                for (Integer categoryId : categoryIds) {
+                    RoaringBitmap bitmap = categories.get(categoryId);
+                    if (bitmap != null) {
+                        inCategories.or(bitmap);
+                    }
+                }
+                result.and(inCategories);
+            }
+            if (isPaid != null) {
+                if (isPaid) {
+                    result.and(paid);
+                } else {
+                    result.andNot(paid);
+                }
+            }
+            return result;
+        }
+
+        /** Страница кандидатов по дате события с фильтром по дате; хранится только offset + limit лучших */
+        List<Integer> page(RoaringBitmap candidates, LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                           EventCursor after, int offset, int limit) {
+            long start = rangeStart == null ? Long.MIN_VALUE : rangeStart.toEpochSecond(ZoneOffset.UTC);
+            long end = rangeEnd == null ? Long.MAX_VALUE : rangeEnd.toEpochSecond(ZoneOffset.UTC);
+            long afterDate = after == null ? Long.MAX_VALUE : after.getEventDate().toEpochSecond(ZoneOffset.UTC);
+            int afterId = after == null ? Integer.MAX_VALUE : after.getId();
+
+            // в вершине кучи худший из отобранных
+            Comparator<long[]> order = Comparator.<long[]>comparingLong(entry -> entry[1])
+                    .thenComparingLong(entry -> entry[0]);
+            PriorityQueue<long[]> top = new PriorityQueue<>(order);
+            int keep = offset + limit;
+            candidates.forEach((int id) -> {
+                Doc doc = docs.get(id);
+                if (doc.eventDate < start || doc.eventDate > end) {
+                    return;
+                }
+                if (doc.eventDate > afterDate || doc.eventDate == afterDate && id >= afterId) {
+                    return;
+                }
+                top.add(new long[]{id, doc.eventDate});
+                if (top.size() > keep) {
+                    top.poll();
+                }
+            });
+
+            List<long[]> sorted = new ArrayList<>(top);
+            sorted.sort(order.reversed());
+            List<Integer> ids = new ArrayList<>();
+            for (int i = offset; i < sorted.size(); i++) {
+                ids.add((int) sorted.get(i)[0]);
+            }
+            return ids;
+        }
+
+        private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int id) {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+    }
+
+    private static final class Doc {
+        private final long[] trigrams;
+        private final Integer categoryId;
+        private final long eventDate;
+
+        private Doc(long[] trigrams, Integer categoryId, long eventDate) {
+            this.trigrams = trigrams;
+            this.categoryId = categoryId;
+            this.eventDate = eventDate;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.event.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/** Разбиение текста на слова для поиска событий */
+public final class SearchText {
+    private SearchText() {
+    }
+
+    /** Слова текста в нижнем регистре; знаки препинания считаются разделителями */
+    public static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
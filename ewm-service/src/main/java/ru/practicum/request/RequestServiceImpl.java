@@ -10,6 +10,7 @@ import ru.practicum.event.Event;
 import ru.practicum.event.EventRepository;
 import ru.practicum.event.EventService;
 import ru.practicum.event.EventState;
+import ru.practicum.event.cache.EventDetailsCache;
 import ru.practicum.exception.InvalidEventStateOrDate;
 import ru.practicum.exception.InvalidParticipationRequest;
 import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
@@ -38,6 +39,8 @@ public class RequestServiceImpl implements RequestService {
 
     private final EventRepository eventRepository;
 
+    private final EventDetailsCache eventDetailsCache;
+
     /**
      * Создает запрос на участие пользователя в событии.
      *
@@ -69,6 +72,7 @@ public class RequestServiceImpl implements RequestService {
             status = RequestStatus.CONFIRMED;
             event.setConfirmedRequests(event.getConfirmedRequests() + 1);
             eventRepository.save(event);
+            eventDetailsCache.invalidate(eventId);
         }
 
         ParticipationRequestDto request = ParticipationRequestDto.builder()
@@ -167,6 +171,7 @@ public class RequestServiceImpl implements RequestService {
                 request.setStatus(RequestStatus.CONFIRMED);
                 event.setConfirmedRequests(event.getConfirmedRequests() + 1);
                 event = eventRepository.save(event);
+                eventDetailsCache.invalidate(eventId);
                 if (!isNeedAllToConfirm && event.getParticipantLimit() <= event.getConfirmedRequests()) {
                     isNeedAllToCancel = true;
                 }
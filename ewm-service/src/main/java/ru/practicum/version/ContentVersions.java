@@ -0,0 +1,114 @@
+package ru.practicum.version;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Версии публичного содержимого для условных GET-запросов (ETag и Last-Modified).
+ * <p>
+ * Версия строится из столбцов updated_on событий, категорий и подборок, которые Hibernate обновляет
+ * при каждом изменении сущности, поэтому она одинакова на всех экземплярах и переживает перезапуск.
+ * Запрос версии читает несколько строк по индексам и много дешевле чтения и сериализации ответа.
+ * Версия отдельного события или подборки есть только у существующих опубликованных событий
+ * и существующих подборок: для остальных контроллер не отвечает 304.
+ * <p>
+ * Просмотры в версию не входят: они меняются при каждом чтении, и в ответе 304 остаются прежними.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentVersions {
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Версия опубликованного события для GET /events/{id}; пусто, если такого события нет */
+    public Optional<Version> event(int eventId) {
+        return first(jdbcTemplate.query("select greatest(e.updated_on, c.updated_on) " +
+                "from events e join categories c on c.id = e.category_id " +
+                "where e.id = ? and e.state = 'PUBLISHED'", (rs, rowNum) -> version(rs.getTimestamp(1), 0), eventId));
+    }
+
+    /**
+     * Версия списков публичных событий. События не удаляются, а снятие с публикации меняет updated_on,
+     * поэтому достаточно последнего изменения событий и категорий.
+     */
+    public Version eventList() {
+        return jdbcTemplate.queryForObject("select greatest((select max(updated_on) from events), " +
+                "(select max(updated_on) from categories))", (rs, rowNum) -> version(rs.getTimestamp(1), 0));
+    }
+
+    /** Версия подборки с учетом ее событий и их категорий; пусто, если подборки нет */
+    public Optional<Version> compilation(int compId) {
+        return first(jdbcTemplate.query("select greatest(max(co.updated_on), max(e.updated_on), max(c.updated_on)) " +
+                "from compilations co " +
+                "left join compilations_events ce on ce.compilation_id = co.id " +
+                "left join events e on e.id = ce.event_id " +
+                "left join categories c on c.id = e.category_id " +
+                "where co.id = ? group by co.id", (rs, rowNum) -> version(rs.getTimestamp(1), 0), compId));
+    }
+
+    /**
+     * Версия списков подборок: они включают краткие DTO событий. Удаление подборки не оставляет
+     * updated_on, поэтому в версию входит и число подборок.
+     */
+    public Version compilations() {
+        return jdbcTemplate.queryForObject("select (select count(*) from compilations), " +
+                        "greatest((select max(updated_on) from compilations), (select max(updated_on) from events), " +
+                        "(select max(updated_on) from categories))",
+                (rs, rowNum) -> version(rs.getTimestamp(2), rs.getLong(1)));
+    }
+
+    private static Version version(Timestamp updatedOn, long count) {
+        if (updatedOn == null) {
+            return new Version(count, 0, 0);
+        }
+        Instant instant = updatedOn.toInstant();
+        return new Version(count, instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000, instant.toEpochMilli());
+    }
+
+    private static Optional<Version> first(List<Version> versions) {
+        return versions.stream().findFirst();
+    }
+
+    @Value
+    public static class Version {
+        long count;
+        long micros;
+        long modifiedAt;
+
+        /** Строгий ETag из момента последнего изменения с точностью до микросекунды */
+        public String getEtag() {
+            return count == 0
+                    ? "\"" + Long.toHexString(micros) + "\""
+                    : "\"" + Long.toHexString(count) + "-" + Long.toHexString(micros) + "\"";
+        }
+
+        /** Совпадает ли версия с If-None-Match или If-Modified-Since запроса; заголовки ответа не меняются */
+        public boolean isNotModified(HttpServletRequest request) {
+            return new ServletWebRequest(request).checkNotModified(getEtag(), modifiedAt);
+        }
+
+        public ResponseEntity.BodyBuilder ok() {
+            return ResponseEntity.ok()
+                    .eTag(getEtag())
+                    .lastModified(modifiedAt);
+        }
+
+        public <T> ResponseEntity<T> notModified() {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(getEtag())
+                    .lastModified(modifiedAt)
+                    .build();
+        }
+    }
+}
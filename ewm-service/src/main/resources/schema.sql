@@ -1,6 +1,8 @@
 DROP TABLE IF EXISTS users, categories, locations, events,
 requests, compilations, compilations_events, places CASCADE;
 
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 CREATE TABLE IF NOT EXISTS users (
   id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
   name VARCHAR(255) NOT NULL,
@@ -13,6 +15,7 @@ CREATE TABLE IF NOT EXISTS users (
 CREATE TABLE IF NOT EXISTS categories (
   id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
   name VARCHAR(256) NOT NULL,
+  updated_on TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
   CONSTRAINT pk_categories PRIMARY KEY (id),
   CONSTRAINT uq_categories_name UNIQUE (name)
 );
@@ -29,6 +32,7 @@ CREATE TABLE IF NOT EXISTS compilations (
   id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
   title VARCHAR(256) NOT NULL,
   pinned BOOLEAN,
+  updated_on TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
   CONSTRAINT pk_compilations PRIMARY KEY (id)
 );
 
@@ -49,12 +53,27 @@ CREATE TABLE IF NOT EXISTS events (
   category_id INTEGER,
   initiator_id INTEGER,
   location_id INTEGER,
+  updated_on TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
+  search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(annotation, '')), 'A') ||
+    setweight(to_tsvector('russian', coalesce(description, '')), 'B') ||
+    setweight(to_tsvector('english', coalesce(annotation, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'B')
+  ) STORED,
   CONSTRAINT pk_events PRIMARY KEY (id),
   CONSTRAINT fk_events_to_categories FOREIGN KEY (category_id) REFERENCES categories(id),
   CONSTRAINT fk_events_to_users FOREIGN KEY (initiator_id) REFERENCES users(id),
   CONSTRAINT fk_events_to_locations FOREIGN KEY (location_id) REFERENCES locations(id)
 );
 
+CREATE INDEX IF NOT EXISTS events_annotation_trgm_idx ON events USING GIN (annotation gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS events_description_trgm_idx ON events USING GIN (description gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS events_event_date_id_idx ON events (event_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS events_views_id_idx ON events (views DESC, id DESC);
+CREATE INDEX IF NOT EXISTS events_initiator_id_idx ON events (initiator_id, id);
+CREATE INDEX IF NOT EXISTS events_category_id_idx ON events (category_id);
+CREATE INDEX IF NOT EXISTS events_updated_on_idx ON events (updated_on);
+
 CREATE TABLE IF NOT EXISTS compilations_events (
   id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
   compilation_id INTEGER NOT NULL,
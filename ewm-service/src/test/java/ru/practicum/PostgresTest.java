@@ -0,0 +1,37 @@
+package ru.practicum;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Основа тестов с базой: PostgreSQL 14, как в docker-compose, запускается один раз на JVM
+ * и подставляется в контекст вместо spring.datasource.*. Схема создается из schema.sql при старте контекста.
+ * Кластер создается с локалью C.UTF-8, чтобы lower/ILIKE учитывали регистр кириллицы, как в образе postgres.
+ * Адрес сервера статистики задается в docker-compose, в тестах к нему не обращаются.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "stats.server.url=http://localhost:9090")
+public abstract class PostgresTest {
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.builder()
+                    .setLocaleConfig("locale", "C.UTF-8")
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить PostgreSQL для тестов", e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.event;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.PostgresTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Фильтры списков событий: публичный список содержит только опубликованные события, а план запроса,
+ * который строит Criteria API, для каждого порядка использует свой индекс. План строится EXPLAIN по SQL,
+ * перехваченному у Hibernate, с теми же значениями параметров.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.event.EventFilterRepositoryImplTest$LastStatement")
+class EventFilterRepositoryImplTest extends PostgresTest {
+    private static final int EVENTS = 50_000;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Autowired
+    private EventFilterRepository eventFilterRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+        jdbcTemplate.update("insert into users(name, email) select 'user' || g, 'user' || g || '@mail.ru' " +
+                "from generate_series(1, 100) g");
+        jdbcTemplate.update("insert into categories(name) select 'category' || g from generate_series(1, 10) g");
+        jdbcTemplate.update("insert into events(title, annotation, description, event_date, state, paid, views, " +
+                "confirmed_requests, participant_limit, request_moderation, created_on, category_id, initiator_id) " +
+                "select 'Событие ' || g, 'Аннотация', 'Описание', cast(? as timestamp) + interval '1 hour' * g, " +
+                "case when g % 10 = 0 then 'PENDING' when g % 10 = 1 then 'CANCELED' else 'PUBLISHED' end, " +
+                "g % 2 = 0, g % 5000, g % 3, 2, true, now(), 1 + g % 10, 1 + g % 100 from generate_series(1, ?) g", START, EVENTS);
+        jdbcTemplate.execute("analyze events");
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+    }
+
+    @Test
+    void publicListContainsOnlyPublishedEvents() {
+        List<EventShortView> events = publicEvents(null, null, false, null, EventSort.EVENT_DATE, null, 100);
+
+        assertThat(events).hasSize(100);
+        assertThat(states(events)).containsOnly("PUBLISHED");
+        assertThat(events.get(0).getId()).isEqualTo(EVENTS - 1);
+    }
+
+    @Test
+    void publicFiltersMatchSql() {
+        List<EventShortView> events = publicEvents(true, START.plusDays(100), true, List.of(3, 5), EventSort.VIEWS,
+                null, 1000);
+
+        List<Integer> expected = jdbcTemplate.queryForList("select id from events where state = 'PUBLISHED' " +
+                "and paid and event_date >= ? and participant_limit > confirmed_requests and category_id in (3, 5) " +
+                "order by views desc, id desc limit 1000", Integer.class, START.plusDays(100));
+        assertThat(events).extracting(EventShortView::getId).isEqualTo(expected);
+    }
+
+    @Test
+    void cursorContinuesAfterLastEvent() {
+        List<EventShortView> first = publicEvents(null, null, false, null, EventSort.VIEWS, null, 20);
+        EventCursor after = EventCursor.after(first.get(9), EventCursor.Order.VIEWS);
+
+        List<EventShortView> second = publicEvents(null, null, false, null, EventSort.VIEWS, after, 10);
+
+        assertThat(second).extracting(EventShortView::getId)
+                .isEqualTo(first.subList(10, 20).stream().map(EventShortView::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void publicListByDateUsesEventDateIndex() {
+        publicEvents(null, START.plusDays(10), false, null, EventSort.EVENT_DATE, null, 10);
+
+        assertThat(explain(START.plusDays(10), EventState.PUBLISHED.name(), 10))
+                .contains("events_event_date_id_idx")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void publicListByViewsUsesViewsIndex() {
+        publicEvents(null, null, false, null, EventSort.VIEWS, null, 10);
+
+        assertThat(explain(EventState.PUBLISHED.name(), 10))
+                .contains("events_views_id_idx")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void adminListByUserUsesInitiatorIndex() {
+        List<Event> events = eventFilterRepository.findAdminEvents(List.of(11), List.of(EventState.PENDING), null,
+                null, null, 0, 0, 10);
+
+        assertThat(events).isNotEmpty().allMatch(event -> event.getUser().getId() == 11
+                && event.getState() == EventState.PENDING);
+        assertThat(explain(EventState.PENDING.name(), 11, 0, 10))
+                .contains("events_initiator_id_idx")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    private List<EventShortView> publicEvents(Boolean paid, LocalDateTime rangeStart, boolean onlyAvailable,
+                                              List<Integer> categories, EventSort sort, EventCursor after,
+                                              int limit) {
+        return eventFilterRepository.findPublicEvents(paid, rangeStart, null, onlyAvailable, categories, sort,
+                after, 0, limit);
+    }
+
+    private List<String> states(List<EventShortView> events) {
+        return jdbcTemplate.queryForList("select distinct state from events where id in (" + events.stream()
+                .map(event -> String.valueOf(event.getId()))
+                .collect(Collectors.joining(",")) + ")", String.class);
+    }
+
+    /** План последнего запроса Hibernate с параметрами в порядке их следования в SQL */
+    private String explain(Object... params) {
+        String sql = LastStatement.sql;
+        assertThat(sql.chars().filter(c -> c == '?').count()).as(sql).isEqualTo(params.length);
+        return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class, params));
+    }
+
+    /** Запоминает SQL последнего запроса Hibernate */
+    public static class LastStatement implements StatementInspector {
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String statement) {
+            sql = statement;
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.practicum.event;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.PostgresTest;
+import ru.practicum.compilation.CompilationService;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Число SQL-запросов на страницу событий не зависит от размера страницы: связи загружаются графами сущностей */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EventListStatementCountTest extends PostgresTest {
+    private static final int EVENTS = 20;
+
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private CompilationService compilationService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("truncate users, categories, locations, events, compilations, compilations_events " +
+                "restart identity cascade");
+        for (int i = 1; i <= EVENTS; i++) {
+            jdbcTemplate.update("insert into users(name, email) values (?, ?)", "user" + i, "user" + i + "@mail.ru");
+            jdbcTemplate.update("insert into categories(name) values (?)", "category" + i);
+            jdbcTemplate.update("insert into locations(lat, lon) values (55.75, 37.61)");
+            jdbcTemplate.update("insert into events(title, annotation, description, event_date, created_on, state, " +
+                    "paid, views, confirmed_requests, participant_limit, request_moderation, category_id, " +
+                    "initiator_id, location_id) values ('Событие', 'Аннотация события', 'Описание события', " +
+                    "now() + interval '1 day' * ?, now(), 'PUBLISHED', false, 0, 0, 0, true, ?, ?, ?)", i, i, i, i);
+        }
+        jdbcTemplate.update("insert into compilations(title, pinned) values ('Первая', true), ('Вторая', true)");
+        jdbcTemplate.update("insert into compilations_events(compilation_id, event_id) " +
+                "select 1 + g % 2, g from generate_series(1, ?) g", EVENTS);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void publicListCostsOneStatement() {
+        assertThat(statements(() -> eventService.findPublicEvents(null, null, null, null, null, false, null, 0, 1)))
+                .isEqualTo(1);
+        assertThat(statements(() -> eventService.findPublicEvents(null, null, null, null, null, false, null, 0,
+                EVENTS))).isEqualTo(1);
+    }
+
+    @Test
+    void adminListFetchesAssociationsInOneStatement() {
+        assertThat(statements(() -> eventService.findAdminEvents(null, null, null, null, null, 0, 1))).isEqualTo(1);
+        assertThat(statements(() -> eventService.findAdminEvents(null, null, null, null, null, 0, EVENTS)))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void userListCostsOneStatement() {
+        assertThat(statements(() -> eventService.findByUserIdAfter(1, "", EVENTS))).isEqualTo(1);
+    }
+
+    @Test
+    void eventDetailsCostOneStatement() {
+        assertThat(statements(() -> eventService.findByIdAndUserId(1, 1))).isEqualTo(1);
+    }
+
+    @Test
+    void compilationPageDoesNotDependOnEventCount() {
+        long onePage = statements(() -> compilationService.getCompilations(true, 0, 1));
+        long fullPage = statements(() -> compilationService.getCompilations(true, 0, 10));
+
+        assertThat(fullPage).isEqualTo(onePage).isEqualTo(2);
+        assertThat(statements(() -> compilationService.getCompilationById(1))).isEqualTo(1);
+    }
+
+    private long statements(Runnable read) {
+        statistics.clear();
+        read.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
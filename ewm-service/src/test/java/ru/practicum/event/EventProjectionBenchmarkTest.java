@@ -0,0 +1,101 @@
+package ru.practicum.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.PostgresTest;
+import ru.practicum.event.dto.EventShortDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер пропускной способности кратких списков событий: проекция {@link EventShortView} против загрузки сущностей
+ * с графом категории и инициатора и последующего маппинга. Обе выборки читают одни и те же страницы по 100 событий.
+ * Запускается только в профиле benchmark: mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventProjectionBenchmarkTest extends PostgresTest {
+    private static final int EVENTS = 100_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<List<Integer>> pages = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+        jdbcTemplate.update("insert into users(name, email) select 'user' || g, 'user' || g || '@mail.ru' " +
+                "from generate_series(1, 1000) g");
+        jdbcTemplate.update("insert into categories(name) select 'category' || g from generate_series(1, 50) g");
+        jdbcTemplate.update("insert into events(title, annotation, description, event_date, created_on, state, paid, " +
+                "views, confirmed_requests, participant_limit, request_moderation, category_id, initiator_id) " +
+                "select 'Событие ' || g, 'Аннотация события ' || g, repeat('Описание события ', 20), " +
+                "now() + interval '1 minute' * g, now(), 'PUBLISHED', g % 2 = 0, g % 1000, 0, 0, true, " +
+                "1 + g % 50, 1 + g % 1000 from generate_series(1, ?) g", EVENTS);
+        jdbcTemplate.execute("analyze");
+        for (int from = 1; from <= EVENTS; from += PAGE_SIZE) {
+            pages.add(IntStream.range(from, from + PAGE_SIZE).boxed().collect(Collectors.toList()));
+        }
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+    }
+
+    @Test
+    void projectionThroughput() {
+        Function<List<Integer>, List<EventShortDto>> projection =
+                ids -> EventMapper.toEventShortDto(eventRepository.findShortViews(ids));
+        Function<List<Integer>, List<EventShortDto>> entities = ids -> eventRepository.findAllByIdIn(ids).stream()
+                .map(EventMapper::toEventShortDto)
+                .collect(Collectors.toList());
+
+        assertThat(sorted(projection.apply(pages.get(0)))).isEqualTo(sorted(entities.apply(pages.get(0))));
+
+        measure("сущности с графом", entities);
+        double projectionRate = measure("проекция EventShortView", projection);
+        double entityRate = measure("сущности с графом", entities);
+
+        assertThat(projectionRate).isGreaterThan(entityRate);
+    }
+
+    /** Событий в секунду по лучшему из нескольких проходов по всем страницам */
+    private double measure(String name, Function<List<Integer>, List<EventShortDto>> read) {
+        double best = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            int rows = 0;
+            for (List<Integer> page : pages) {
+                rows += read.apply(page).size();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            best = Math.max(best, rows / seconds);
+        }
+        log.info("Краткий список, {}: {} событий в секунду, страницы по {}", name, Math.round(best), PAGE_SIZE);
+        return best;
+    }
+
+    private static List<EventShortDto> sorted(List<EventShortDto> events) {
+        return events.stream().sorted(Comparator.comparing(EventShortDto::getId)).collect(Collectors.toList());
+    }
+}
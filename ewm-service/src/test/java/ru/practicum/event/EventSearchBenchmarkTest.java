@@ -0,0 +1,106 @@
+package ru.practicum.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.PostgresTest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер текстового поиска на миллионе событий: запрос через {@link EventSearchRepository} (ILIKE с индексами pg_trgm)
+ * против прежнего upper(...) like по тем же данным. Редкая подстрока встречается в одном событии,
+ * частая — в каждом двадцатом. Прежний запрос просматривает всю таблицу, поэтому замеряется меньшее число раз.
+ * Запускается только в профиле benchmark: mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventSearchBenchmarkTest extends PostgresTest {
+    private static final int EVENTS = 1_000_000;
+    private static final int LEGACY_RUNS = 5;
+    private static final int MEASURED_RUNS = 20;
+    private static final long TARGET_P95_MILLIS = 100;
+    private static final String LEGACY_SQL = "select e.id from events e " +
+            "where upper(e.annotation) like upper('%' || ? || '%') or upper(e.description) like upper('%' || ? || '%') " +
+            "order by e.event_date desc, e.id desc limit 10";
+
+    @Autowired
+    private EventSearchRepository eventSearchRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+        jdbcTemplate.update("insert into users(name, email) values ('user', 'user@mail.ru')");
+        jdbcTemplate.update("insert into categories(name) values ('Разное')");
+        jdbcTemplate.update("insert into events(title, annotation, description, event_date, state, paid, views, " +
+                "confirmed_requests, participant_limit, category_id, initiator_id) " +
+                "select 'Событие ' || g, " +
+                "(array['Концерт', 'Выставка', 'Лекция', 'Спектакль', 'Фестиваль', 'Мастер-класс', 'Экскурсия', " +
+                "'Кинопоказ', 'Встреча', 'Турнир', 'Ярмарка', 'Квиз', 'Семинар', 'Вечеринка', 'Презентация', " +
+                "'Пикник', 'Забег', 'Конференция', 'Чтения', 'Показ'])[g % 20 + 1] || ' номер ' || g, " +
+                "'Подробности события ' || md5(g::text) || ', начало в ' || g % 24 || ' часов, вход свободный', " +
+                "timestamp '2030-01-01' + g * interval '1 minute', " +
+                "case when g % 10 = 0 then 'PENDING' else 'PUBLISHED' end, g % 2 = 0, 0, 0, 0, 1, 1 " +
+                "from generate_series(1, ?) g", EVENTS);
+        jdbcTemplate.execute("analyze events");
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+    }
+
+    @Test
+    void rareSubstringMeetsLatencyTarget() {
+        String text = jdbcTemplate.queryForObject("select substr(md5('123457'), 5, 12)", String.class);
+
+        long legacy = p95("редкая, upper like", LEGACY_RUNS,
+                () -> jdbcTemplate.queryForList(LEGACY_SQL, Integer.class, text, text));
+        long current = p95("редкая, ilike + pg_trgm", MEASURED_RUNS, () -> search(text));
+
+        assertThat(search(text.toUpperCase())).containsExactly(123457);
+        assertThat(current).isLessThanOrEqualTo(TARGET_P95_MILLIS).isLessThan(legacy);
+    }
+
+    @Test
+    void frequentSubstringMeetsLatencyTarget() {
+        p95("частая, upper like", LEGACY_RUNS,
+                () -> jdbcTemplate.queryForList(LEGACY_SQL, Integer.class, "выставка", "выставка"));
+        long current = p95("частая, ilike + pg_trgm", MEASURED_RUNS, () -> search("выставка"));
+
+        assertThat(search("ВЫСТАВКА")).hasSize(10);
+        assertThat(current).isLessThanOrEqualTo(TARGET_P95_MILLIS);
+    }
+
+    private List<Integer> search(String text) {
+        return eventSearchRepository.searchPublicEventIds(text, null, null, null, null, false, null,
+                EventSort.EVENT_DATE, null, 0, 10);
+    }
+
+    private long p95(String name, int runs, Supplier<List<Integer>> query) {
+        query.get();
+        long[] durations = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            query.get();
+            durations[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(durations);
+        long p50 = durations[runs / 2] / 1_000_000;
+        long p95 = durations[(int) Math.ceil(runs * 0.95) - 1] / 1_000_000;
+        log.info("Поиск по {} событиям, {}: p50 {} мс, p95 {} мс", EVENTS, name, p50, p95);
+        return p95;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.PostgresTest;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSearchRepositoryImplTest extends PostgresTest {
+    @Autowired
+    private EventSearchRepository eventSearchRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+        jdbcTemplate.update("insert into users(name, email) values ('user', 'user@mail.ru')");
+        jdbcTemplate.update("insert into categories(name) values ('Концерты')");
+        insertEvent(1, "Большой концерт в парке", "Играет оркестр", EventState.PUBLISHED, 1);
+        insertEvent(2, "Лекция", "После лекции — КОНЦЕРТНАЯ программа", EventState.PUBLISHED, 2);
+        insertEvent(3, "Концерт", "Еще не опубликован", EventState.PENDING, 3);
+        insertEvent(4, "The Show", "Music and light", EventState.PUBLISHED, 4);
+    }
+
+    @Test
+    void substringIsFoundCaseInsensitivelyInAnnotationOrDescription() {
+        assertThat(search("КОНЦЕРТ", EventSort.EVENT_DATE)).containsExactly(2, 1);
+        assertThat(search("церт", EventSort.EVENT_DATE)).containsExactly(2, 1);
+    }
+
+    @Test
+    void unpublishedEventsAreNotFound() {
+        assertThat(search("опубликован", EventSort.EVENT_DATE)).isEmpty();
+    }
+
+    @Test
+    void stopWordOnlyTextStillMatches() {
+        assertThat(search("the", EventSort.RELEVANCE)).containsExactly(4);
+        assertThat(search(" в ", EventSort.RELEVANCE)).containsExactly(1);
+    }
+
+    @Test
+    void relevanceIsOnlyUsedWhenRequested() {
+        assertThat(EventSort.from(null)).isEqualTo(EventSort.EVENT_DATE);
+        assertThat(EventSort.from("relevance")).isEqualTo(EventSort.RELEVANCE);
+    }
+
+    private List<Integer> search(String text, EventSort sort) {
+        return eventSearchRepository.searchPublicEventIds(text, null, null, null, null, false, null, sort, null, 0,
+                10);
+    }
+
+    private void insertEvent(int id, String annotation, String description, EventState state, int daysAhead) {
+        jdbcTemplate.update("insert into events(id, title, annotation, description, event_date, state, paid, " +
+                        "views, confirmed_requests, participant_limit, category_id, initiator_id) " +
+                        "values (?, 'Событие', ?, ?, ?, ?, false, 0, 0, 0, 1, 1)",
+                id, annotation, description, Timestamp.valueOf(LocalDateTime.now().plusDays(daysAhead)), state.name());
+    }
+}
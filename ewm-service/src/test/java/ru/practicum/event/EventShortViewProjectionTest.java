@@ -0,0 +1,57 @@
+package ru.practicum.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.PostgresTest;
+import ru.practicum.event.dto.EventShortDto;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Краткий список по проекции {@link EventShortView} совпадает с маппингом сущностей.
+ * Скорость обоих способов сравнивает EventProjectionBenchmarkTest.
+ */
+class EventShortViewProjectionTest extends PostgresTest {
+    private static final int EVENTS = 30;
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+        jdbcTemplate.update("insert into users(name, email) select 'user' || g, 'user' || g || '@mail.ru' " +
+                "from generate_series(1, 5) g");
+        jdbcTemplate.update("insert into categories(name) select 'category' || g from generate_series(1, 3) g");
+        jdbcTemplate.update("insert into events(title, annotation, description, event_date, created_on, state, paid, " +
+                "views, confirmed_requests, participant_limit, request_moderation, category_id, initiator_id) " +
+                "select 'Событие ' || g, 'Аннотация события ' || g, 'Описание события', " +
+                "now() + interval '1 minute' * g, now(), 'PUBLISHED', g % 2 = 0, g, g % 4, 0, true, " +
+                "1 + g % 3, 1 + g % 5 from generate_series(1, ?) g", EVENTS);
+    }
+
+    @Test
+    void projectionMatchesEntityMapping() {
+        List<Integer> ids = IntStream.rangeClosed(1, EVENTS).boxed().collect(Collectors.toList());
+
+        List<EventShortDto> projected = EventMapper.toEventShortDto(eventRepository.findShortViews(ids));
+        List<EventShortDto> mapped = eventRepository.findAllByIdIn(ids).stream()
+                .map(EventMapper::toEventShortDto)
+                .collect(Collectors.toList());
+
+        assertThat(sorted(projected)).hasSize(EVENTS).isEqualTo(sorted(mapped));
+    }
+
+    private static List<EventShortDto> sorted(List<EventShortDto> events) {
+        return events.stream().sorted(Comparator.comparing(EventShortDto::getId)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import ru.practicum.event.cache.EventDetailsCache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventViewCounterTest {
+    private static final int THREADS = 4;
+    private static final int VIEWS_PER_THREAD = 200_000;
+
+    private final AtomicLong stored = new AtomicLong();
+
+    @Test
+    void concurrentFlushesLoseNoViews() throws Exception {
+        EventViewCounter counter = new EventViewCounter(storingJdbcTemplate(),
+                new EventDetailsCache(new SimpleMeterRegistry(), 100), new SimpleMeterRegistry(), Duration.ofHours(1));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> viewers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                viewers.add(executor.submit(() -> {
+                    for (int view = 0; view < VIEWS_PER_THREAD; view++) {
+                        counter.increment(view % 3);
+                    }
+                }));
+            }
+            while (viewers.stream().anyMatch(viewer -> !viewer.isDone())) {
+                counter.flush();
+            }
+            for (Future<?> viewer : viewers) {
+                viewer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        counter.flush();
+
+        assertThat(stored.get()).isEqualTo((long) THREADS * VIEWS_PER_THREAD);
+        assertThat(counter.pending(0)).isZero();
+    }
+
+    /** JdbcTemplate, который вместо UPDATE складывает переданные приросты просмотров */
+    private JdbcTemplate storingJdbcTemplate() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.createArrayOf(eq("bigint"), any())).thenAnswer(invocation -> {
+            for (Object delta : (Object[]) invocation.getArgument(1)) {
+                stored.addAndGet((Long) delta);
+            }
+            return null;
+        });
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenAnswer(invocation -> {
+            ((PreparedStatementCreator) invocation.getArgument(0)).createPreparedStatement(connection);
+            return 1;
+        });
+        return jdbcTemplate;
+    }
+}
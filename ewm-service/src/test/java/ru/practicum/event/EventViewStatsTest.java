@@ -0,0 +1,75 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.client.ClientStatsGet;
+import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.EventShortDto;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventViewStatsTest {
+    private final ClientStatsGet clientStatsGet = mock(ClientStatsGet.class);
+    private final EventViewCounter eventViewCounter = mock(EventViewCounter.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EventViewStats eventViewStats = new EventViewStats(clientStatsGet, eventViewCounter, meterRegistry,
+            Duration.ofMinutes(1), 100, false);
+
+    @Test
+    void pageViewsComeFromOneStatsRequest() {
+        when(clientStatsGet.getStats(any(), any(), any(), anyBoolean())).thenReturn(List.of(
+                EndpointHitStatDto.builder().app("ewm-main-service").uri("/events/1").hits(42).build()));
+        EventShortDto first = EventShortDto.builder().id(1).views(10).build();
+        EventShortDto second = EventShortDto.builder().id(2).views(5).build();
+
+        eventViewStats.withShortViews(List.of(first, second));
+
+        assertThat(first.getViews()).isEqualTo(42);
+        assertThat(second.getViews()).isZero();
+        verify(clientStatsGet, times(1)).getStats(any(), any(),
+                argThat((Collection<String> uris) -> uris.containsAll(List.of("/events/1", "/events/2"))),
+                anyBoolean());
+    }
+
+    @Test
+    void cachedViewsAreNotRequestedAgain() {
+        when(clientStatsGet.getStats(any(), any(), any(), anyBoolean())).thenReturn(List.of(
+                EndpointHitStatDto.builder().app("ewm-main-service").uri("/events/1").hits(42).build()));
+        EventFullDto fullDto = EventFullDto.builder().id(1).views(10).build();
+
+        eventViewStats.withShortViews(List.of(EventShortDto.builder().id(1).views(10).build()));
+        eventViewStats.withFullViews(fullDto);
+
+        assertThat(fullDto.getViews()).isEqualTo(42);
+        verify(clientStatsGet, times(1)).getStats(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void storedPlusPendingViewsAreShownWhenStatsServerFails() {
+        when(clientStatsGet.getStats(any(), any(), any(), anyBoolean()))
+                .thenThrow(new ResourceAccessException("timeout"));
+        when(eventViewCounter.pending(1)).thenReturn(3L);
+        EventShortDto shortDto = EventShortDto.builder().id(1).views(10).build();
+        EventFullDto fullDto = EventFullDto.builder().id(1).views(10).build();
+
+        eventViewStats.withShortViews(List.of(shortDto));
+        eventViewStats.withFullViews(fullDto);
+
+        assertThat(shortDto.getViews()).isEqualTo(13);
+        assertThat(fullDto.getViews()).isEqualTo(13);
+        assertThat(meterRegistry.counter("ewm.views.stats.fallback").count()).isEqualTo(2);
+    }
+}
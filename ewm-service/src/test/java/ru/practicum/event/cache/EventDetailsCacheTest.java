@@ -0,0 +1,127 @@
+package ru.practicum.event.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.event.dto.EventFullDto;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Загрузка, пересекшаяся с инвалидацией или сбросом просмотров, не оставляет в кэше устаревший снимок */
+class EventDetailsCacheTest {
+    private final EventDetailsCache cache = new EventDetailsCache(new SimpleMeterRegistry(), 100);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void loadedEventIsCached() {
+        cache.get(1, loader("Старое", 10));
+
+        EventFullDto event = cache.get(1, loader("Новое", 20));
+
+        assertThat(loads).hasValue(1);
+        assertThat(event.getTitle()).isEqualTo("Старое");
+    }
+
+    @Test
+    void invalidationDuringLoadIsNotOverwritten() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Future<EventFullDto> stale = executor.submit(() -> cache.get(1, () -> {
+            EventFullDto event = loader("Старое", 10).get();
+            loading.countDown();
+            await(invalidated);
+            return event;
+        }));
+
+        await(loading);
+        cache.invalidate(1);
+        invalidated.countDown();
+
+        assertThat(stale.get(5, TimeUnit.SECONDS).getTitle()).isEqualTo("Старое");
+        assertThat(cache.get(1, loader("Новое", 10)).getTitle()).isEqualTo("Новое");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void flushDuringLoadDoesNotLoseViews() {
+        cache.get(1, () -> {
+            EventFullDto event = loader("Событие", 10).get();
+            cache.addStoredViews(1, 5);
+            return event;
+        });
+
+        assertThat(cache.get(1, loader("Событие", 15)).getViews()).isEqualTo(15);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadBeforeFlushCommitIsNotCached() {
+        cache.addStoredViews(1, 5);
+        cache.get(1, () -> {
+            EventFullDto event = loader("Событие", 10).get();
+            cache.storedViewsWritten(List.of(1));
+            return event;
+        });
+
+        assertThat(cache.get(1, loader("Событие", 15)).getViews()).isEqualTo(15);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void flushAfterPutIsAddedToCachedViews() {
+        cache.get(1, loader("Событие", 10));
+        cache.addStoredViews(1, 5);
+        cache.storedViewsWritten(List.of(1));
+
+        assertThat(cache.get(1, loader("Событие", 15)).getViews()).isEqualTo(15);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidationOfOtherEventKeepsLoad() {
+        cache.get(1, () -> {
+            EventFullDto event = loader("Событие", 10).get();
+            cache.invalidate(2);
+            return event;
+        });
+
+        cache.get(1, loader("Событие", 10));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    private Supplier<EventFullDto> loader(String title, int views) {
+        return () -> {
+            loads.incrementAndGet();
+            return EventFullDto.builder()
+                    .id(1)
+                    .title(title)
+                    .views(views)
+                    .build();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.event.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.PostgresTest;
+import ru.practicum.event.EventSearchRepository;
+import ru.practicum.event.EventSort;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Поиск среди кандидатов индекса возвращает те же события, что и поиск по всей таблице */
+@TestPropertySource(properties = "explore-with-me.search.index.enabled=true")
+class EventSearchIndexTest extends PostgresTest {
+    private static final String[] TEXTS = {"КОНЦЕРТ", "церт", "the", "в п", "ке", "100%", "0_%", "a\\_b", "джаз",
+            "Оркестр играет", "нет такого"};
+
+    @Autowired
+    private EventSearchIndex eventSearchIndex;
+    @Autowired
+    private EventSearchRepository eventSearchRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("truncate users, categories, events restart identity cascade");
+        jdbcTemplate.update("insert into users(name, email) values ('user', 'user@mail.ru')");
+        jdbcTemplate.update("insert into categories(name) values ('Концерты'), ('Лекции')");
+        insertEvent("Большой концерт в парке", "Оркестр играет 100% хитов", "PUBLISHED", 1, true);
+        insertEvent("Лекция о джазе", "После лекции — КОНЦЕРТНАЯ программа", "PUBLISHED", 2, false);
+        insertEvent("Концерт", "Еще не опубликован", "PENDING", 1, false);
+        insertEvent("The Show", "Music and light, скидка 10% и a_b", "PUBLISHED", 1, false);
+        insertEvent("Джаз в клубе", "Вход свободный", "PUBLISHED", 2, true);
+        eventSearchIndex.rebuild();
+    }
+
+    @Test
+    void candidatesGiveSameResultsAsFullSearch() {
+        for (String text : TEXTS) {
+            assertSameResults(text, null, null);
+            assertSameResults(text, List.of(1), null);
+            assertSameResults(text, null, true);
+        }
+    }
+
+    @Test
+    void descriptionIsIndexedLikeInDatabase() {
+        assertThat(eventSearchIndex.candidates("светлая", null, null)).isEmpty();
+        assertThat(eventSearchIndex.candidates("СВОБОДНЫЙ", null, null)).containsExactly(5);
+    }
+
+    @Test
+    void shortOrEscapedTextIsNotNarrowed() {
+        assertThat(eventSearchIndex.candidates("ке", null, null)).isNull();
+        assertThat(eventSearchIndex.candidates("a\\_b", null, null)).isNull();
+    }
+
+    private void assertSameResults(String text, List<Integer> categories, Boolean paid) {
+        List<Integer> candidates = eventSearchIndex.candidates(text, categories, paid);
+        assertThat(search(text, candidates, categories, paid))
+                .as("text=%s categories=%s paid=%s", text, categories, paid)
+                .isEqualTo(search(text, null, categories, paid));
+    }
+
+    private List<Integer> search(String text, List<Integer> candidates, List<Integer> categories, Boolean paid) {
+        return eventSearchRepository.searchPublicEventIds(text, candidates, paid, null, null, false, categories,
+                EventSort.EVENT_DATE, null, 0, 10);
+    }
+
+    private void insertEvent(String annotation, String description, String state, int categoryId, boolean paid) {
+        int id = jdbcTemplate.queryForObject("select count(*) from events", Integer.class) + 1;
+        jdbcTemplate.update("insert into events(id, title, annotation, description, event_date, state, paid, " +
+                        "views, confirmed_requests, participant_limit, category_id, initiator_id) " +
+                        "values (?, 'Событие', ?, ?, ?, ?, ?, 0, 0, 0, ?, 1)",
+                id, annotation, description, Timestamp.valueOf(LocalDateTime.now().plusDays(id)), state, paid,
+                categoryId);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.version;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.PostgresTest;
+import ru.practicum.client.ClientStatsPost;
+import ru.practicum.event.Event;
+import ru.practicum.event.EventRepository;
+import ru.practicum.event.EventViewCounter;
+import ru.practicum.event.cache.EventDetailsCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** Условные GET: версия из updated_on, 304 только для существующего содержимого, просмотр учитывается и при 304 */
+@AutoConfigureMockMvc
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "stats.server.url=http://localhost:9090")
+class ContentVersionsTest extends PostgresTest {
+    private static final int PUBLISHED = 1;
+    private static final int PENDING = 2;
+    private static final int MISSING = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private EventViewCounter eventViewCounter;
+    @Autowired
+    private EventDetailsCache eventDetailsCache;
+    @MockBean
+    private ClientStatsPost clientStatsPost;
+
+    @BeforeEach
+    void seed() {
+        eventViewCounter.flush();
+        eventDetailsCache.invalidateAll();
+        jdbcTemplate.execute("truncate users, categories, locations, events, compilations, compilations_events " +
+                "restart identity cascade");
+        jdbcTemplate.update("insert into users(name, email) values ('user', 'user@mail.ru')");
+        jdbcTemplate.update("insert into categories(name) values ('Концерты')");
+        jdbcTemplate.update("insert into events(title, annotation, description, event_date, created_on, state, paid, " +
+                "views, confirmed_requests, participant_limit, request_moderation, category_id, initiator_id) " +
+                "select 'Событие ' || g, 'Аннотация', 'Описание', now() + interval '1 day', now(), " +
+                "case when g = 1 then 'PUBLISHED' else 'PENDING' end, false, 0, 0, 0, true, 1, 1 " +
+                "from generate_series(1, 2) g");
+        jdbcTemplate.update("insert into compilations(title, pinned) values ('Подборка', false)");
+        jdbcTemplate.update("insert into compilations_events(compilation_id, event_id) values (1, 1)");
+    }
+
+    @Test
+    void matchingEtagReturnsNotModifiedAndCountsView() throws Exception {
+        String etag = etag("/events/" + PUBLISHED);
+        assertThat(eventViewCounter.pending(PUBLISHED)).isEqualTo(1);
+
+        mockMvc.perform(get("/events/" + PUBLISHED).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        assertThat(eventViewCounter.pending(PUBLISHED)).isEqualTo(2);
+        verify(clientStatsPost, times(2)).addStatInfo(any());
+    }
+
+    @Test
+    void eventChangeChangesEtagButViewsFlushDoesNot() throws Exception {
+        String etag = etag("/events/" + PUBLISHED);
+
+        eventViewCounter.flush();
+        mockMvc.perform(get("/events/" + PUBLISHED).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Event event = eventRepository.findById(PUBLISHED).orElseThrow();
+            event.setTitle("Новое название");
+        });
+        mockMvc.perform(get("/events/" + PUBLISHED).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertThat(etag("/events/" + PUBLISHED)).isNotEqualTo(etag);
+    }
+
+    @Test
+    void etagSurvivesRestartOfVersions() throws Exception {
+        String etag = etag("/events/" + PUBLISHED);
+
+        ContentVersions restarted = new ContentVersions(jdbcTemplate);
+
+        assertThat(restarted.event(PUBLISHED)).hasValueSatisfying(version ->
+                assertThat(version.getEtag()).isEqualTo(etag));
+    }
+
+    @Test
+    void missingOrUnpublishedEventIsNotFoundWithoutValidators() throws Exception {
+        for (int id : new int[]{MISSING, PENDING}) {
+            mockMvc.perform(get("/events/" + id).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                    .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+            assertThat(eventViewCounter.pending(id)).isZero();
+        }
+        verify(clientStatsPost, never()).addStatInfo(any());
+    }
+
+    @Test
+    void compilationFollowsItsEvents() throws Exception {
+        String etag = etag("/compilations/1");
+        mockMvc.perform(get("/compilations/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Event event = eventRepository.findById(PUBLISHED).orElseThrow();
+            event.setAnnotation("Новая аннотация");
+        });
+
+        mockMvc.perform(get("/compilations/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void missingCompilationIsNotFoundWithoutValidators() throws Exception {
+        mockMvc.perform(get("/compilations/" + MISSING).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void deletedCompilationChangesListEtag() throws Exception {
+        jdbcTemplate.update("insert into compilations(title, pinned) values ('Вторая', false)");
+        String etag = etag("/compilations");
+
+        jdbcTemplate.update("delete from compilations where id = 2");
+
+        mockMvc.perform(get("/compilations").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private String etag(String uri) throws Exception {
+        String etag = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        return etag;
+    }
+}
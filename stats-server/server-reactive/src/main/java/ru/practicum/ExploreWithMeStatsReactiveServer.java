@@ -0,0 +1,11 @@
+package ru.practicum;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ExploreWithMeStatsReactiveServer {
+    public static void main(String[] args) {
+        SpringApplication.run(ExploreWithMeStatsReactiveServer.class, args);
+    }
+}
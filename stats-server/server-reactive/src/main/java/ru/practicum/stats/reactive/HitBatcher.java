@@ -0,0 +1,119 @@
+package ru.practicum.stats.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import ru.practicum.dto.EndpointHitDto;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Неблокирующая пакетная запись хитов.
+ * <p>
+ * Хиты складываются в ограниченную очередь и пишутся пачками до stats.reactive.batch-size штук
+ * или раз в stats.reactive.batch-delay. Ответ на POST /hit уходит после фиксации пачки.
+ * Если очередь заполнена, запрос сразу получает 503, а не занимает поток ожиданием.
+ * Посетители записанной пачки передаются в {@link ReactiveUniqueVisitorTracker}.
+ */
+@Slf4j
+@Component
+public class HitBatcher {
+    private final ReactiveEndpointHitRepository repository;
+    private final ReactiveUniqueVisitorTracker visitorTracker;
+    private final int batchSize;
+    private final Duration batchDelay;
+    private final int insertConcurrency;
+    private final int maxPendingBatches;
+    private final Sinks.Many<PendingHit> sink;
+    private Disposable subscription;
+
+    public HitBatcher(ReactiveEndpointHitRepository repository,
+                      ReactiveUniqueVisitorTracker visitorTracker,
+                      @Value("${stats.reactive.batch-size:500}") int batchSize,
+                      @Value("${stats.reactive.batch-delay:PT0.02S}") Duration batchDelay,
+                      @Value("${stats.reactive.queue-capacity:65536}") int queueCapacity,
+                      @Value("${stats.reactive.insert-concurrency:4}") int insertConcurrency) {
+        this.repository = repository;
+        this.visitorTracker = visitorTracker;
+        this.batchSize = batchSize;
+        this.batchDelay = batchDelay;
+        this.insertConcurrency = insertConcurrency;
+        this.maxPendingBatches = Math.max(1, queueCapacity / batchSize);
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingHit>get(queueCapacity).get());
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = sink.asFlux()
+                .bufferTimeout(batchSize, batchDelay)
+                // bufferTimeout выдает пачку по таймеру и без запроса снизу; пачки, которые еще некому писать,
+                // ждут в ограниченном буфере, а при его переполнении хиты пачки получают 503
+                .onBackpressureBuffer(maxPendingBatches, this::reject, BufferOverflowStrategy.DROP_LATEST)
+                .flatMap(this::write, insertConcurrency)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        sink.emitComplete(Sinks.EmitFailureHandler.FAIL_FAST);
+        subscription.dispose();
+    }
+
+    public Mono<EndpointHitDto> add(EndpointHitDto endpointHitDto) {
+        return Mono.defer(() -> {
+            PendingHit pending = new PendingHit(endpointHitDto);
+            Sinks.EmitResult result;
+            synchronized (sink) {
+                result = sink.tryEmitNext(pending);
+            }
+            if (result.isFailure()) {
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Очередь записи хитов переполнена"));
+            }
+            return pending.done.asMono().thenReturn(endpointHitDto);
+        });
+    }
+
+    private void reject(List<PendingHit> batch) {
+        log.warn("Очередь записи хитов переполнена, пачка из {} хитов отклонена", batch.size());
+        ResponseStatusException error = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Очередь записи хитов переполнена");
+        batch.forEach(pending -> pending.done.tryEmitError(error));
+    }
+
+    private Mono<Void> write(List<PendingHit> batch) {
+        List<EndpointHitDto> hits = batch.stream().map(pending -> pending.hit).collect(Collectors.toList());
+        return repository.insertBatch(hits)
+                .doOnSuccess(count -> batch.forEach(pending -> {
+                    visitorTracker.record(pending.hit);
+                    pending.done.tryEmitEmpty();
+                }))
+                .doOnError(e -> {
+                    log.error("Не удалось записать пачку из {} хитов", batch.size(), e);
+                    batch.forEach(pending -> pending.done.tryEmitError(e));
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private static final class PendingHit {
+        private final EndpointHitDto hit;
+        private final Sinks.Empty<Void> done = Sinks.empty();
+
+        private PendingHit(EndpointHitDto hit) {
+            this.hit = hit;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.stats.reactive;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.EndpointHitStatDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * /hit и /stats на WebFlux. Прием хита следует тем же правилам, что EndpointHitServiceImpl.addHit сервера
+ * Spring MVC: проверка count, weight и длины hitId с ответом 400, подавление повторных просмотров
+ * по stats.repeat-view.window, заявка hitId в общем реестре endpoint_hit_id (в пачке, см.
+ * {@link ReactiveEndpointHitRepository#insertBatch}) и учет уникальных посетителей.
+ * <p>
+ * Отличия от сервера Spring MVC:
+ * <ul>
+ *     <li>нет фильтра Блума перед реестром hitId: повтор отсекается той же вставкой в endpoint_hit_id,
+ *     но в ответе возвращается присланный хит, а не сохраненный ранее;</li>
+ *     <li>/stats читает только endpoint_hit: холодное хранилище, /stats/timeseries, аналитика, импорт
+ *     и профиль memory есть только на сервере Spring MVC;</li>
+ *     <li>вместо пулов-перегородок очередь HitBatcher: при ее переполнении /hit сразу отвечает 503.</li>
+ * </ul>
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveEndpointHitController {
+    private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /** Длина hitId ограничена размером столбца hit_id */
+    private static final int MAX_HIT_ID_LENGTH = 64;
+
+    private final HitBatcher hitBatcher;
+    private final ReactiveEndpointHitRepository repository;
+    private final RepeatViewFilter repeatViewFilter;
+
+    /** Добавление новой записи о хите на эндпоинт */
+    @PostMapping("/hit")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<EndpointHitDto> addHit(@RequestBody EndpointHitDto endpointHitDto) {
+        log.debug("Запрос на добавление хита {}", endpointHitDto.getUri());
+        if (endpointHitDto.getCount() != null && endpointHitDto.getCount() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Число хитов в записи должно быть положительным");
+        }
+        if (endpointHitDto.getWeight() != null && !(endpointHitDto.getWeight() >= 1)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Вес записи должен быть не меньше 1");
+        }
+        if (endpointHitDto.getHitId() != null && endpointHitDto.getHitId().length() > MAX_HIT_ID_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "hitId не должен быть длиннее " + MAX_HIT_ID_LENGTH + " символов");
+        }
+        // некорректная дата иначе сорвала бы запись всей пачки, в которую попал хит
+        parse(endpointHitDto.getTimestamp());
+        if (!repeatViewFilter.shouldCount(endpointHitDto)) {
+            log.debug("Повторный просмотр {} с IP {} не учтен", endpointHitDto.getUri(), endpointHitDto.getIp());
+            return Mono.just(endpointHitDto);
+        }
+        return hitBatcher.add(endpointHitDto);
+    }
+
+    /** Получение статистики по хитам на эндпоинты */
+    @GetMapping("/stats")
+    public Flux<EndpointHitStatDto> getStates(@RequestParam(name = "start") String start,
+                                              @RequestParam(name = "end") String end,
+                                              @RequestParam(name = "uris", required = false) String[] uris,
+                                              @RequestParam(name = "unique", defaultValue = "false") boolean unique) {
+        LocalDateTime startDate = parse(start);
+        LocalDateTime endDate = parse(end);
+        if (startDate.isAfter(endDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Некорректные даты: начальная дата должна быть раньше конечной даты");
+        }
+        log.info("Получение статистики с {} по {} с учетом URI={}, unique={}", start, end, uris, unique);
+        return repository.getHits(startDate, endDate, uris, unique);
+    }
+
+    private static LocalDateTime parse(String date) {
+        if (date == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Дата не должна быть пустой");
+        }
+        try {
+            return LocalDateTime.parse(date, DF);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректная дата: " + date);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package ru.practicum.stats.reactive;
+
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.EndpointHitStatDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class ReactiveEndpointHitRepository {
+    private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Comparator<BucketKey> BUCKET_ORDER = Comparator.<BucketKey, String>comparing(key -> key.app)
+            .thenComparing(key -> key.uri)
+            .thenComparing(key -> key.bucket);
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Записывает пачку хитов одним пакетным INSERT и обновляет поминутную и почасовую агрегации в той же транзакции.
+     * Хиты с hitId сначала заявляются в реестре endpoint_hit_id, как и на сервере Spring MVC: повтор,
+     * уже записанный любым из серверов или раньше в этой же пачке, пропускается.
+     *
+     * @return число сохраненных хитов
+     */
+    public Mono<Integer> insertBatch(List<EndpointHitDto> hits) {
+        return claim(hits)
+                .flatMap(accepted -> accepted.isEmpty() ? Mono.just(0) : write(accepted))
+                .as(transactionalOperator::transactional);
+    }
+
+    /** Статистика хитов потоком строк, без сборки списка в памяти */
+    public Flux<EndpointHitStatDto> getHits(LocalDateTime start, LocalDateTime end, String[] uris, boolean unique) {
+        String sql = "select e.app, e.uri, " + (unique
+                ? "count(distinct e.ip) hits, cast(null as double precision) hits_error "
+                : "cast(round(sum(e.hit_count * e.weight)) as bigint) hits, " +
+                  "case when max(e.weight) > 1 then sqrt(sum(e.hit_count * e.weight * (e.weight - 1))) end hits_error ") +
+                "from endpoint_hit e " +
+                "where e.timestamp between :start and :end " +
+                (uris != null && uris.length > 0
+                        ? "and e.uri_hash in (select md5(u)::uuid from unnest(:uris) u) and e.uri = any(:uris) "
+                        : "") +
+                "group by e.app, e.uri " +
+                "order by hits desc";
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("start", start)
+                .bind("end", end);
+        if (uris != null && uris.length > 0) {
+            spec = spec.bind("uris", uris);
+        }
+        return spec.map((row, metadata) -> EndpointHitStatDto.builder()
+                        .app(row.get("app", String.class))
+                        .uri(row.get("uri", String.class))
+                        .hits(row.get("hits", Long.class).intValue())
+                        .hitsError(row.get("hits_error", Double.class))
+                        .build())
+                .all();
+    }
+
+    /**
+     * Заносит hitId пачки в endpoint_hit_id вставкой с on conflict do nothing и оставляет хиты без hitId
+     * и те, чей hitId заявлен этой вставкой. Идентификаторы вставляются в отсортированном порядке,
+     * чтобы пачки с общими hitId не блокировали друг друга по кругу.
+     */
+    private Mono<List<EndpointHitDto>> claim(List<EndpointHitDto> hits) {
+        String[] hitIds = hits.stream()
+                .map(EndpointHitDto::getHitId)
+                .filter(ReactiveEndpointHitRepository::hasHitId)
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+        if (hitIds.length == 0) {
+            return Mono.just(hits);
+        }
+        return databaseClient.sql("insert into endpoint_hit_id(hit_id) select unnest(cast(:hitIds as varchar[])) " +
+                        "on conflict (hit_id) do nothing returning hit_id")
+                .bind("hitIds", hitIds)
+                .map((row, metadata) -> row.get("hit_id", String.class))
+                .all()
+                .collect(Collectors.toSet())
+                .map(claimed -> hits.stream()
+                        .filter(hit -> !hasHitId(hit.getHitId()) || claimed.remove(hit.getHitId()))
+                        .collect(Collectors.toList()));
+    }
+
+    private Mono<Integer> write(List<EndpointHitDto> hits) {
+        Mono<Void> rollup = rollup("endpoint_hit_minute", groupByBucket(hits, ChronoUnit.MINUTES))
+                .then(rollup("endpoint_hit_hour", groupByBucket(hits, ChronoUnit.HOURS)));
+        return insert(hits).flatMap(count -> rollup.thenReturn(count));
+    }
+
+    private Mono<Integer> insert(List<EndpointHitDto> hits) {
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(
+                    "insert into endpoint_hit(app, ip, uri, timestamp, hit_id, hit_count, weight) " +
+                            "values ($1, $2, $3, $4, $5, $6, $7)");
+            for (int i = 0; i < hits.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                EndpointHitDto hit = hits.get(i);
+                bind(statement, 0, hit.getApp());
+                bind(statement, 1, hit.getIp());
+                bind(statement, 2, hit.getUri());
+                statement.bind(3, LocalDateTime.parse(hit.getTimestamp(), DF));
+                bind(statement, 4, hit.getHitId());
+                statement.bind(5, countOf(hit));
+                statement.bind(6, weightOf(hit));
+            }
+            return Flux.from(statement.execute()).flatMap(result -> Flux.from(result.getRowsUpdated()));
+        }).reduce(0, Integer::sum);
+    }
+
+    private static boolean hasHitId(String hitId) {
+        return hitId != null && !hitId.isBlank();
+    }
+
+    private static void bind(Statement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index, String.class);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private Mono<Void> rollup(String table, Map<BucketKey, Double> buckets) {
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement("insert into " + table + "(app, uri, bucket, hits) " +
+                    "values ($1, $2, $3, $4) " +
+                    "on conflict (app, uri_hash, bucket) do update set hits = " + table + ".hits + excluded.hits");
+            boolean first = true;
+            for (Map.Entry<BucketKey, Double> entry : buckets.entrySet()) {
+                if (!first) {
+                    statement.add();
+                }
+                first = false;
+                statement.bind(0, entry.getKey().app)
+                        .bind(1, entry.getKey().uri)
+                        .bind(2, entry.getKey().bucket)
+                        .bind(3, entry.getValue());
+            }
+            return Flux.from(statement.execute()).flatMap(result -> Flux.from(result.getRowsUpdated()));
+        }).then();
+    }
+
+    private static int countOf(EndpointHitDto hit) {
+        return hit.getCount() == null ? 1 : hit.getCount();
+    }
+
+    private static double weightOf(EndpointHitDto hit) {
+        return hit.getWeight() == null ? 1 : hit.getWeight();
+    }
+
+    /**
+     * Суммы хитов по корзинам в порядке (app, uri, bucket): пачки пишутся параллельно, и при одинаковом
+     * порядке обновления строк агрегаций их транзакции не блокируют друг друга по кругу.
+     */
+    private static Map<BucketKey, Double> groupByBucket(List<EndpointHitDto> hits, ChronoUnit unit) {
+        Map<BucketKey, Double> buckets = new TreeMap<>(BUCKET_ORDER);
+        for (EndpointHitDto hit : hits) {
+            LocalDateTime bucket = LocalDateTime.parse(hit.getTimestamp(), DF).truncatedTo(unit);
+            BucketKey key = new BucketKey(hit.getApp() == null ? "" : hit.getApp(),
+                    hit.getUri() == null ? "" : hit.getUri(), bucket);
+            buckets.merge(key, countOf(hit) * weightOf(hit), Double::sum);
+        }
+        return buckets;
+    }
+
+    private static final class BucketKey {
+        private final String app;
+        private final String uri;
+        private final LocalDateTime bucket;
+
+        private BucketKey(String app, String uri, LocalDateTime bucket) {
+            this.app = app;
+            this.uri = uri;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BucketKey)) return false;
+            BucketKey other = (BucketKey) o;
+            return app.equals(other.app) && uri.equals(other.uri) && bucket.equals(other.bucket);
+        }
+
+        @Override
+        public int hashCode() {
+            return (app.hashCode() * 31 + uri.hashCode()) * 31 + bucket.hashCode();
+        }
+    }
+}
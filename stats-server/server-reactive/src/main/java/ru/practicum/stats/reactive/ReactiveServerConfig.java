@@ -0,0 +1,18 @@
+package ru.practicum.stats.reactive;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Родительский модуль подключает spring-boot-starter-web, и без явной фабрики реактивный сервер
+ * поднялся бы на Tomcat. Для сравнения со стеком Spring MVC нужен Netty с его пулом event loop.
+ */
+@Configuration
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
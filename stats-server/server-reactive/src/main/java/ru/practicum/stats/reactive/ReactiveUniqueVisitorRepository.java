@@ -0,0 +1,118 @@
+package ru.practicum.stats.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Суточные множества посетителей в тех же таблицах, что у сервера Spring MVC: ip_dictionary,
+ * unique_visitors_app_daily и unique_visitors_uri_daily. Формат битмапов и порядок слияния совпадают
+ * с UniqueVisitorRepositoryImpl модуля server: строка читается с блокировкой, ключи обрабатываются
+ * в отсортированном порядке, поэтому оба сервера могут сбрасывать счетчики одновременно.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveUniqueVisitorRepository {
+    private static final Comparator<VisitorKey> KEY_ORDER = Comparator.comparing(VisitorKey::getApp)
+            .thenComparing(VisitorKey::getUri, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(VisitorKey::getDay);
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    public Mono<Void> merge(Map<VisitorKey, Set<String>> visitors) {
+        Set<String> ips = new HashSet<>();
+        visitors.values().forEach(ips::addAll);
+        List<VisitorKey> keys = new ArrayList<>(visitors.keySet());
+        keys.sort(KEY_ORDER);
+        return resolveIps(ips)
+                .flatMap(ids -> Flux.fromIterable(keys)
+                        .concatMap(key -> {
+                            RoaringBitmap added = new RoaringBitmap();
+                            for (String ip : visitors.get(key)) {
+                                added.add(ids.get(ip));
+                            }
+                            return mergeRow(key, added);
+                        })
+                        .then())
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Void> mergeRow(VisitorKey key, RoaringBitmap added) {
+        boolean byUri = key.getUri() != null;
+        String table = byUri ? "unique_visitors_uri_daily" : "unique_visitors_app_daily";
+        String match = byUri
+                ? "app = :app and uri_hash = md5(:uri)::uuid and uri = :uri and day = :day"
+                : "app = :app and day = :day";
+        DatabaseClient.GenericExecuteSpec create = databaseClient.sql(byUri
+                        ? "insert into unique_visitors_uri_daily(app, uri, day, visitors) values (:app, :uri, :day, :visitors) " +
+                          "on conflict (app, uri_hash, day) do nothing"
+                        : "insert into unique_visitors_app_daily(app, day, visitors) values (:app, :day, :visitors) " +
+                          "on conflict (app, day) do nothing")
+                .bind("visitors", serialize(new RoaringBitmap()));
+        DatabaseClient.GenericExecuteSpec select = databaseClient.sql("select visitors from " + table +
+                " where " + match + " for update");
+        return bindKey(create, key).then()
+                .then(bindKey(select, key).map((row, metadata) -> row.get("visitors", ByteBuffer.class)).one())
+                .flatMap(stored -> {
+                    RoaringBitmap bitmap = deserialize(stored);
+                    if (bitmap.contains(added)) {
+                        return Mono.empty();
+                    }
+                    bitmap.or(added);
+                    bitmap.runOptimize();
+                    return bindKey(databaseClient.sql("update " + table + " set visitors = :visitors where " + match)
+                            .bind("visitors", serialize(bitmap)), key).then();
+                });
+    }
+
+    /** Номера IP-адресов из словаря; недостающие адреса добавляются в словарь одной вставкой */
+    private Mono<Map<String, Integer>> resolveIps(Set<String> ips) {
+        String[] values = ips.stream().sorted().toArray(String[]::new);
+        return databaseClient.sql("insert into ip_dictionary(ip) select unnest(cast(:ips as varchar[])) " +
+                        "on conflict (ip) do nothing")
+                .bind("ips", values)
+                .then()
+                .then(databaseClient.sql("select id, ip from ip_dictionary where ip = any(cast(:ips as varchar[]))")
+                        .bind("ips", values)
+                        .map((row, metadata) -> Map.entry(row.get("ip", String.class), row.get("id", Integer.class)))
+                        .all()
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindKey(DatabaseClient.GenericExecuteSpec spec, VisitorKey key) {
+        spec = spec.bind("app", key.getApp()).bind("day", key.getDay());
+        return key.getUri() == null ? spec : spec.bind("uri", key.getUri());
+    }
+
+    private static ByteBuffer serialize(RoaringBitmap bitmap) {
+        ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+        bitmap.serialize(buffer);
+        return buffer.flip();
+    }
+
+    private static RoaringBitmap deserialize(ByteBuffer bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        try {
+            bitmap.deserialize(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Поврежден битмап посетителей", e);
+        }
+        return bitmap;
+    }
+}
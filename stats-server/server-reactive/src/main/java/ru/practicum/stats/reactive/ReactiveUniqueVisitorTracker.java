@@ -0,0 +1,103 @@
+package ru.practicum.stats.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.EndpointHitDto;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Накапливает IP-адреса посетителей записанных хитов и раз в stats.visitors.flush-interval сливает их
+ * в {@link ReactiveUniqueVisitorRepository}, как UniqueVisitorTracker сервера Spring MVC: хит учитывается
+ * в счетчике приложения и в счетчике своего URI. Без этого хиты, принятые реактивным сервером,
+ * не попадали бы в суточные счетчики посетителей.
+ */
+@Slf4j
+@Component
+public class ReactiveUniqueVisitorTracker {
+    private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ReactiveUniqueVisitorRepository repository;
+    private final Duration flushInterval;
+    private final ConcurrentHashMap<VisitorKey, Set<String>> pending = new ConcurrentHashMap<>();
+    private Disposable subscription;
+
+    public ReactiveUniqueVisitorTracker(ReactiveUniqueVisitorRepository repository,
+                                        @Value("${stats.visitors.flush-interval:PT10S}") Duration flushInterval) {
+        this.repository = repository;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush().onErrorResume(e -> {
+                    log.error("Ошибка сброса счетчиков уникальных посетителей", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscription.dispose();
+        try {
+            flush().block(flushInterval);
+        } catch (RuntimeException e) {
+            log.error("Ошибка сброса счетчиков уникальных посетителей", e);
+        }
+    }
+
+    public void record(EndpointHitDto hit) {
+        if (hit.getIp() == null || hit.getTimestamp() == null) {
+            return;
+        }
+        String app = hit.getApp() == null ? "" : hit.getApp();
+        LocalDate day = LocalDateTime.parse(hit.getTimestamp(), DF).toLocalDate();
+        add(new VisitorKey(app, null, day), hit.getIp());
+        add(new VisitorKey(app, hit.getUri() == null ? "" : hit.getUri(), day), hit.getIp());
+    }
+
+    /** Сливает накопленные адреса в хранилище; при ошибке они возвращаются в очередь */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            if (pending.isEmpty()) {
+                return Mono.empty();
+            }
+            Map<VisitorKey, Set<String>> batch = new HashMap<>();
+            for (VisitorKey key : pending.keySet()) {
+                Set<String> ips = pending.remove(key);
+                if (ips != null) {
+                    batch.put(key, ips);
+                }
+            }
+            return repository.merge(batch)
+                    .doOnSuccess(ignored -> log.debug("Сброшены счетчики уникальных посетителей: {} записей", batch.size()))
+                    .doOnError(e -> batch.forEach((key, ips) -> ips.forEach(ip -> add(key, ip))));
+        });
+    }
+
+    private void add(VisitorKey key, String ip) {
+        // compute держит блокировку ключа, поэтому адрес не потеряется при одновременном сбросе
+        pending.compute(key, (k, ips) -> {
+            Set<String> result = ips == null ? new HashSet<>() : ips;
+            result.add(ip);
+            return result;
+        });
+    }
+}
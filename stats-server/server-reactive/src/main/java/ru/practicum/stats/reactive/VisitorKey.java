@@ -0,0 +1,13 @@
+package ru.practicum.stats.reactive;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/** Счетчик уникальных посетителей за сутки: по приложению целиком, если uri равен null, или по одному URI */
+@Value
+public class VisitorKey {
+    String app;
+    String uri;
+    LocalDate day;
+}
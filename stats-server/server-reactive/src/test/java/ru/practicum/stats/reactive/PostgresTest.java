@@ -0,0 +1,47 @@
+package ru.practicum.stats.reactive;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Основа тестов с базой: PostgreSQL 14, как в docker-compose, запускается один раз на JVM
+ * и подставляется в контекст вместо spring.r2dbc.*. Реактивный сервер работает с базой сервера
+ * Spring MVC, поэтому схема создается из schema.sql модуля server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public abstract class PostgresTest {
+    private static final Path SCHEMA = Path.of("../server/src/main/resources/schema.sql");
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://localhost:" + POSTGRES.getPort() + "/postgres");
+        registry.add("spring.r2dbc.username", () -> "postgres");
+        registry.add("spring.r2dbc.password", () -> "postgres");
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.start();
+            try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(Files.readString(SCHEMA));
+            }
+            return postgres;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить PostgreSQL для тестов", e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось создать схему статистики", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.stats.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.practicum.dto.EndpointHitDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "stats.repeat-view.window=PT1H")
+class ReactiveEndpointHitControllerTest extends PostgresTest {
+    @Autowired
+    private ReactiveEndpointHitController controller;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("truncate endpoint_hit, endpoint_hit_id, endpoint_hit_minute, endpoint_hit_hour")
+                .then()
+                .block();
+        client = WebTestClient.bindToController(controller).build();
+    }
+
+    @Test
+    void repeatViewInsideWindowIsNotStored() {
+        post(hit("10.0.0.1", "2024-03-01 10:00:00")).expectStatus().isCreated();
+        post(hit("10.0.0.1", "2024-03-01 10:30:00")).expectStatus().isCreated();
+        post(hit("10.0.0.2", "2024-03-01 10:30:00")).expectStatus().isCreated();
+
+        assertThat(databaseClient.sql("select count(*) from endpoint_hit")
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .block()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidHitIsRejectedBeforeBatching() {
+        EndpointHitDto lightweight = hit("10.0.0.3", "2024-03-01 10:00:00");
+        lightweight.setWeight(0.5);
+        EndpointHitDto longHitId = hit("10.0.0.4", "2024-03-01 10:00:00");
+        longHitId.setHitId("x".repeat(65));
+
+        post(lightweight).expectStatus().isBadRequest();
+        post(longHitId).expectStatus().isBadRequest();
+        post(hit("10.0.0.5", "01.03.2024")).expectStatus().isBadRequest();
+    }
+
+    private WebTestClient.ResponseSpec post(EndpointHitDto hit) {
+        return client.post().uri("/hit").bodyValue(hit).exchange();
+    }
+
+    private static EndpointHitDto hit(String ip, String timestamp) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip(ip)
+                .timestamp(timestamp)
+                .build();
+    }
+}
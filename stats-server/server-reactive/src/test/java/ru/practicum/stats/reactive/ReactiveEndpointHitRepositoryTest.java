@@ -0,0 +1,65 @@
+package ru.practicum.stats.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveEndpointHitRepositoryTest extends PostgresTest {
+    @Autowired
+    private ReactiveEndpointHitRepository repository;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void clean() {
+        databaseClient.sql("truncate endpoint_hit, endpoint_hit_id, endpoint_hit_minute, endpoint_hit_hour")
+                .then()
+                .block();
+    }
+
+    @Test
+    void hitIdClaimedByServletServerIsSkipped() {
+        databaseClient.sql("insert into endpoint_hit_id(hit_id) values ('a')").then().block();
+
+        Integer saved = repository.insertBatch(List.of(hit("a"), hit("b"), hit(null))).block();
+
+        assertThat(saved).isEqualTo(2);
+        assertThat(count("select count(*) from endpoint_hit")).isEqualTo(2);
+        assertThat(count("select cast(sum(hits) as bigint) from endpoint_hit_minute")).isEqualTo(2);
+    }
+
+    @Test
+    void retriesInsideBatchAndAcrossBatchesAreCountedOnce() {
+        repository.insertBatch(List.of(hit("a"), hit("a"), hit("b"))).block();
+
+        Integer saved = repository.insertBatch(List.of(hit("b"), hit("c"))).block();
+
+        assertThat(saved).isEqualTo(1);
+        assertThat(count("select count(*) from endpoint_hit")).isEqualTo(3);
+        assertThat(count("select count(*) from endpoint_hit_id")).isEqualTo(3);
+        assertThat(count("select cast(sum(hits) as bigint) from endpoint_hit_hour")).isEqualTo(3);
+    }
+
+    private long count(String sql) {
+        return databaseClient.sql(sql)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .block();
+    }
+
+    private static EndpointHitDto hit(String hitId) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.0.1")
+                .timestamp("2024-03-01 10:00:00")
+                .hitId(hitId)
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.stats.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузка на POST /hit реактивного сервера для сравнения с сервером Spring MVC: те же параметры у
+ * EndpointHitLoadBenchmarkTest модуля server. Клиент неблокирующий и держит CONCURRENCY
+ * запросов в полете; в лог пишутся p50 и p99 задержки и пиковое число потоков JVM под нагрузкой.
+ * Запускается только в профиле benchmark: mvn test -Pbenchmark.
+ * <p>
+ * Замер на одной машине со встроенным PostgreSQL, 20 000 хитов при 200 запросах в полете:
+ * Spring MVC — p50 575 мс, p99 1636 мс, 242 потока JVM до нагрузки и 253 в пике;
+ * WebFlux — p50 341 мс, p99 834 мс, 27 потоков до нагрузки и 44 в пике.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReactiveHitLoadBenchmarkTest extends PostgresTest {
+    private static final int CONCURRENCY = 200;
+    private static final int WARMUP_REQUESTS = 2_000;
+    private static final int MEASURED_REQUESTS = 20_000;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void hitLoad() throws InterruptedException {
+        databaseClient.sql("truncate endpoint_hit, endpoint_hit_minute, endpoint_hit_hour").then().block();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .build();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        run(client, WARMUP_REQUESTS);
+        int idleThreads = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+        long[] latencies = run(client, MEASURED_REQUESTS);
+        int peakThreads = threads.getPeakThreadCount();
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        log.info("WebFlux, POST /hit, {} в полете: p50 {} мс, p99 {} мс, потоков JVM {} до нагрузки, пик {}",
+                CONCURRENCY, latencies[latencies.length / 2] / 1_000_000,
+                latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1_000_000, idleThreads, peakThreads);
+        assertThat(databaseClient.sql("select count(*) from endpoint_hit")
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .block()).isEqualTo(WARMUP_REQUESTS + MEASURED_REQUESTS);
+    }
+
+    private long[] run(HttpClient client, int requests) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        CountDownLatch done = new CountDownLatch(requests);
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long started = System.nanoTime();
+            client.sendAsync(request(i), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        latencies[index] = System.nanoTime() - started;
+                        if (e != null || response.statusCode() != 201) {
+                            failures.incrementAndGet();
+                        }
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await();
+        assertThat(failures.get()).isZero();
+        return latencies;
+    }
+
+    private HttpRequest request(int i) {
+        String body = "{\"app\":\"ewm-main-service\",\"uri\":\"/events/" + i % 100 + "\"," +
+                "\"ip\":\"10.0." + i / 250 % 250 + "." + i % 250 + "\",\"timestamp\":\"2024-03-01 10:00:00\"}";
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hit"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.stats.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import ru.practicum.dto.EndpointHitDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveUniqueVisitorTrackerTest extends PostgresTest {
+    @Autowired
+    private ReactiveUniqueVisitorTracker tracker;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void clean() {
+        databaseClient.sql("truncate unique_visitors_app_daily, unique_visitors_uri_daily").then().block();
+    }
+
+    @Test
+    void visitorsAreMergedIntoServletTables() {
+        tracker.record(hit("/events/1", "10.0.0.1"));
+        tracker.record(hit("/events/2", "10.0.0.2"));
+        tracker.flush().block();
+        tracker.record(hit("/events/1", "10.0.0.1"));
+        tracker.record(hit("/events/1", "10.0.0.3"));
+        tracker.flush().block();
+
+        assertThat(count("select count(*) from unique_visitors_app_daily")).isEqualTo(1);
+        assertThat(count("select count(*) from unique_visitors_uri_daily")).isEqualTo(2);
+        assertThat(count("select count(*) from ip_dictionary where ip in ('10.0.0.1', '10.0.0.2', '10.0.0.3')"))
+                .isEqualTo(3);
+    }
+
+    private long count(String sql) {
+        return databaseClient.sql(sql)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .block();
+    }
+
+    private static EndpointHitDto hit(String uri, String ip) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp("2024-03-01 10:00:00")
+                .build();
+    }
+}
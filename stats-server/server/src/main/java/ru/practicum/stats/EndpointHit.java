@@ -17,6 +17,9 @@ public class EndpointHit {
     private String uri;
     private String ip;
     private Timestamp timestamp;
+    private String hitId;
+    private Integer count;
+    private Double weight;
 
     @Override
     public boolean equals(Object o) {
@@ -10,8 +10,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
+import ru.practicum.stats.bulkhead.Bulkhead;
 import ru.practicum.stats.exception.InvalidPathVariableException;
 
 import java.util.List;
@@ -22,21 +25,23 @@ import java.util.List;
 @Validated
 public class EndpointHitController {
     private final EndpointHitService endpointHitService;
+    private final Bulkhead ingestBulkhead;
+    private final Bulkhead queryBulkhead;
 
     /** Добавление новой записи о хите на эндпоинт */
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
-    public EndpointHit addHit(@RequestBody EndpointHitDto endpointHitDto) {
+    public DeferredResult<EndpointHit> addHit(@RequestBody EndpointHitDto endpointHitDto) {
         log.info("Запрос на добавление хита {}", endpointHitDto.getUri());
-        return endpointHitService.addHit(endpointHitDto);
+        return ingestBulkhead.submit(() -> endpointHitService.addHit(endpointHitDto));
     }
 
     /** Получение статистики по хитам на эндпоинты */
     @GetMapping("/stats")
-    public List<EndpointHitStatDto> getStates(@RequestParam(name = "start", required = true) String start,
-                                              @RequestParam(name = "end", required = true) String end,
-                                              @RequestParam(name = "uris", required = false) String[] uris,
-                                              @RequestParam(name = "unique", defaultValue = "false") boolean unique) {
+    public DeferredResult<List<EndpointHitStatDto>> getStates(@RequestParam(name = "start", required = true) String start,
+                                                              @RequestParam(name = "end", required = true) String end,
+                                                              @RequestParam(name = "uris", required = false) String[] uris,
+                                                              @RequestParam(name = "unique", defaultValue = "false") boolean unique) {
 
         if (start == null || end == null) {
             throw new InvalidPathVariableException("Параметры даты не должны быть пустыми");
@@ -48,6 +53,22 @@ public class EndpointHitController {
             log.info("Получение уникальной статистики с {} по {} с учетом URI={}", start, end, uris);
         }
 
-        return endpointHitService.getStates(start, end, uris, unique);
+        return queryBulkhead.submit(() -> endpointHitService.getStates(start, end, uris, unique));
+    }
+
+    /**
+     * Получение временного ряда хитов по корзинам (MINUTE, HOUR или DAY) одним запросом.
+     * Целевая задержка: p95 не более 200 мс для периода 30 дней с шагом HOUR по десяти URI,
+     * замер — EndpointHitTimeSeriesBenchmarkTest.
+     */
+    @GetMapping("/stats/timeseries")
+    public DeferredResult<List<EndpointHitTimeSeriesDto>> getTimeSeries(
+            @RequestParam(name = "start") String start,
+            @RequestParam(name = "end") String end,
+            @RequestParam(name = "uris", required = false) String[] uris,
+            @RequestParam(name = "interval", defaultValue = "HOUR") String interval,
+            @RequestParam(name = "unique", defaultValue = "false") boolean unique) {
+        log.info("Получение временного ряда с {} по {} с шагом {} для URI={}, unique={}", start, end, interval, uris, unique);
+        return queryBulkhead.submit(() -> endpointHitService.getTimeSeries(start, end, uris, interval, unique));
     }
 }
@@ -20,9 +20,50 @@ public class EndpointHitMapper {
                 .ip(endpointHitDto.getIp())
                 .uri(endpointHitDto.getUri())
                 .timestamp(Timestamp.valueOf(endpointHitDto.getTimestamp()))
+                .hitId(endpointHitDto.getHitId())
+                .count(countOf(endpointHitDto))
+                .weight(weightOf(endpointHitDto))
                 .build();
     }
 
+    /**
+     * Преобразует DTO-объект EndpointHitDto в объект EndpointHit без id, для хитов, которые не были сохранены.
+     *
+     * @param endpointHitDto DTO-объект, который нужно преобразовать.
+     * @return Новый объект EndpointHit с данными из endpointHitDto.
+     */
+    public static EndpointHit toEndpointHit(EndpointHitDto endpointHitDto) {
+        return EndpointHit.builder()
+                .app(endpointHitDto.getApp())
+                .ip(endpointHitDto.getIp())
+                .uri(endpointHitDto.getUri())
+                .timestamp(Timestamp.valueOf(endpointHitDto.getTimestamp()))
+                .hitId(endpointHitDto.getHitId())
+                .count(countOf(endpointHitDto))
+                .weight(weightOf(endpointHitDto))
+                .build();
+    }
+
+    /**
+     * Число хитов, которое представляет запись: клиент может прислать несколько одинаковых хитов одной записью.
+     *
+     * @param endpointHitDto DTO-объект хита.
+     * @return Значение count или 1, если оно не задано.
+     */
+    public static int countOf(EndpointHitDto endpointHitDto) {
+        return endpointHitDto.getCount() == null ? 1 : endpointHitDto.getCount();
+    }
+
+    /**
+     * Вес записи: при выборочной отправке клиент присылает хиты с весом, обратным доле выборки.
+     *
+     * @param endpointHitDto DTO-объект хита.
+     * @return Значение weight или 1, если оно не задано.
+     */
+    public static double weightOf(EndpointHitDto endpointHitDto) {
+        return endpointHitDto.getWeight() == null ? 1 : endpointHitDto.getWeight();
+    }
+
     /**
      * Преобразует объект EndpointHit в объект EndpointHitDto.
      *
@@ -38,6 +79,9 @@ public class EndpointHitMapper {
                 .ip(endpointHit.getIp())
                 .uri(endpointHit.getUri())
                 .timestamp(endpointHit.getTimestamp().toString())
+                .hitId(endpointHit.getHitId())
+                .count(endpointHit.getCount())
+                .weight(endpointHit.getWeight())
                 .build();
     }
 }
@@ -0,0 +1,124 @@
+package ru.practicum.stats;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Запросы к endpoint_hit, под которые подобран набор индексов в schema.sql.
+ * Репозиторий и проверка планов берут SQL отсюда, поэтому проверяются ровно те формы запросов,
+ * что выполняются в работе. Параметры именованные: :start, :end и, при фильтре, :uris и :uriHashes
+ * (хеши тех же URI, см. {@link #uriHashes(String[])}).
+ * <p>
+ * Индексы:
+ * <ul>
+ *     <li>BRIN по timestamp — хиты пишутся почти по порядку времени, поэтому диапазонные выборки
+ *     без фильтра по URI читают только нужные блоки таблицы при индексе в несколько страниц;</li>
+ *     <li>(uri_hash, timestamp) include (app, ip, hit_count, weight) — фильтр по списку URI и периоду
+ *     находит строки по хешу, а совпадение самого URI перепроверяется по строке таблицы.
+ *     Ключ по хешу, а не по URI, потому что URI до 8000 символов не помещается в строку btree-индекса.</li>
+ * </ul>
+ */
+public final class EndpointHitQueries {
+    /** Хиты периода целиком, для потокового чтения */
+    public static final String SCAN_HITS = "select id, app, uri, ip, timestamp, hit_id, hit_count, weight " +
+            "from endpoint_hit " +
+            "where timestamp between :start and :end";
+
+    private EndpointHitQueries() {
+    }
+
+    /**
+     * Хеш URI в том же виде, что столбец uri_hash: md5(uri)::uuid. URI длиной до 8000 символов не помещается
+     * в ключ btree-индекса, поэтому таблицы с URI в ключе индексируются по хешу, а сам URI сверяется отдельно.
+     */
+    public static UUID uriHash(String uri) {
+        try {
+            ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("MD5")
+                    .digest(uri.getBytes(StandardCharsets.UTF_8)));
+            return new UUID(digest.getLong(), digest.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 недоступен", e);
+        }
+    }
+
+    public static List<UUID> uriHashes(String[] uris) {
+        List<UUID> hashes = new ArrayList<>(uris.length);
+        for (String uri : uris) {
+            hashes.add(uriHash(uri));
+        }
+        return hashes;
+    }
+
+    /** Статистика по app и uri за период */
+    public static String hits(boolean unique, boolean filterUris) {
+        // Хиты с весом дают несмещенную оценку суммы; дисперсия оценки при выборке Бернулли с долей 1/w
+        // равна сумме count * w * (w - 1)
+        String counts = unique
+                ? "count(distinct e.ip) hits, null hits_error "
+                : "round(sum(e.hit_count * e.weight)) hits, " +
+                  "case when max(e.weight) > 1 then sqrt(sum(e.hit_count * e.weight * (e.weight - 1))) end hits_error ";
+        return "select e.app, e.uri, " + counts +
+                "from endpoint_hit e " +
+                "where e.timestamp between :start and :end " +
+                (filterUris ? "and e.uri_hash in (:uriHashes) and e.uri in (:uris) " : "") +
+                "group by e.app, e.uri " +
+                "order by hits desc";
+    }
+
+    /**
+     * Число уникальных IP по app и uri за период вместе с дополнительными тройками (app, uri, ip),
+     * переданными массивами :extraApps, :extraUris и :extraIps одинаковой длины
+     */
+    public static String uniqueHitsWithExtra(boolean filterUris) {
+        return "select v.app, v.uri, count(distinct v.ip) hits, null hits_error from (" +
+                "select e.app, e.uri, e.ip " +
+                "from endpoint_hit e " +
+                "where e.timestamp between :start and :end " +
+                (filterUris ? "and e.uri_hash in (:uriHashes) and e.uri in (:uris) " : "") +
+                "union all " +
+                "select x.app, x.uri, x.ip " +
+                "from unnest(cast(:extraApps as varchar[]), cast(:extraUris as varchar[]), " +
+                "cast(:extraIps as varchar[])) x(app, uri, ip)" +
+                ") v " +
+                "group by v.app, v.uri " +
+                "order by hits desc";
+    }
+
+    /** Временной ряд с числом уникальных IP по корзинам; ряд без уникальности строится по агрегациям endpoint_hit_minute и endpoint_hit_hour */
+    public static String uniqueTimeSeries(TimeSeriesInterval interval, boolean filterUris) {
+        return "select e.app, e.uri, date_trunc('" + interval.getTruncUnit() + "', e.timestamp) bucket, " +
+                "round(sum(e.hit_count * e.weight)) hits, count(distinct e.ip) unique_hits " +
+                "from endpoint_hit e " +
+                "where e.timestamp between :start and :end " +
+                (filterUris ? "and e.uri_hash in (:uriHashes) and e.uri in (:uris) " : "") +
+                "group by 1, 2, 3 " +
+                "order by 1, 2, 3";
+    }
+
+    /**
+     * Временной ряд с числом уникальных IP вместе с дополнительными строками (app, uri, bucket, ip, hits),
+     * переданными массивами :extraApps, :extraUris, :extraBuckets, :extraIps и :extraHits одинаковой длины.
+     * Корзина передается строкой yyyy-MM-dd HH:mm:ss; строка без IP только добавляет хиты.
+     */
+    public static String uniqueTimeSeriesWithExtra(TimeSeriesInterval interval, boolean filterUris) {
+        return "select v.app, v.uri, v.bucket, round(sum(v.hits)) hits, count(distinct v.ip) unique_hits from (" +
+                "select e.app, e.uri, date_trunc('" + interval.getTruncUnit() + "', e.timestamp) bucket, e.ip, " +
+                "e.hit_count * e.weight hits " +
+                "from endpoint_hit e " +
+                "where e.timestamp between :start and :end " +
+                (filterUris ? "and e.uri_hash in (:uriHashes) and e.uri in (:uris) " : "") +
+                "union all " +
+                "select x.app, x.uri, cast(x.bucket as timestamp), x.ip, x.hits " +
+                "from unnest(cast(:extraApps as varchar[]), cast(:extraUris as varchar[]), " +
+                "cast(:extraBuckets as varchar[]), cast(:extraIps as varchar[]), " +
+                "cast(:extraHits as float8[])) x(app, uri, bucket, ip, hits)" +
+                ") v " +
+                "group by 1, 2, 3 " +
+                "order by 1, 2, 3";
+    }
+}
@@ -3,12 +3,53 @@ package ru.practicum.stats;
 import org.springframework.stereotype.Repository;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public interface EndpointHitRepository {
     EndpointHit addHit(EndpointHitDto endpointHitDto);
 
+    /**
+     * Записывает хит, если его hitId встречается впервые. Проверка точная и атомарная:
+     * из одновременных записей одного hitId проходит ровно одна.
+     *
+     * @return записанный хит или пустой результат, если hitId уже был записан
+     */
+    Optional<EndpointHit> addHitOnce(EndpointHitDto endpointHitDto);
+
+    Optional<EndpointHit> findByHitId(String hitId);
+
     List<EndpointHitStatDto> getHits(String start, String end, String[] uris, boolean unique);
+
+    /**
+     * Число уникальных IP по app и uri за период с учетом дополнительных посетителей, например
+     * из холодного хранилища. Множества объединяет хранилище, IP-адреса хитов периода в память не читаются.
+     *
+     * @param extraIps IP-адреса по ключу [app, uri]
+     */
+    List<EndpointHitStatDto> getUniqueHits(String start, String end, String[] uris,
+                                           Map<List<String>, Set<String>> extraIps);
+
+    List<EndpointHitTimeSeriesDto> getTimeSeries(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                 TimeSeriesInterval interval, boolean unique);
+
+    /**
+     * Временной ряд с числом уникальных IP с учетом дополнительных хитов, например из холодного хранилища.
+     * Множества адресов по корзинам объединяет хранилище.
+     *
+     * @param extraHits сумма хитов по IP-адресу по ключу [app, uri, bucket], корзина в формате yyyy-MM-dd HH:mm:ss
+     */
+    List<EndpointHitTimeSeriesDto> getUniqueTimeSeries(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                       TimeSeriesInterval interval,
+                                                       Map<List<String>, Map<String, Double>> extraHits);
+
+    /** Последовательно передает обработчику все хиты периода, не накапливая их в памяти */
+    void scanHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer);
 }
\ No newline at end of file
@@ -2,32 +2,60 @@ package ru.practicum.stats;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
 
 @Repository
+@Profile("!memory")
 @RequiredArgsConstructor
 @Slf4j
 public class EndpointHitRepositoryImpl implements EndpointHitRepository {
+    /** Размер порции строк, которую серверный курсор PostgreSQL отдает за одно обращение */
+    private static final int SCAN_FETCH_SIZE = 10_000;
+    /** Поминутная и почасовая агрегация хита одним запросом */
+    private static final String ROLLUP_SQL = "with minute as (" +
+            "insert into endpoint_hit_minute(app, uri, bucket, hits) " +
+            "values (coalesce(?, ''), coalesce(?, ''), date_trunc('minute', cast(? as timestamp)), ?) " +
+            "on conflict (app, uri_hash, bucket) do update set hits = endpoint_hit_minute.hits + excluded.hits) " +
+            "insert into endpoint_hit_hour(app, uri, bucket, hits) " +
+            "values (coalesce(?, ''), coalesce(?, ''), date_trunc('hour', cast(? as timestamp)), ?) " +
+            "on conflict (app, uri_hash, bucket) do update set hits = endpoint_hit_hour.hits + excluded.hits";
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
 private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Override
+    @Transactional
     public EndpointHit addHit(EndpointHitDto endpointHitDto) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        String sqlQuery = "insert into endpoint_hit(app, ip, uri, timestamp) values (?, ?, ?, ?)";
+        String sqlQuery = "insert into endpoint_hit(app, ip, uri, timestamp, hit_id, hit_count, weight) " +
+                "values (?, ?, ?, ?, ?, ?, ?)";
 
         jdbcTemplate.update(connection -> {
             PreparedStatement stmt = connection.prepareStatement(sqlQuery, new String[]{"id"});
@@ -35,38 +63,197 @@ private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM
             stmt.setString(2, endpointHitDto.getIp());
             stmt.setString(3, endpointHitDto.getUri());
             stmt.setTimestamp(4, Timestamp.valueOf(endpointHitDto.getTimestamp()));
+            stmt.setString(5, endpointHitDto.getHitId());
+            stmt.setInt(6, EndpointHitMapper.countOf(endpointHitDto));
+            stmt.setDouble(7, EndpointHitMapper.weightOf(endpointHitDto));
             return stmt;
         }, keyHolder);
+        Timestamp timestamp = Timestamp.valueOf(endpointHitDto.getTimestamp());
+        double hits = EndpointHitMapper.countOf(endpointHitDto) * EndpointHitMapper.weightOf(endpointHitDto);
+        jdbcTemplate.update(ROLLUP_SQL, endpointHitDto.getApp(), endpointHitDto.getUri(), timestamp, hits,
+                endpointHitDto.getApp(), endpointHitDto.getUri(), timestamp, hits);
         EndpointHit endpointHit = EndpointHitMapper.toEndpointHit(keyHolder.getKey().intValue(), endpointHitDto);
 
         log.info("Hit {} добавлен", keyHolder.getKey().intValue());
         return endpointHit;
     }
 
+    /**
+     * hitId заносится в реестр endpoint_hit_id вставкой с on conflict do nothing в той же транзакции,
+     * что и хит: повтор ждет фиксации первой записи и ничего не вставляет. Реестр не переносится
+     * в холодное хранилище, поэтому повтор отклоняется и после переноса исходного хита, но только
+     * в течение stats.dedup.retention: более старые hitId удаляет {@link ru.practicum.stats.dedup.HitIdRegistryCleaner}.
+     */
+    @Override
+    @Transactional
+    public Optional<EndpointHit> addHitOnce(EndpointHitDto endpointHitDto) {
+        int claimed = jdbcTemplate.update("insert into endpoint_hit_id(hit_id) values (?) on conflict (hit_id) do nothing",
+                endpointHitDto.getHitId());
+        if (claimed == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(addHit(endpointHitDto));
+    }
+
+    @Override
+    public Optional<EndpointHit> findByHitId(String hitId) {
+        return jdbcTemplate.query("select id, app, uri, ip, timestamp, hit_id, hit_count, weight from endpoint_hit " +
+                                "where hit_id = ? limit 1",
+                        this::hitMapper, hitId)
+                .stream()
+                .findFirst();
+    }
+
     @Override
     public List<EndpointHitStatDto> getHits(String start, String end, String[] uris, boolean unique) {
-        String cnt_query_str = "count(";
+        boolean filterUris = uris != null && uris.length > 0;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", LocalDateTime.parse(start, df))
+                .addValue("end", LocalDateTime.parse(end, df));
+        if (filterUris) {
+            params.addValue("uris", Arrays.asList(uris))
+                    .addValue("uriHashes", EndpointHitQueries.uriHashes(uris));
+        }
+        String sql = EndpointHitQueries.hits(unique, filterUris);
+
+        log.info("getHits.sql = {}", sql);
+        return namedJdbcTemplate.query(sql, params, this::mapper);
+    }
+
+    @Override
+    public List<EndpointHitStatDto> getUniqueHits(String start, String end, String[] uris,
+                                                  Map<List<String>, Set<String>> extraIps) {
+        boolean filterUris = uris != null && uris.length > 0;
+        List<String> apps = new ArrayList<>();
+        List<String> extraUris = new ArrayList<>();
+        List<String> ips = new ArrayList<>();
+        extraIps.forEach((key, values) -> values.forEach(ip -> {
+            apps.add(key.get(0));
+            extraUris.add(key.get(1));
+            ips.add(ip);
+        }));
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", LocalDateTime.parse(start, df))
+                .addValue("end", LocalDateTime.parse(end, df))
+                .addValue("extraApps", apps.toArray(new String[0]))
+                .addValue("extraUris", extraUris.toArray(new String[0]))
+                .addValue("extraIps", ips.toArray(new String[0]));
+        if (filterUris) {
+            params.addValue("uris", Arrays.asList(uris))
+                    .addValue("uriHashes", EndpointHitQueries.uriHashes(uris));
+        }
+        return namedJdbcTemplate.query(EndpointHitQueries.uniqueHitsWithExtra(filterUris), params, this::mapper);
+    }
+
+    /**
+     * Строит временной ряд хитов по корзинам заданного шага.
+     * Без учета уникальности ряд собирается из предагрегированных таблиц: с шагом MINUTE из поминутной
+     * endpoint_hit_minute, с шагами HOUR и DAY из почасовой endpoint_hit_hour, где за 30 дней на URI
+     * приходится 720 строк вместо 43200. Для уникальных IP выполняется один проход по endpoint_hit
+     * с группировкой по корзинам.
+     */
+    @Override
+    public List<EndpointHitTimeSeriesDto> getTimeSeries(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                        TimeSeriesInterval interval, boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end);
+        boolean filterUris = uris != null && uris.length > 0;
+        if (filterUris) {
+            params.addValue("uris", Arrays.asList(uris))
+                    .addValue("uriHashes", EndpointHitQueries.uriHashes(uris));
+        }
+        String sql;
         if (unique) {
-            cnt_query_str += "distinct e.ip) hits ";
+            sql = EndpointHitQueries.uniqueTimeSeries(interval, filterUris);
         } else {
-            cnt_query_str += "1) hits ";
+            sql = "select nullif(e.app, '') app, nullif(e.uri, '') uri, " +
+                    "date_trunc('" + interval.getTruncUnit() + "', e.bucket) bucket, " +
+                    "round(sum(e.hits)) hits, null unique_hits " +
+                    "from " + (interval == TimeSeriesInterval.MINUTE ? "endpoint_hit_minute" : "endpoint_hit_hour") + " e " +
+                    "where e.bucket between :start and :end " +
+                    (filterUris ? "and e.uri_hash in (:uriHashes) and e.uri in (:uris) " : "") +
+                    "group by 1, 2, 3 " +
+                    "order by 1, 2, 3";
         }
-        String sql = "select e.app, e.uri, " + cnt_query_str +
-                "from endpoint_hit e " +
-                "where e.timestamp between ? and ?";
-        if (uris != null && uris.length > 0) {
-            sql += "and e.uri in (";
-            String uriList = "'";
-            for (String uri : uris) {
-                uriList += uri + "', '";
-            }
-            sql += uriList.substring(0, uriList.length() - 3) + ") ";
+
+        log.info("getTimeSeries.sql = {}", sql);
+        return namedJdbcTemplate.query(sql, params, this::timeSeriesMapper);
+    }
+
+    @Override
+    public List<EndpointHitTimeSeriesDto> getUniqueTimeSeries(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                              TimeSeriesInterval interval,
+                                                              Map<List<String>, Map<String, Double>> extraHits) {
+        boolean filterUris = uris != null && uris.length > 0;
+        List<String> apps = new ArrayList<>();
+        List<String> extraUris = new ArrayList<>();
+        List<String> buckets = new ArrayList<>();
+        List<String> ips = new ArrayList<>();
+        List<Double> hits = new ArrayList<>();
+        extraHits.forEach((key, values) -> values.forEach((ip, value) -> {
+            apps.add(key.get(0));
+            extraUris.add(key.get(1));
+            buckets.add(key.get(2));
+            ips.add(ip);
+            hits.add(value);
+        }));
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end)
+                .addValue("extraApps", apps.toArray(new String[0]))
+                .addValue("extraUris", extraUris.toArray(new String[0]))
+                .addValue("extraBuckets", buckets.toArray(new String[0]))
+                .addValue("extraIps", ips.toArray(new String[0]))
+                .addValue("extraHits", hits.toArray(new Double[0]));
+        if (filterUris) {
+            params.addValue("uris", Arrays.asList(uris))
+                    .addValue("uriHashes", EndpointHitQueries.uriHashes(uris));
         }
-        sql += "group by e.app, e.uri " +
-               "order by hits desc";
+        return namedJdbcTemplate.query(EndpointHitQueries.uniqueTimeSeriesWithExtra(interval, filterUris), params,
+                this::timeSeriesMapper);
+    }
 
-        log.info("getHits.sql = {}", sql);
-return jdbcTemplate.query(sql, this::mapper, LocalDateTime.parse(start, df), LocalDateTime.parse(end, df));
+    /**
+     * Читает хиты серверным курсором: драйвер PostgreSQL использует курсор только при fetchSize > 0
+     * внутри транзакции, поэтому метод транзакционный.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void scanHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(
+                    NamedParameterUtils.parseSqlStatementIntoString(EndpointHitQueries.SCAN_HITS),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(SCAN_FETCH_SIZE);
+            stmt.setTimestamp(1, Timestamp.valueOf(start));
+            stmt.setTimestamp(2, Timestamp.valueOf(end));
+            return stmt;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(hitMapper(resultSet, 0)));
+    }
+
+    private EndpointHitTimeSeriesDto timeSeriesMapper(ResultSet resultSet, int rowNum) throws SQLException {
+        int uniqueHits = resultSet.getInt("unique_hits");
+        return EndpointHitTimeSeriesDto.builder()
+                .app(resultSet.getString("app"))
+                .uri(resultSet.getString("uri"))
+                .bucket(resultSet.getTimestamp("bucket").toLocalDateTime().format(df))
+                .hits(resultSet.getInt("hits"))
+                .uniqueHits(resultSet.wasNull() ? null : uniqueHits)
+                .build();
+    }
+
+    private EndpointHit hitMapper(ResultSet resultSet, int rowNum) throws SQLException {
+        return EndpointHit.builder()
+                .id(resultSet.getInt("id"))
+                .app(resultSet.getString("app"))
+                .uri(resultSet.getString("uri"))
+                .ip(resultSet.getString("ip"))
+                .timestamp(resultSet.getTimestamp("timestamp"))
+                .hitId(resultSet.getString("hit_id"))
+                .count(resultSet.getInt("hit_count"))
+                .weight(resultSet.getDouble("weight"))
+                .build();
     }
 
     private EndpointHitStatDto mapper(ResultSet resultSet, int rowNum) throws SQLException {
@@ -74,6 +261,7 @@ return jdbcTemplate.query(sql, this::mapper, LocalDateTime.parse(start, df), Loc
                 .app(resultSet.getString("app"))
                 .uri(resultSet.getString("uri"))
                 .hits(resultSet.getInt("hits"))
+                .hitsError(resultSet.getObject("hits_error") == null ? null : resultSet.getDouble("hits_error"))
                 .build();
     }
 }
\ No newline at end of file
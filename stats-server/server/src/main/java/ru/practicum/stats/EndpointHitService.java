@@ -3,6 +3,7 @@ package ru.practicum.stats;
 import org.springframework.stereotype.Service;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
 
 import java.util.List;
 
@@ -11,4 +12,6 @@ public interface EndpointHitService {
     EndpointHit addHit(EndpointHitDto endpointHitDto);
 
     List<EndpointHitStatDto> getStates(String start, String end, String[] uris, boolean unique);
+
+    List<EndpointHitTimeSeriesDto> getTimeSeries(String start, String end, String[] uris, String interval, boolean unique);
 }
\ No newline at end of file
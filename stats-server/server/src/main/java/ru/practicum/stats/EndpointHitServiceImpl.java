@@ -3,27 +3,188 @@ package ru.practicum.stats;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
+import ru.practicum.stats.cold.ColdStorage;
+import ru.practicum.stats.dedup.HitDeduplicator;
+import ru.practicum.stats.dedup.RepeatViewFilter;
 import ru.practicum.stats.exception.InvalidPathVariableException;
+import ru.practicum.stats.visitors.UniqueVisitorTracker;
 
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EndpointHitServiceImpl implements EndpointHitService {
+    /** Длина hitId ограничена размером столбца hit_id */
+    private static final int MAX_HIT_ID_LENGTH = 64;
+    /** Ограничение на число корзин в одном временном ряду для одного URI */
+    private static final long MAX_TIME_SERIES_BUCKETS = 50_000;
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final EndpointHitRepository endpointHitRepository;
+    private final HitDeduplicator hitDeduplicator;
+    private final RepeatViewFilter repeatViewFilter;
+    private final ColdStorage coldStorage;
+    private final UniqueVisitorTracker uniqueVisitorTracker;
 
     @Override
     public EndpointHit addHit(EndpointHitDto endpointHitDto) {
-        return endpointHitRepository.addHit(endpointHitDto);
+        if (endpointHitDto.getCount() != null && endpointHitDto.getCount() < 1) {
+            throw new InvalidPathVariableException("Число хитов в записи должно быть положительным");
+        }
+        if (endpointHitDto.getWeight() != null && !(endpointHitDto.getWeight() >= 1)) {
+            throw new InvalidPathVariableException("Вес записи должен быть не меньше 1");
+        }
+        String hitId = endpointHitDto.getHitId();
+        if (hitId != null && hitId.length() > MAX_HIT_ID_LENGTH) {
+            throw new InvalidPathVariableException("hitId не должен быть длиннее " + MAX_HIT_ID_LENGTH + " символов");
+        }
+        if (!repeatViewFilter.shouldCount(endpointHitDto)) {
+            log.debug("Повторный просмотр {} с IP {} не учтен", endpointHitDto.getUri(), endpointHitDto.getIp());
+            return EndpointHitMapper.toEndpointHit(endpointHitDto);
+        }
+
+        EndpointHit endpointHit = hitId == null || hitId.isBlank()
+                ? endpointHitRepository.addHit(endpointHitDto)
+                : hitDeduplicator.addOnce(hitId,
+                                () -> endpointHitRepository.findByHitId(hitId),
+                                () -> endpointHitRepository.addHitOnce(endpointHitDto))
+                        .orElseGet(() -> EndpointHitMapper.toEndpointHit(endpointHitDto));
+        uniqueVisitorTracker.record(endpointHit);
+        return endpointHit;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<EndpointHitStatDto> getStates(String start, String end, String[] uris, boolean unique) {
+        validateRange(start, end);
+
+        LocalDateTime startDate = Timestamp.valueOf(start).toLocalDateTime();
+        LocalDateTime endDate = Timestamp.valueOf(end).toLocalDateTime();
+        if (!coldStorage.overlaps(startDate, endDate)) {
+            return endpointHitRepository.getHits(start, end, uris, unique);
+        }
+        if (unique) {
+            return mergeColdVisitors(start, end, uris);
+        }
+        return mergeColdHits(endpointHitRepository.getHits(start, end, uris, false), startDate, endDate, uris);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EndpointHitTimeSeriesDto> getTimeSeries(String start, String end, String[] uris, String interval,
+                                                        boolean unique) {
+        validateRange(start, end);
+        TimeSeriesInterval timeSeriesInterval = TimeSeriesInterval.from(interval);
+
+        LocalDateTime startDate = timeSeriesInterval.truncate(Timestamp.valueOf(start).toLocalDateTime());
+        LocalDateTime endDate = Timestamp.valueOf(end).toLocalDateTime();
+
+        long buckets = Duration.between(startDate, endDate).dividedBy(timeSeriesInterval.getDuration()) + 1;
+        if (buckets > MAX_TIME_SERIES_BUCKETS) {
+            throw new InvalidPathVariableException("Слишком много корзин во временном ряду: " + buckets +
+                    ", увеличьте шаг или сократите период");
+        }
+
+        if (unique && coldStorage.overlaps(startDate, endDate)) {
+            return mergeColdTimeSeries(startDate, endDate, uris, timeSeriesInterval);
+        }
+        return endpointHitRepository.getTimeSeries(startDate, endDate, uris, timeSeriesInterval, unique);
+    }
+
+    /**
+     * Временной ряд уникальных IP с учетом холодного хранилища. Хиты холодных сегментов сворачиваются
+     * в суммы по (app, uri, корзина, ip), объединение адресов с горячей частью выполняет хранилище:
+     * корзина может оказаться в обеих частях, если за уже перенесенный день импортированы новые хиты.
+     */
+    private List<EndpointHitTimeSeriesDto> mergeColdTimeSeries(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                               TimeSeriesInterval interval) {
+        Set<String> uriFilter = uriFilter(uris);
+        Map<List<String>, Map<String, Double>> coldHits = new HashMap<>();
+        coldStorage.scan(start, end, hit -> {
+            if (uriFilter != null && !uriFilter.contains(hit.getUri())) {
+                return;
+            }
+            String bucket = interval.truncate(hit.getTimestamp().toLocalDateTime()).format(BUCKET_FORMAT);
+            coldHits.computeIfAbsent(Arrays.asList(hit.getApp(), hit.getUri(), bucket), k -> new HashMap<>())
+                    .merge(hit.getIp(), hit.getCount() * hit.getWeight(), Double::sum);
+        });
+        return endpointHitRepository.getUniqueTimeSeries(start, end, uris, interval, coldHits);
+    }
+
+    /**
+     * Уникальные IP с учетом холодного хранилища. В памяти собираются только различные адреса холодных
+     * сегментов, а объединение с горячей частью и подсчет выполняет хранилище.
+     */
+    private List<EndpointHitStatDto> mergeColdVisitors(String start, String end, String[] uris) {
+        Set<String> uriFilter = uriFilter(uris);
+        Map<List<String>, Set<String>> coldIps = new HashMap<>();
+        coldStorage.scan(Timestamp.valueOf(start).toLocalDateTime(), Timestamp.valueOf(end).toLocalDateTime(), hit -> {
+            if (hit.getIp() != null && (uriFilter == null || uriFilter.contains(hit.getUri()))) {
+                coldIps.computeIfAbsent(Arrays.asList(hit.getApp(), hit.getUri()), k -> new HashSet<>()).add(hit.getIp());
+            }
+        });
+        return endpointHitRepository.getUniqueHits(start, end, uris, coldIps);
+    }
+
+    /** Добавляет к статистике хиты из холодного хранилища: складываются оценки и их дисперсии */
+    private List<EndpointHitStatDto> mergeColdHits(List<EndpointHitStatDto> hotHits, LocalDateTime start,
+                                                   LocalDateTime end, String[] uris) {
+        Set<String> uriFilter = uriFilter(uris);
+        // сумма хитов, дисперсия оценки, признак выборочных данных
+        Map<List<String>, double[]> hits = new HashMap<>();
+        for (EndpointHitStatDto dto : hotHits) {
+            double[] sums = hits.computeIfAbsent(Arrays.asList(dto.getApp(), dto.getUri()), k -> new double[3]);
+            sums[0] += dto.getHits();
+            if (dto.getHitsError() != null) {
+                sums[1] += dto.getHitsError() * dto.getHitsError();
+                sums[2] = 1;
+            }
+        }
+        coldStorage.scan(start, end, hit -> {
+            if (uriFilter != null && !uriFilter.contains(hit.getUri())) {
+                return;
+            }
+            double weight = hit.getWeight();
+            double[] sums = hits.computeIfAbsent(Arrays.asList(hit.getApp(), hit.getUri()), k -> new double[3]);
+            sums[0] += hit.getCount() * weight;
+            sums[1] += hit.getCount() * weight * (weight - 1);
+            if (weight > 1) {
+                sums[2] = 1;
+            }
+        });
+
+        return hits.entrySet().stream()
+                .map(entry -> EndpointHitStatDto.builder()
+                        .app(entry.getKey().get(0))
+                        .uri(entry.getKey().get(1))
+                        .hits((int) Math.round(entry.getValue()[0]))
+                        .hitsError(entry.getValue()[2] > 0 ? Math.sqrt(entry.getValue()[1]) : null)
+                        .build())
+                .sorted(Comparator.comparing(EndpointHitStatDto::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static Set<String> uriFilter(String[] uris) {
+        return uris == null || uris.length == 0 ? null : new HashSet<>(Arrays.asList(uris));
+    }
+
+    private void validateRange(String start, String end) {
         if (start.isBlank() || end.isBlank()) {
             throw new InvalidPathVariableException("Некорректные даты: даты не должны быть пустыми");
         }
@@ -34,7 +195,5 @@ public class EndpointHitServiceImpl implements EndpointHitService {
         if (startDate.after(endDate)) {
             throw new InvalidPathVariableException("Некорректные даты: начальная дата должна быть раньше конечной даты");
         }
-
-        return endpointHitRepository.getHits(start, end, uris, unique);
     }
 }
@@ -0,0 +1,47 @@
+package ru.practicum.stats;
+
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/** Шаг корзины временного ряда статистики */
+public enum TimeSeriesInterval {
+    MINUTE("minute", Duration.ofMinutes(1), ChronoUnit.MINUTES),
+    HOUR("hour", Duration.ofHours(1), ChronoUnit.HOURS),
+    DAY("day", Duration.ofDays(1), ChronoUnit.DAYS);
+
+    private final String truncUnit;
+    private final Duration duration;
+    private final ChronoUnit chronoUnit;
+
+    TimeSeriesInterval(String truncUnit, Duration duration, ChronoUnit chronoUnit) {
+        this.truncUnit = truncUnit;
+        this.duration = duration;
+        this.chronoUnit = chronoUnit;
+    }
+
+    /** Единица для date_trunc в PostgreSQL */
+    public String getTruncUnit() {
+        return truncUnit;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /** Начало корзины, в которую попадает момент времени */
+    public LocalDateTime truncate(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(chronoUnit);
+    }
+
+    public static TimeSeriesInterval from(String interval) {
+        for (TimeSeriesInterval value : values()) {
+            if (value.name().equalsIgnoreCase(interval)) {
+                return value;
+            }
+        }
+        throw new InvalidPathVariableException("Некорректный шаг временного ряда: " + interval);
+    }
+}
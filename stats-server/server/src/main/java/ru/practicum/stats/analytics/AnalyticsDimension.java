@@ -0,0 +1,20 @@
+package ru.practicum.stats.analytics;
+
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+/** Измерение группировки аналитического запроса по хитам */
+public enum AnalyticsDimension {
+    APP,
+    URI,
+    HOUR,
+    IP_PREFIX;
+
+    public static AnalyticsDimension from(String value) {
+        try {
+            return AnalyticsDimension.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPathVariableException("Неизвестное измерение группировки: " + value +
+                    ", допустимы APP, URI, HOUR, IP_PREFIX");
+        }
+    }
+}
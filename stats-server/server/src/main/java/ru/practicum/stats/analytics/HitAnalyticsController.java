@@ -0,0 +1,39 @@
+package ru.practicum.stats.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.practicum.stats.bulkhead.Bulkhead;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class HitAnalyticsController {
+    private final HitAnalyticsService hitAnalyticsService;
+    private final Bulkhead scanBulkhead;
+
+    /**
+     * Группировка хитов за период по любому сочетанию APP, URI, HOUR и IP_PREFIX
+     * с фильтрами по приложениям, URI и началу IP-адреса
+     */
+    @GetMapping("/stats/analytics")
+    public DeferredResult<List<HitAnalyticsRow>> analyze(
+            @RequestParam(name = "start") String start,
+            @RequestParam(name = "end") String end,
+            @RequestParam(name = "groupBy", required = false) String[] groupBy,
+            @RequestParam(name = "apps", required = false) String[] apps,
+            @RequestParam(name = "uris", required = false) String[] uris,
+            @RequestParam(name = "ipPrefix", required = false) String ipPrefix,
+            @RequestParam(name = "prefixLength", defaultValue = "24") int prefixLength,
+            @RequestParam(name = "unique", defaultValue = "false") boolean unique,
+            @RequestParam(name = "limit", defaultValue = "1000") int limit) {
+        log.info("Аналитика хитов с {} по {}: группировка {}, URI={}", start, end, groupBy, uris);
+        return scanBulkhead.submit(() ->
+                hitAnalyticsService.analyze(start, end, groupBy, apps, uris, ipPrefix, prefixLength, unique, limit));
+    }
+}
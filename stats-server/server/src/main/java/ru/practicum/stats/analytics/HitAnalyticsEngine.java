@@ -0,0 +1,265 @@
+package ru.practicum.stats.analytics;
+
+import ru.practicum.stats.EndpointHit;
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Векторный движок группировки хитов для одного запроса.
+ * <p>
+ * Хиты кодируются словарями в колонки примитивов пакетами по {@value #BATCH_SIZE} строк. Пакет
+ * обрабатывается проходами по колонкам: фильтры по заранее вычисленным для каждого значения словаря
+ * флагам формируют вектор выбранных строк, затем для выбранных строк вычисляются упакованные в long
+ * ключи групп и обновляются счетчики. Уникальные IP учитываются парами (группа, IP) в хеш-таблице.
+ */
+class HitAnalyticsEngine implements Consumer<EndpointHit> {
+    static final int BATCH_SIZE = 4096;
+    private static final int HOUR_BITS = 5;
+
+    private final HitAnalyticsQuery query;
+    private final AnalyticsDimension[] dimensions;
+    private final int[] bits;
+
+    private final Dictionary apps = new Dictionary();
+    private final Dictionary uris = new Dictionary();
+    private final Dictionary ips = new Dictionary();
+    private final Dictionary prefixes = new Dictionary();
+    private boolean[] appAllowed = new boolean[256];
+    private boolean[] uriAllowed = new boolean[256];
+    private boolean[] ipAllowed = new boolean[256];
+    private int[] prefixOfIp = new int[256];
+
+    private final int[] appColumn = new int[BATCH_SIZE];
+    private final int[] uriColumn = new int[BATCH_SIZE];
+    private final int[] ipColumn = new int[BATCH_SIZE];
+    private final int[] hourColumn = new int[BATCH_SIZE];
+    private final int[] countColumn = new int[BATCH_SIZE];
+    private final double[] weightColumn = new double[BATCH_SIZE];
+    private final int[] selection = new int[BATCH_SIZE];
+    private final long[] keys = new long[BATCH_SIZE];
+    private int size;
+    private long scanned;
+
+    private final LongIntHashMap groups = new LongIntHashMap(1024);
+    private final LongIntHashMap visitors = new LongIntHashMap(1024);
+    private long[] groupKeys = new long[1024];
+    /** Взвешенные суммы хитов групп: записи выборочной отправки учитываются с весом */
+    private double[] hits = new double[1024];
+    private long[] uniqueHits = new long[1024];
+
+    HitAnalyticsEngine(HitAnalyticsQuery query) {
+        this.query = query;
+        this.dimensions = query.getGroupBy().toArray(new AnalyticsDimension[0]);
+        this.bits = new int[dimensions.length];
+        int wide = (int) query.getGroupBy().stream().filter(d -> d != AnalyticsDimension.HOUR).count();
+        int available = 63 - (query.getGroupBy().contains(AnalyticsDimension.HOUR) ? HOUR_BITS : 0);
+        for (int d = 0; d < dimensions.length; d++) {
+            bits[d] = dimensions[d] == AnalyticsDimension.HOUR ? HOUR_BITS : Math.min(31, available / wide);
+        }
+    }
+
+    @Override
+    public void accept(EndpointHit hit) {
+        int appsBefore = apps.size();
+        int app = apps.idOf(hit.getApp());
+        if (apps.size() > appsBefore) {
+            if (app == appAllowed.length) {
+                appAllowed = Arrays.copyOf(appAllowed, app * 2);
+            }
+            appAllowed[app] = query.getApps() == null || query.getApps().contains(hit.getApp());
+        }
+        int urisBefore = uris.size();
+        int uri = uris.idOf(hit.getUri());
+        if (uris.size() > urisBefore) {
+            if (uri == uriAllowed.length) {
+                uriAllowed = Arrays.copyOf(uriAllowed, uri * 2);
+            }
+            uriAllowed[uri] = query.getUris() == null || query.getUris().contains(hit.getUri());
+        }
+        int ipsBefore = ips.size();
+        int ip = ips.idOf(hit.getIp());
+        if (ips.size() > ipsBefore) {
+            if (ip == ipAllowed.length) {
+                ipAllowed = Arrays.copyOf(ipAllowed, ip * 2);
+                prefixOfIp = Arrays.copyOf(prefixOfIp, ip * 2);
+            }
+            String value = hit.getIp();
+            ipAllowed[ip] = query.getIpPrefix() == null || value != null && value.startsWith(query.getIpPrefix());
+            prefixOfIp[ip] = prefixes.idOf(prefix(value, query.getPrefixLength()));
+        }
+
+        appColumn[size] = app;
+        uriColumn[size] = uri;
+        ipColumn[size] = ip;
+        hourColumn[size] = hit.getTimestamp().toLocalDateTime().getHour();
+        countColumn[size] = hit.getCount();
+        weightColumn[size] = hit.getWeight();
+        if (++size == BATCH_SIZE) {
+            processBatch();
+        }
+    }
+
+    long getScanned() {
+        return scanned;
+    }
+
+    List<HitAnalyticsRow> result() {
+        processBatch();
+        List<HitAnalyticsRow> rows = new ArrayList<>(groups.size());
+        for (int g = 0; g < groups.size(); g++) {
+            rows.add(toRow(g));
+        }
+        Comparator<HitAnalyticsRow> order = query.isUnique()
+                ? Comparator.comparing(HitAnalyticsRow::getUniqueHits)
+                : Comparator.comparing(HitAnalyticsRow::getHits);
+        rows.sort(order.reversed());
+        return rows.size() > query.getLimit() ? new ArrayList<>(rows.subList(0, query.getLimit())) : rows;
+    }
+
+    private void processBatch() {
+        scanned += size;
+
+        int selected = 0;
+        for (int i = 0; i < size; i++) {
+            if (appAllowed[appColumn[i]] & uriAllowed[uriColumn[i]] & ipAllowed[ipColumn[i]]) {
+                selection[selected++] = i;
+            }
+        }
+
+        Arrays.fill(keys, 0, selected, 0L);
+        for (int d = 0; d < dimensions.length; d++) {
+            int[] column = column(dimensions[d]);
+            int shift = bits[d];
+            boolean prefix = dimensions[d] == AnalyticsDimension.IP_PREFIX;
+            for (int j = 0; j < selected; j++) {
+                int code = column[selection[j]];
+                keys[j] = keys[j] << shift | (prefix ? prefixOfIp[code] : code);
+            }
+        }
+
+        for (int j = 0; j < selected; j++) {
+            int group = groups.putIfAbsent(keys[j], groups.size());
+            if (group < 0) {
+                group = groups.size() - 1;
+                addGroup(group, keys[j]);
+            }
+            hits[group] += countColumn[selection[j]] * weightColumn[selection[j]];
+            if (query.isUnique() && visitors.putIfAbsent((long) group << 32 | ipColumn[selection[j]], 0) < 0) {
+                uniqueHits[group]++;
+            }
+        }
+        size = 0;
+    }
+
+    private int[] column(AnalyticsDimension dimension) {
+        switch (dimension) {
+            case APP:
+                checkCardinality(apps, dimension);
+                return appColumn;
+            case URI:
+                checkCardinality(uris, dimension);
+                return uriColumn;
+            case HOUR:
+                return hourColumn;
+            default:
+                checkCardinality(prefixes, dimension);
+                return ipColumn;
+        }
+    }
+
+    private void checkCardinality(Dictionary dictionary, AnalyticsDimension dimension) {
+        int d = Arrays.asList(dimensions).indexOf(dimension);
+        if (dictionary.size() > 1L << bits[d]) {
+            throw new InvalidPathVariableException("Слишком много различных значений измерения " + dimension +
+                    " для группировки, добавьте фильтры или сократите число измерений");
+        }
+    }
+
+    private void addGroup(int group, long key) {
+        if (group == groupKeys.length) {
+            groupKeys = Arrays.copyOf(groupKeys, group * 2);
+            hits = Arrays.copyOf(hits, group * 2);
+            uniqueHits = Arrays.copyOf(uniqueHits, group * 2);
+        }
+        groupKeys[group] = key;
+    }
+
+    private HitAnalyticsRow toRow(int group) {
+        HitAnalyticsRow row = HitAnalyticsRow.builder()
+                .hits(Math.round(hits[group]))
+                .uniqueHits(query.isUnique() ? uniqueHits[group] : null)
+                .build();
+        long key = groupKeys[group];
+        for (int d = dimensions.length - 1; d >= 0; d--) {
+            int code = (int) (key & ((1L << bits[d]) - 1));
+            key >>>= bits[d];
+            switch (dimensions[d]) {
+                case APP:
+                    row.setApp(apps.get(code));
+                    break;
+                case URI:
+                    row.setUri(uris.get(code));
+                    break;
+                case HOUR:
+                    row.setHour(code);
+                    break;
+                default:
+                    row.setIpPrefix(prefixes.get(code));
+            }
+        }
+        return row;
+    }
+
+    /** Префикс IPv4 вида 10.1.2.0/24; прочие адреса группируются как есть */
+    static String prefix(String ip, int length) {
+        if (ip == null) {
+            return null;
+        }
+        String[] octets = ip.split("\\.");
+        if (octets.length != 4) {
+            return ip;
+        }
+        long address = 0;
+        try {
+            for (String octet : octets) {
+                int value = Integer.parseInt(octet);
+                if (value < 0 || value > 255) {
+                    return ip;
+                }
+                address = address << 8 | value;
+            }
+        } catch (NumberFormatException e) {
+            return ip;
+        }
+        long masked = length == 0 ? 0 : address & (0xFFFFFFFFL << (32 - length)) & 0xFFFFFFFFL;
+        return (masked >>> 24) + "." + (masked >>> 16 & 0xFF) + "." + (masked >>> 8 & 0xFF) + "." + (masked & 0xFF) +
+                "/" + length;
+    }
+
+    private static class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int idOf(String value) {
+            return ids.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        String get(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.stats.analytics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Getter
+@Builder
+public class HitAnalyticsQuery {
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Set<AnalyticsDimension> groupBy;
+    /** Фильтры: null означает отсутствие ограничения */
+    private Set<String> apps;
+    private Set<String> uris;
+    private String ipPrefix;
+    /** Длина префикса IPv4 в битах для измерения IP_PREFIX */
+    private int prefixLength;
+    private boolean unique;
+    private int limit;
+}
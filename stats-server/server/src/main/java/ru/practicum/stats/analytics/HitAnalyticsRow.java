@@ -0,0 +1,22 @@
+package ru.practicum.stats.analytics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Строка результата аналитики: заполнены только измерения, по которым шла группировка */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HitAnalyticsRow {
+    private String app;
+    private String uri;
+    private Integer hour;
+    private String ipPrefix;
+    private Long hits;
+    private Long uniqueHits;
+}
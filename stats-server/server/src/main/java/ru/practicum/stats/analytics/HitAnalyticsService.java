@@ -0,0 +1,8 @@
+package ru.practicum.stats.analytics;
+
+import java.util.List;
+
+public interface HitAnalyticsService {
+    List<HitAnalyticsRow> analyze(String start, String end, String[] groupBy, String[] apps, String[] uris,
+                                  String ipPrefix, int prefixLength, boolean unique, int limit);
+}
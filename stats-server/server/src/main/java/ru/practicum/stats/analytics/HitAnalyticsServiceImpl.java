@@ -0,0 +1,83 @@
+package ru.practicum.stats.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.EndpointHitRepository;
+import ru.practicum.stats.cold.ColdStorage;
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Произвольная группировка хитов по app, uri, часу суток и префиксу IP.
+ * Хиты периода читаются потоково из основного и холодного хранилища и агрегируются
+ * векторным движком {@link HitAnalyticsEngine} без построения SQL под каждый запрос.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HitAnalyticsServiceImpl implements HitAnalyticsService {
+    private static final int MAX_LIMIT = 10_000;
+
+    private final EndpointHitRepository endpointHitRepository;
+    private final ColdStorage coldStorage;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<HitAnalyticsRow> analyze(String start, String end, String[] groupBy, String[] apps, String[] uris,
+                                         String ipPrefix, int prefixLength, boolean unique, int limit) {
+        LocalDateTime startDate = Timestamp.valueOf(start).toLocalDateTime();
+        LocalDateTime endDate = Timestamp.valueOf(end).toLocalDateTime();
+        if (startDate.isAfter(endDate)) {
+            throw new InvalidPathVariableException("Некорректные даты: начальная дата должна быть раньше конечной даты");
+        }
+        if (prefixLength < 0 || prefixLength > 32) {
+            throw new InvalidPathVariableException("Длина префикса IP должна быть от 0 до 32");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidPathVariableException("Лимит строк должен быть от 1 до " + MAX_LIMIT);
+        }
+
+        Set<AnalyticsDimension> dimensions = new LinkedHashSet<>();
+        if (groupBy != null) {
+            for (String value : groupBy) {
+                dimensions.add(AnalyticsDimension.from(value));
+            }
+        }
+
+        HitAnalyticsQuery query = HitAnalyticsQuery.builder()
+                .start(startDate)
+                .end(endDate)
+                .groupBy(dimensions)
+                .apps(toSet(apps))
+                .uris(toSet(uris))
+                .ipPrefix(ipPrefix == null || ipPrefix.isBlank() ? null : ipPrefix)
+                .prefixLength(prefixLength)
+                .unique(unique)
+                .limit(limit)
+                .build();
+
+        long started = System.currentTimeMillis();
+        HitAnalyticsEngine engine = new HitAnalyticsEngine(query);
+        endpointHitRepository.scanHits(startDate, endDate, engine);
+        if (coldStorage.overlaps(startDate, endDate)) {
+            coldStorage.scan(startDate, endDate, engine);
+        }
+        List<HitAnalyticsRow> rows = engine.result();
+        log.info("Аналитика по {} выполнена за {} мс: просмотрено {} хитов, {} групп",
+                dimensions, System.currentTimeMillis() - started, engine.getScanned(), rows.size());
+        return rows;
+    }
+
+    private static Set<String> toSet(String[] values) {
+        return values == null || values.length == 0 ? null : new HashSet<>(Arrays.asList(values));
+    }
+}
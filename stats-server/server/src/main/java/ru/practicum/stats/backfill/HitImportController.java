@@ -0,0 +1,33 @@
+package ru.practicum.stats.backfill;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+@Slf4j
+@RestController
+@Profile("!memory")
+@RequiredArgsConstructor
+@RequestMapping(path = "/admin/hits")
+public class HitImportController {
+    private final HitImportService hitImportService;
+
+    /** Потоковая загрузка журнала хитов (text/csv или application/x-ndjson) */
+    @PostMapping(path = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitImportResult importHits(@RequestParam(name = "header", defaultValue = "false") boolean header,
+                                      HttpServletRequest request) throws IOException {
+        HitImportFormat format = HitImportFormat.fromContentType(request.getContentType());
+        log.info("Запрос на загрузку журнала хитов в формате {}", format);
+        return hitImportService.importHits(request.getInputStream(), format, header);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.stats.backfill;
+
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+/** Формат журнала хитов для загрузки */
+public enum HitImportFormat {
+    /** CSV с колонками app,uri,ip,timestamp */
+    CSV("text/csv"),
+    /** По одному JSON-объекту EndpointHitDto в строке */
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    HitImportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static HitImportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            for (HitImportFormat format : values()) {
+                if (contentType.toLowerCase().startsWith(format.contentType)) {
+                    return format;
+                }
+            }
+        }
+        throw new InvalidPathVariableException("Неподдерживаемый формат загрузки: " + contentType);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.stats.backfill;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitImportResult {
+    private long rows;
+    /** Строки, отброшенные как повторы по hitId */
+    private long duplicates;
+    private long durationMs;
+}
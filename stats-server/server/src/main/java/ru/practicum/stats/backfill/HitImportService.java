@@ -0,0 +1,7 @@
+package ru.practicum.stats.backfill;
+
+import java.io.InputStream;
+
+public interface HitImportService {
+    HitImportResult importHits(InputStream input, HitImportFormat format, boolean header);
+}
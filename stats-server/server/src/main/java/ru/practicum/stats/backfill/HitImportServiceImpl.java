@@ -0,0 +1,270 @@
+package ru.practicum.stats.backfill;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.stats.exception.InvalidPathVariableException;
+import ru.practicum.stats.visitors.UniqueVisitorRepository;
+import ru.practicum.stats.visitors.VisitorKey;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Потоковая загрузка журнала хитов в endpoint_hit через COPY.
+ * <p>
+ * Строки копируются во временную таблицу в рамках одной транзакции, затем одним запросом переносятся
+ * в endpoint_hit и в агрегации endpoint_hit_minute и endpoint_hit_hour. Перед переносом hitId записей
+ * заявляются в реестре endpoint_hit_id, и строки с уже известным hitId отбрасываются, поэтому повторы
+ * не записываются второй раз ни при загрузке, ни через /hit. Посетители загруженных строк сливаются
+ * в суточные счетчики уникальных посетителей в той же транзакции.
+ * Память не зависит от объема журнала: CSV передается в COPY как есть, NDJSON преобразуется построчно.
+ */
+@Slf4j
+@Service
+@Profile("!memory")
+public class HitImportServiceImpl implements HitImportService {
+    private static final long PROGRESS_ROWS = 100_000;
+    private static final long PROGRESS_BYTES = 64L * 1024 * 1024;
+    /** Сколько строк (app, uri, ip, день) накапливается в памяти перед слиянием в счетчики посетителей */
+    private static final int VISITOR_BATCH = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final UniqueVisitorRepository uniqueVisitorRepository;
+    private final Counter importedRows;
+
+    public HitImportServiceImpl(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                UniqueVisitorRepository uniqueVisitorRepository, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.uniqueVisitorRepository = uniqueVisitorRepository;
+        this.importedRows = meterRegistry.counter("stats.import.rows");
+    }
+
+    @Override
+    @Transactional
+    public HitImportResult importHits(InputStream input, HitImportFormat format, boolean header) {
+        long started = System.currentTimeMillis();
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            createStagingTable(connection);
+            CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+            try {
+                return format == HitImportFormat.CSV
+                        ? copyCsv(copyManager, input, header)
+                        : copyNdjson(copyManager, input);
+            } catch (IOException e) {
+                throw new InvalidPathVariableException("Ошибка чтения журнала хитов: " + e.getMessage());
+            }
+        });
+
+        long duplicates = skipDuplicates();
+        jdbcTemplate.update("insert into endpoint_hit(app, uri, ip, timestamp, hit_id, hit_count, weight) " +
+                "select app, uri, ip, timestamp, hit_id, coalesce(hit_count, 1), coalesce(weight, 1) " +
+                "from endpoint_hit_import");
+        for (String unit : new String[]{"minute", "hour"}) {
+            jdbcTemplate.update("insert into endpoint_hit_" + unit + "(app, uri, bucket, hits) " +
+                    "select coalesce(app, ''), coalesce(uri, ''), date_trunc('" + unit + "', timestamp), sum(coalesce(hit_count, 1) * coalesce(weight, 1)) " +
+                    "from endpoint_hit_import " +
+                    "group by 1, 2, 3 " +
+                    "on conflict (app, uri_hash, bucket) do update set hits = endpoint_hit_" + unit + ".hits + excluded.hits");
+        }
+        recordVisitors();
+
+        long duration = System.currentTimeMillis() - started;
+        log.info("Загрузка журнала хитов завершена: {} строк, из них {} повторов, за {} мс", rows, duplicates, duration);
+        return HitImportResult.builder()
+                .rows(rows == null ? 0 : rows)
+                .duplicates(duplicates)
+                .durationMs(duration)
+                .build();
+    }
+
+    /**
+     * Удаляет из временной таблицы повторы по hitId до переноса строк в endpoint_hit и агрегации.
+     * hitId заявляются в реестре endpoint_hit_id той же вставкой с on conflict do nothing, что и в /hit,
+     * поэтому остаются только строки с впервые заявленным hitId: хиты, уже пришедшие через /hit или
+     * загруженные прошлым запуском, не учитываются второй раз. Из повторов внутри журнала остается первая строка.
+     *
+     * @return число удаленных повторов
+     */
+    private long skipDuplicates() {
+        jdbcTemplate.update("with claimed as (" +
+                "insert into endpoint_hit_id(hit_id) " +
+                "select distinct hit_id from endpoint_hit_import where hit_id is not null order by hit_id " +
+                "on conflict (hit_id) do nothing returning hit_id) " +
+                "insert into endpoint_hit_import_claimed(hit_id) select hit_id from claimed");
+        long duplicates = jdbcTemplate.update("delete from endpoint_hit_import i where i.hit_id is not null " +
+                "and not exists (select 1 from endpoint_hit_import_claimed c where c.hit_id = i.hit_id)");
+        duplicates += jdbcTemplate.update("delete from endpoint_hit_import where ctid in (" +
+                "select ctid from (select ctid, row_number() over (partition by hit_id order by ctid) n " +
+                "from endpoint_hit_import where hit_id is not null) numbered where n > 1)");
+        return duplicates;
+    }
+
+    /**
+     * Сливает посетителей загруженных строк в суточные счетчики так же, как {@link
+     * ru.practicum.stats.visitors.UniqueVisitorTracker} при приеме через /hit: адрес попадает в счетчик
+     * приложения и в счетчик URI. Пары читаются из временной таблицы без повторов и сливаются пачками.
+     */
+    private void recordVisitors() {
+        Map<VisitorKey, Set<String>> batch = new HashMap<>();
+        int[] rows = {0};
+        jdbcTemplate.query("select distinct coalesce(app, '') app, coalesce(uri, '') uri, ip, " +
+                "cast(timestamp as date) as day " +
+                "from endpoint_hit_import " +
+                "where ip is not null and timestamp is not null", (RowCallbackHandler) rs -> {
+            String app = rs.getString("app");
+            String ip = rs.getString("ip");
+            LocalDate day = rs.getDate("day").toLocalDate();
+            batch.computeIfAbsent(new VisitorKey(app, null, day), k -> new HashSet<>()).add(ip);
+            batch.computeIfAbsent(new VisitorKey(app, rs.getString("uri"), day), k -> new HashSet<>()).add(ip);
+            if (++rows[0] >= VISITOR_BATCH) {
+                uniqueVisitorRepository.merge(batch);
+                batch.clear();
+                rows[0] = 0;
+            }
+        });
+        if (!batch.isEmpty()) {
+            uniqueVisitorRepository.merge(batch);
+        }
+    }
+
+    private void createStagingTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create temp table endpoint_hit_import (" +
+                    "app varchar(100), uri varchar(8000), ip varchar(45), timestamp timestamp, hit_id varchar(64), " +
+                    "hit_count integer, weight double precision" +
+                    ") on commit drop");
+            statement.execute("create temp table endpoint_hit_import_claimed (hit_id varchar(64)) on commit drop");
+        }
+    }
+
+    private long copyCsv(CopyManager copyManager, InputStream input, boolean header) throws SQLException, IOException {
+        String sql = "copy endpoint_hit_import (app, uri, ip, timestamp) from stdin with (format csv, header " +
+                header + ")";
+        long rows = copyManager.copyIn(sql, new ProgressInputStream(input));
+        importedRows.increment(rows);
+        return rows;
+    }
+
+    private long copyNdjson(CopyManager copyManager, InputStream input) throws SQLException, IOException {
+        CopyIn copyIn = copyManager.copyIn("copy endpoint_hit_import (app, uri, ip, timestamp, hit_id, hit_count, weight) " +
+                "from stdin with (format csv)");
+        long rows = 0;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            StringBuilder row = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                EndpointHitDto hit = objectMapper.readValue(line, EndpointHitDto.class);
+                row.setLength(0);
+                appendCsv(row, hit.getApp()).append(',');
+                appendCsv(row, hit.getUri()).append(',');
+                appendCsv(row, hit.getIp()).append(',');
+                appendCsv(row, hit.getTimestamp()).append(',');
+                // пустой hitId, как и в /hit, означает хит без идентификатора
+                appendCsv(row, hit.getHitId() == null || hit.getHitId().isBlank() ? null : hit.getHitId()).append(',');
+                if (hit.getCount() != null) {
+                    row.append(hit.getCount());
+                }
+                row.append(',');
+                if (hit.getWeight() != null) {
+                    row.append(hit.getWeight());
+                }
+                row.append('\n');
+                byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+
+                if (++rows % PROGRESS_ROWS == 0) {
+                    importedRows.increment(PROGRESS_ROWS);
+                    log.info("Загружено {} строк журнала хитов", rows);
+                }
+            }
+            long copied = copyIn.endCopy();
+            importedRows.increment(rows % PROGRESS_ROWS);
+            return copied;
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder row, String value) {
+        if (value == null) {
+            return row;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        return row.append('"');
+    }
+
+    /** Считает прочитанные байты и пишет прогресс загрузки CSV в лог */
+    private static class ProgressInputStream extends FilterInputStream {
+        private long bytes;
+        private long nextReport = PROGRESS_BYTES;
+
+        ProgressInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) {
+            bytes += read;
+            if (bytes >= nextReport) {
+                nextReport += PROGRESS_BYTES;
+                log.info("Загружено {} МБ журнала хитов", bytes / (1024 * 1024));
+            }
+        }
+    }
+}
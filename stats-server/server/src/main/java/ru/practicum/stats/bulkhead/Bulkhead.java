@@ -0,0 +1,108 @@
+package ru.practicum.stats.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.practicum.stats.datasource.DataSourceRoute;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Изолированный пул потоков для одного класса запросов с ограниченной очередью.
+ * <p>
+ * Переполнение очереди не занимает потоки Tomcat: задача сразу отклоняется с
+ * {@link RejectedExecutionException}, что отдается клиенту как 503. Если клиент отключился или истек
+ * таймаут ответа, задача прерывается, а ее текущий JDBC-запрос отменяется.
+ * На время задачи потоку выставляется ключ {@link DataSourceRoute}, по которому соединения берутся из пула
+ * этого класса запросов. Загрузка публикуется метриками executor.* и stats.bulkhead.* с тегом bulkhead.
+ */
+@Slf4j
+public class Bulkhead implements AutoCloseable {
+    private final String name;
+    private final String route;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Counter rejected;
+    private final Counter cancelled;
+
+    public Bulkhead(String name, String route, int threads, int queueCapacity, Duration timeout,
+                    MeterRegistry meterRegistry) {
+        this.name = name;
+        this.route = route;
+        this.timeoutMillis = timeout.toMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "stats-" + name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Tags tags = Tags.of("bulkhead", name);
+        new ExecutorServiceMetrics(executor, "stats-" + name, tags).bindTo(meterRegistry);
+        Gauge.builder("stats.bulkhead.saturation", executor,
+                        e -> (double) (e.getActiveCount() + e.getQueue().size()) / (threads + queueCapacity))
+                .tags(tags)
+                .register(meterRegistry);
+        this.rejected = meterRegistry.counter("stats.bulkhead.rejected", tags);
+        this.cancelled = meterRegistry.counter("stats.bulkhead.cancelled", tags);
+    }
+
+    /** Выполняет задачу в пуле и возвращает отложенный результат для асинхронного ответа Spring MVC */
+    public <T> DeferredResult<T> submit(Supplier<T> task) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        QueryCancellation cancellation = new QueryCancellation();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                if (result.isSetOrExpired()) {
+                    return;
+                }
+                cancellation.bind();
+                DataSourceRoute.bind(route);
+                try {
+                    result.setResult(task.get());
+                } catch (Throwable e) {
+                    // Error тоже должен завершить ответ, иначе клиент ждет до таймаута
+                    if (!cancellation.isCancelled()) {
+                        result.setErrorResult(e);
+                    }
+                } finally {
+                    DataSourceRoute.unbind();
+                    cancellation.unbind();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RejectedExecutionException("Пул " + name + " перегружен, повторите запрос позже", e);
+        }
+
+        Runnable cancel = () -> {
+            if (!future.isDone()) {
+                cancelled.increment();
+                log.warn("Запрос в пуле {} отменен: клиент отключился или истек таймаут", name);
+                cancellation.cancel();
+                future.cancel(true);
+            }
+        };
+        result.onTimeout(cancel);
+        result.onError(e -> cancel.run());
+        return result;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.stats.bulkhead;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.stats.datasource.ReplicaRoutingDataSource;
+
+import java.time.Duration;
+
+/**
+ * Раздельные пулы для приема хитов, коротких запросов статистики и длинных проходов по хитам,
+ * чтобы тяжелые запросы не могли занять все потоки и остановить запись.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    @Bean(destroyMethod = "close")
+    public Bulkhead ingestBulkhead(@Value("${stats.bulkhead.ingest.threads:16}") int threads,
+                                   @Value("${stats.bulkhead.ingest.queue-capacity:1000}") int queueCapacity,
+                                   @Value("${stats.bulkhead.ingest.timeout:PT5S}") Duration timeout,
+                                   MeterRegistry meterRegistry) {
+        return new Bulkhead("ingest", ReplicaRoutingDataSource.PRIMARY, threads, queueCapacity, timeout,
+                meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public Bulkhead queryBulkhead(@Value("${stats.bulkhead.query.threads:8}") int threads,
+                                  @Value("${stats.bulkhead.query.queue-capacity:50}") int queueCapacity,
+                                  @Value("${stats.bulkhead.query.timeout:PT30S}") Duration timeout,
+                                  MeterRegistry meterRegistry) {
+        return new Bulkhead("query", ReplicaRoutingDataSource.QUERY, threads, queueCapacity, timeout, meterRegistry);
+    }
+
+    /** Аналитика и пересчеты, читающие хиты периода целиком: без statement_timeout, но с малым числом потоков */
+    @Bean(destroyMethod = "close")
+    public Bulkhead scanBulkhead(@Value("${stats.bulkhead.scan.threads:2}") int threads,
+                                 @Value("${stats.bulkhead.scan.queue-capacity:10}") int queueCapacity,
+                                 @Value("${stats.bulkhead.scan.timeout:PT30M}") Duration timeout,
+                                 MeterRegistry meterRegistry) {
+        return new Bulkhead("scan", ReplicaRoutingDataSource.SCAN, threads, queueCapacity, timeout, meterRegistry);
+    }
+}
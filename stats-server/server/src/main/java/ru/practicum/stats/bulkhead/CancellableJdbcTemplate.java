@@ -0,0 +1,24 @@
+package ru.practicum.stats.bulkhead;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** JdbcTemplate, регистрирующий каждый запрос в {@link QueryCancellation} текущей задачи bulkhead */
+public class CancellableJdbcTemplate extends JdbcTemplate {
+
+    public CancellableJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        QueryCancellation cancellation = QueryCancellation.current();
+        if (cancellation != null) {
+            cancellation.register(stmt);
+        }
+    }
+}
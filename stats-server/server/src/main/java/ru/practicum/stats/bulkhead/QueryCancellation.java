@@ -0,0 +1,56 @@
+package ru.practicum.stats.bulkhead;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Признак отмены запроса, привязанный к потоку задачи bulkhead.
+ * Запоминает текущий JDBC-запрос задачи, чтобы отмена прервала его на стороне базы через Statement.cancel().
+ */
+@Slf4j
+public class QueryCancellation {
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    private volatile Statement statement;
+    private volatile boolean cancelled;
+
+    static QueryCancellation current() {
+        return CURRENT.get();
+    }
+
+    void bind() {
+        CURRENT.set(this);
+    }
+
+    void unbind() {
+        CURRENT.remove();
+        statement = null;
+    }
+
+    /** Запоминает выполняемый запрос; запрос уже отмененной задачи отменяется сразу */
+    void register(Statement statement) throws SQLException {
+        this.statement = statement;
+        if (cancelled) {
+            statement.cancel();
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        Statement current = statement;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.cancel();
+        } catch (SQLException e) {
+            log.warn("Не удалось отменить запрос: {}", e.getMessage());
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,141 @@
+package ru.practicum.stats.cold;
+
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Неизменяемый файл сегмента холодного хранилища.
+ * <p>
+ * Несжатый заголовок: magic, версия, минимальная и максимальная секунда, число строк. Он читается
+ * при старте и служит индексом по времени. Далее в gzip идут строки, упорядоченные по времени:
+ * номера app и uri в словарях, разность времени с предыдущей строкой, разность id, номер ip,
+ * необязательный hitId, число хитов в записи и номер веса. Словари заполняются по ходу строк: номер,
+ * равный текущему размеру словаря, означает новое значение, которое записано сразу за ним.
+ * В сегментах версии 3 словари целиком записаны перед строками; такие сегменты по-прежнему читаются.
+ */
+@Getter
+class ColdSegment {
+    static final int MAGIC = 0x45574D43;
+    static final int VERSION = 4;
+    /** Предыдущая версия, в которой словари записаны перед строками */
+    private static final int VERSION_PREFIXED_DICTIONARIES = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final long minSecond;
+    private final long maxSecond;
+    private final int rows;
+
+    ColdSegment(Path path, long minSecond, long maxSecond, int rows) {
+        this.path = path;
+        this.minSecond = minSecond;
+        this.maxSecond = maxSecond;
+        this.rows = rows;
+    }
+
+    static ColdSegment open(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Неизвестный формат сегмента " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != VERSION_PREFIXED_DICTIONARIES) {
+                throw new IOException("Неизвестная версия " + version + " сегмента " + path);
+            }
+            return new ColdSegment(path, in.readLong(), in.readLong(), in.readInt());
+        }
+    }
+
+    static void writeHeader(DataOutputStream out, long minSecond, long maxSecond, int rows) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(minSecond);
+        out.writeLong(maxSecond);
+        out.writeInt(rows);
+    }
+
+    boolean overlaps(long from, long to) {
+        return minSecond <= to && maxSecond >= from;
+    }
+
+    /** Передает строки сегмента с временем в [from, to]; чтение прекращается, как только время превысит to */
+    void scan(long from, long to, ColdHitConsumer consumer) throws IOException {
+        try (InputStream file = Files.newInputStream(path)) {
+            DataInputStream header = new DataInputStream(file);
+            header.skipBytes(4);
+            int version = header.readInt();
+            header.skipBytes(8 + 8 + 4);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new GZIPInputStream(file, BUFFER_SIZE), BUFFER_SIZE));
+            List<String> apps = new ArrayList<>();
+            List<String> uris = new ArrayList<>();
+            List<String> ips = new ArrayList<>();
+            List<Double> weights = new ArrayList<>();
+            if (version == VERSION_PREFIXED_DICTIONARIES) {
+                readDictionary(in, apps);
+                readDictionary(in, uris);
+                readDictionary(in, ips);
+                long weightCount = VarInts.readLong(in);
+                for (long i = 0; i < weightCount; i++) {
+                    weights.add(in.readDouble());
+                }
+            }
+
+            long second = minSecond;
+            long id = 0;
+            for (int i = 0; i < rows; i++) {
+                String app = readValue(in, apps);
+                String uri = readValue(in, uris);
+                second += VarInts.readLong(in);
+                id += VarInts.readSigned(in);
+                String ip = readValue(in, ips);
+                String hitId = readNullable(in);
+                int count = (int) VarInts.readLong(in);
+                int weightId = (int) VarInts.readLong(in);
+                if (weightId == weights.size()) {
+                    weights.add(in.readDouble());
+                }
+                double weight = weights.get(weightId);
+                if (second > to) {
+                    return;
+                }
+                if (second >= from) {
+                    consumer.accept((int) id, app, uri, ip, second, hitId, count, weight);
+                }
+            }
+        }
+    }
+
+    private static void readDictionary(DataInputStream in, List<String> dictionary) throws IOException {
+        long size = VarInts.readLong(in);
+        for (long i = 0; i < size; i++) {
+            dictionary.add(readNullable(in));
+        }
+    }
+
+    private static String readValue(DataInputStream in, List<String> dictionary) throws IOException {
+        int id = (int) VarInts.readLong(in);
+        if (id == dictionary.size()) {
+            dictionary.add(readNullable(in));
+        }
+        return dictionary.get(id);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    interface ColdHitConsumer {
+        void accept(int id, String app, String uri, String ip, long second, String hitId, int count, double weight);
+    }
+}
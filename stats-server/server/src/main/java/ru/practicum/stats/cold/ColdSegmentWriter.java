@@ -0,0 +1,123 @@
+package ru.practicum.stats.cold;
+
+import ru.practicum.stats.EndpointHit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоково записывает хиты одного сегмента в файл формата {@link ColdSegment}.
+ * Хиты должны добавляться в порядке возрастания времени.
+ * <p>
+ * Строка пишется в файл сразу при добавлении, в памяти остаются только словари значений app, uri, ip
+ * и весов. Заголовок с диапазоном времени и числом строк известен лишь в конце, поэтому на его месте
+ * сначала пишутся нули, а в {@link #finish()} он перезаписывается.
+ */
+public class ColdSegmentWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final GZIPOutputStream gzip;
+    private final DataOutputStream out;
+    private final Map<String, Integer> apps = new HashMap<>();
+    private final Map<String, Integer> uris = new HashMap<>();
+    private final Map<String, Integer> ips = new HashMap<>();
+    private final Map<Double, Integer> weights = new HashMap<>();
+    private long minSecond;
+    private long previousSecond;
+    private long previousId;
+    private int size;
+
+    ColdSegmentWriter(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        OutputStream file = Channels.newOutputStream(channel);
+        DataOutputStream header = new DataOutputStream(file);
+        ColdSegment.writeHeader(header, 0, 0, 0);
+        header.flush();
+        this.gzip = new GZIPOutputStream(file, BUFFER_SIZE);
+        this.out = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+    }
+
+    public void add(EndpointHit hit) throws IOException {
+        long second = hit.getTimestamp().toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+        if (size == 0) {
+            minSecond = second;
+            previousSecond = second;
+        } else if (second < previousSecond) {
+            throw new IllegalArgumentException("Хиты сегмента должны быть упорядочены по времени");
+        }
+        writeValue(apps, hit.getApp());
+        writeValue(uris, hit.getUri());
+        VarInts.writeLong(out, second - previousSecond);
+        VarInts.writeSigned(out, hit.getId() - previousId);
+        writeValue(ips, hit.getIp());
+        writeNullable(out, hit.getHitId());
+        VarInts.writeLong(out, hit.getCount());
+        Integer weight = weights.get(hit.getWeight());
+        if (weight == null) {
+            VarInts.writeLong(out, weights.size());
+            out.writeDouble(hit.getWeight());
+            weights.put(hit.getWeight(), weights.size());
+        } else {
+            VarInts.writeLong(out, weight);
+        }
+        previousSecond = second;
+        previousId = hit.getId();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Дописывает сжатый поток, заполняет заголовок и сбрасывает файл на диск */
+    ColdSegment finish() throws IOException {
+        out.flush();
+        gzip.finish();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColdSegment.writeHeader(new DataOutputStream(bytes), minSecond, previousSecond, size);
+        channel.write(ByteBuffer.wrap(bytes.toByteArray()), 0);
+        channel.force(true);
+        channel.close();
+        return new ColdSegment(path, minSecond, previousSecond, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Номер значения в словаре; новое значение пишется сразу после своего номера, равного размеру словаря */
+    private void writeValue(Map<String, Integer> dictionary, String value) throws IOException {
+        Integer id = dictionary.get(value);
+        if (id != null) {
+            VarInts.writeLong(out, id);
+            return;
+        }
+        VarInts.writeLong(out, dictionary.size());
+        writeNullable(out, value);
+        dictionary.put(value, dictionary.size());
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
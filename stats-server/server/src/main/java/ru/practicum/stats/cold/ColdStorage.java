@@ -0,0 +1,171 @@
+package ru.practicum.stats.cold;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.EndpointHit;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Холодное хранилище старых хитов: неизменяемые сжатые сегменты на локальном диске.
+ * <p>
+ * Заголовки сегментов читаются при старте и образуют индекс по времени, поэтому запрос открывает
+ * только сегменты, пересекающиеся с его периодом. Сегменты пишутся во временный файл и появляются
+ * в индексе только после атомарного переименования.
+ */
+@Slf4j
+@Component
+public class ColdStorage {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final List<ColdSegment> segments = new CopyOnWriteArrayList<>();
+
+    public ColdStorage(@Value("${stats.cold.enabled:false}") boolean enabled,
+                       @Value("${stats.cold.directory:./stats-cold}") String directory) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+    }
+
+    @PostConstruct
+    public void loadIndex() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        List<ColdSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                loaded.add(ColdSegment.open(file));
+            }
+        }
+        loaded.sort(Comparator.comparingLong(ColdSegment::getMinSecond));
+        segments.addAll(loaded);
+        log.info("Загружен индекс холодного хранилища: {} сегментов", loaded.size());
+    }
+
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        long from = toSecond(start);
+        long to = toSecond(end);
+        for (ColdSegment segment : segments) {
+            if (segment.overlaps(from, to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Передает хиты из холодных сегментов с временем в [start, end] */
+    public void scan(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer) {
+        long from = toSecond(start);
+        long to = toSecond(end);
+        for (ColdSegment segment : segments) {
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            try {
+                segment.scan(from, to, (id, app, uri, ip, second, hitId, count, weight) -> consumer.accept(EndpointHit.builder()
+                        .id(id)
+                        .app(app)
+                        .uri(uri)
+                        .ip(ip)
+                        .timestamp(Timestamp.valueOf(LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC)))
+                        .hitId(hitId)
+                        .count(count)
+                        .weight(weight)
+                        .build()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка чтения сегмента " + segment.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Начинает запись сегмента во временный файл. Хиты добавляются через {@link PendingSegment#add(EndpointHit)},
+     * запись завершается {@link PendingSegment#finish()}. Сегмент становится видимым запросам только после
+     * {@link PendingSegment#publish()}, до этого его можно отменить через {@link PendingSegment#discard()}.
+     */
+    public PendingSegment create(LocalDate day) throws IOException {
+        String name = "hits-" + day.format(DAY_FORMAT) + "-" + System.currentTimeMillis();
+        Path temporary = directory.resolve(name + ".tmp");
+        return new PendingSegment(temporary, directory.resolve(name + SEGMENT_SUFFIX), new ColdSegmentWriter(temporary));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static long toSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public class PendingSegment {
+        private final Path temporary;
+        private final Path target;
+        private final ColdSegmentWriter writer;
+        private ColdSegment segment;
+        private ColdSegment published;
+
+        private PendingSegment(Path temporary, Path target, ColdSegmentWriter writer) {
+            this.temporary = temporary;
+            this.target = target;
+            this.writer = writer;
+        }
+
+        /** Хиты добавляются в порядке возрастания времени */
+        public void add(EndpointHit hit) throws IOException {
+            writer.add(hit);
+        }
+
+        /** Завершает запись временного файла и сбрасывает его на диск */
+        public void finish() throws IOException {
+            segment = writer.finish();
+        }
+
+        public void publish() throws IOException {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            published = new ColdSegment(target, segment.getMinSecond(), segment.getMaxSecond(),
+                    segment.getRows());
+            segments.add(published);
+        }
+
+        /** Отменяет сегмент, в том числе уже опубликованный, если транзакция переноса не зафиксировалась */
+        public void discard() throws IOException {
+            writer.close();
+            if (published != null) {
+                segments.remove(published);
+                Files.deleteIfExists(target);
+            }
+            Files.deleteIfExists(temporary);
+        }
+
+        public int getRows() {
+            return writer.size();
+        }
+    }
+}
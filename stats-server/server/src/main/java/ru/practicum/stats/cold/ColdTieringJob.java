@@ -0,0 +1,194 @@
+package ru.practicum.stats.cold;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.EndpointHit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически переносит хиты старше stats.cold.age из endpoint_hit в сегменты {@link ColdStorage}
+ * по одному сегменту на сутки.
+ * <p>
+ * Перенос суток выполняется в одной транзакции: строки читаются курсором и сразу пишутся в сегмент
+ * во временном файле, затем строки удаляются, а публикация сегмента происходит перед коммитом. Строки,
+ * вставленные во время переноса, отсекаются по id и переедут при следующем запуске.
+ * Агрегации endpoint_hit_minute и endpoint_hit_hour не переносятся, поэтому временные ряды по общему числу
+ * хитов продолжают строиться по ним.
+ */
+@Slf4j
+@Component
+@Profile("!memory")
+@ConditionalOnProperty(prefix = "stats.cold", name = "enabled", havingValue = "true")
+public class ColdTieringJob {
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ColdStorage coldStorage;
+    private final Duration age;
+    private final Duration checkInterval;
+    private ScheduledExecutorService scheduler;
+
+    public ColdTieringJob(JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          ColdStorage coldStorage,
+                          @Value("${stats.cold.age:P90D}") Duration age,
+                          @Value("${stats.cold.check-interval:PT1H}") Duration checkInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.coldStorage = coldStorage;
+        this.age = age;
+        this.checkInterval = checkInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-cold-tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = checkInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::runQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /** Переносит в холодное хранилище все полные сутки старше порога */
+    public void run() {
+        LocalDate cutoff = LocalDateTime.now().minus(age).truncatedTo(ChronoUnit.DAYS).toLocalDate();
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "select min(timestamp) from endpoint_hit where timestamp < ?",
+                Timestamp.class, Timestamp.valueOf(cutoff.atStartOfDay()));
+        if (oldest == null) {
+            return;
+        }
+        for (LocalDate day = oldest.toLocalDateTime().toLocalDate(); day.isBefore(cutoff); day = day.plusDays(1)) {
+            LocalDate current = day;
+            Integer rows = transactionTemplate.execute(status -> moveDay(current));
+            if (rows != null && rows > 0) {
+                log.info("Хиты за {} перенесены в холодное хранилище: {} строк", current, rows);
+            }
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.error("Ошибка переноса хитов в холодное хранилище", e);
+        }
+    }
+
+    private int moveDay(LocalDate day) {
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        Integer maxId = jdbcTemplate.queryForObject("select max(id) from endpoint_hit", Integer.class);
+        if (maxId == null) {
+            return 0;
+        }
+
+        ColdStorage.PendingSegment segment;
+        try {
+            segment = coldStorage.create(day);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент за " + day, e);
+        }
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                        "select id, app, uri, ip, timestamp, hit_id, hit_count, weight from endpoint_hit " +
+                                "where timestamp >= ? and timestamp < ? and id <= ? order by timestamp",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setTimestamp(1, from);
+                stmt.setTimestamp(2, to);
+                stmt.setInt(3, maxId);
+                return stmt;
+            }, (RowCallbackHandler) resultSet -> addToSegment(segment, EndpointHit.builder()
+                    .id(resultSet.getInt("id"))
+                    .app(resultSet.getString("app"))
+                    .uri(resultSet.getString("uri"))
+                    .ip(resultSet.getString("ip"))
+                    .timestamp(resultSet.getTimestamp("timestamp"))
+                    .hitId(resultSet.getString("hit_id"))
+                    .count(resultSet.getInt("hit_count"))
+                    .weight(resultSet.getDouble("weight"))
+                    .build()));
+            if (segment.getRows() == 0) {
+                discardQuietly(segment, day);
+                return 0;
+            }
+            segment.finish();
+        } catch (IOException e) {
+            discardQuietly(segment, day);
+            throw new UncheckedIOException("Не удалось записать сегмент за " + day, e);
+        } catch (RuntimeException e) {
+            discardQuietly(segment, day);
+            throw e;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                try {
+                    segment.publish();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Не удалось опубликовать сегмент за " + day, e);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    discardQuietly(segment, day);
+                }
+            }
+        });
+
+        jdbcTemplate.update("delete from endpoint_hit where timestamp >= ? and timestamp < ? and id <= ?",
+                from, to, maxId);
+        return segment.getRows();
+    }
+
+    private static void addToSegment(ColdStorage.PendingSegment segment, EndpointHit hit) {
+        try {
+            segment.add(hit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void discardQuietly(ColdStorage.PendingSegment segment, LocalDate day) {
+        try {
+            segment.discard();
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный сегмент за {}", day, e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.stats.cold;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/** Кодирование целых чисел переменной длины (LEB128) и zigzag для знаковых разностей */
+final class VarInts {
+    private VarInts() {
+    }
+
+    static void writeLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Слишком длинное число в сегменте");
+    }
+
+    static void writeSigned(DataOutput out, long value) throws IOException {
+        writeLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSigned(DataInput in) throws IOException {
+        long value = readLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.practicum.stats.datasource;
+
+/**
+ * Явный ключ маршрутизации соединений, привязанный к потоку. Выставляется bulkhead на время задачи
+ * или длинной выгрузкой на время записи ответа; поток без ключа работает с пулом записи основной базы.
+ */
+public final class DataSourceRoute {
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private DataSourceRoute() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(String route) {
+        CURRENT.set(route);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+}
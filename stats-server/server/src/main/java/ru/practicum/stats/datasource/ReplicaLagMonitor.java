@@ -0,0 +1,139 @@
+package ru.practicum.stats.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Периодически измеряет отставание реплик и выбирает реплику для очередного чтения.
+ * Недоступная или отстающая больше stats.datasource.max-replica-lag реплика исключается из выбора,
+ * пока не догонит основную базу.
+ * <p>
+ * Метрики отставания и пулов реплик регистрируются через {@link MeterBinder}, а не в конструкторе:
+ * монитор нужен источнику данных, а реестр метрик сам зависит от всех источников данных.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements MeterBinder, AutoCloseable {
+    private static final String LAG_QUERY = "select case " +
+            "when not pg_is_in_recovery() then 0 " +
+            "when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 " +
+            "else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0) end";
+
+    private final List<ReplicaState> replicas;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(List<ReplicaState> replicas, Duration maxLag, Duration checkInterval) {
+        this.replicas = replicas;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        for (ReplicaState replica : replicas) {
+            Gauge.builder("stats.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", replica.name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            if (replica.dataSource instanceof HikariDataSource) {
+                ((HikariDataSource) replica.dataSource)
+                        .setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            }
+        }
+    }
+
+    /** Следующая по кругу здоровая реплика или пусто, если читать нужно с основной базы */
+    public Optional<String> nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            ReplicaState replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return Optional.of(replica.name);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void forEachReplica(Consumer<ReplicaState> action) {
+        replicas.forEach(action);
+    }
+
+    private void checkAll() {
+        for (ReplicaState replica : replicas) {
+            check(replica);
+        }
+    }
+
+    private void check(ReplicaState replica) {
+        boolean wasHealthy = replica.healthy;
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+            resultSet.next();
+            replica.lagSeconds = resultSet.getDouble(1);
+            replica.healthy = replica.lagSeconds <= maxLagSeconds;
+        } catch (SQLException e) {
+            replica.lagSeconds = Double.NaN;
+            replica.healthy = false;
+        }
+        if (wasHealthy != replica.healthy) {
+            log.warn("Реплика {} {} (отставание {} с)", replica.name,
+                    replica.healthy ? "снова используется для чтения" : "исключена из чтения", replica.lagSeconds);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (ReplicaState replica : replicas) {
+            if (replica.dataSource instanceof HikariDataSource) {
+                ((HikariDataSource) replica.dataSource).close();
+            }
+        }
+    }
+
+    public static class ReplicaState {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile double lagSeconds = Double.NaN;
+
+        public ReplicaState(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.stats.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Направляет соединения по ключу {@link DataSourceRoute}, выставленному bulkhead:
+ * <ul>
+ *     <li>{@link #QUERY} — короткие запросы статистики: read-only транзакции уходят на реплики, а при их
+ *     отсутствии, как и остальные запросы маршрута, в пул запросов основной базы с ограничением statement_timeout;</li>
+ *     <li>{@link #SCAN} — длинные проходы по хитам (аналитика, выгрузка, пересчет посетителей) в отдельный
+ *     небольшой пул основной базы без statement_timeout;</li>
+ *     <li>{@link #PRIMARY} или отсутствие ключа — пул записи основной базы.</li>
+ * </ul>
+ * Одного признака read-only недостаточно: длинные чтения тоже read-only, но ограничение запросов статистики
+ * их обрывает. Должен оборачиваться в LazyConnectionDataSourceProxy: признак read-only выставляется
+ * уже после того, как менеджер транзакций запросил соединение.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String QUERY = "query";
+    public static final String SCAN = "scan";
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String route = DataSourceRoute.current();
+        if (route == null) {
+            return PRIMARY;
+        }
+        if (QUERY.equals(route) && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return replicaLagMonitor.nextHealthyReplica().orElse(QUERY);
+        }
+        return route;
+    }
+}
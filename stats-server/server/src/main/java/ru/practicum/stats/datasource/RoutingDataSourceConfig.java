@@ -0,0 +1,114 @@
+package ru.practicum.stats.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.practicum.stats.bulkhead.CancellableJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Источник данных с маршрутизацией по ключу {@link DataSourceRoute}: запись хитов идет в пул записи основной базы,
+ * запросы статистики в отдельный пул запросов с ограничением statement_timeout либо, если включено
+ * stats.datasource.routing-enabled, на реплики с учетом их отставания, длинные проходы по хитам — в пул выгрузок.
+ * Пулы настраиваются независимо через stats.datasource.ingest.hikari.*, stats.datasource.query.hikari.*
+ * и stats.datasource.scan.hikari.*.
+ */
+@Configuration
+@Profile("!memory")
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+public class RoutingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("stats.datasource.ingest.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("stats-ingest");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("stats.datasource.query.hikari")
+    public HikariDataSource queryDataSource(DataSourceProperties dataSourceProperties,
+                                            RoutingDataSourceProperties properties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("stats-query");
+        dataSource.setConnectionInitSql(statementTimeoutSql(properties));
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("stats.datasource.scan.hikari")
+    public HikariDataSource scanDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("stats-scan");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaLagMonitor replicaLagMonitor(RoutingDataSourceProperties properties) {
+        List<ReplicaLagMonitor.ReplicaState> replicas = new ArrayList<>();
+        List<RoutingDataSourceProperties.Replica> configured = properties.isRoutingEnabled()
+                ? properties.getReplicas()
+                : List.of();
+        for (int i = 0; i < configured.size(); i++) {
+            RoutingDataSourceProperties.Replica replica = configured.get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("stats-replica-" + i);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setReadOnly(true);
+            dataSource.setConnectionInitSql(statementTimeoutSql(properties));
+            replicas.add(new ReplicaLagMonitor.ReplicaState(dataSource.getPoolName(), dataSource));
+        }
+        return new ReplicaLagMonitor(replicas, properties.getMaxReplicaLag(), properties.getLagCheckInterval());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource queryDataSource,
+                                 HikariDataSource scanDataSource, ReplicaLagMonitor replicaLagMonitor) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        targets.put(ReplicaRoutingDataSource.QUERY, queryDataSource);
+        targets.put(ReplicaRoutingDataSource.SCAN, scanDataSource);
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(replicaLagMonitor);
+        replicaLagMonitor.forEachReplica(replica -> targets.put(replica.getName(), replica.getDataSource()));
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routingDataSource);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new CancellableJdbcTemplate(dataSource);
+    }
+
+    private static String statementTimeoutSql(RoutingDataSourceProperties properties) {
+        return "set statement_timeout = " + properties.getQueryStatementTimeout().toMillis();
+    }
+}
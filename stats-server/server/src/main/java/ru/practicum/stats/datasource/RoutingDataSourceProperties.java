@@ -0,0 +1,29 @@
+package ru.practicum.stats.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "stats.datasource")
+public class RoutingDataSourceProperties {
+    /** Включает маршрутизацию чтения на реплики */
+    private boolean routingEnabled = false;
+    /** Максимально допустимое отставание реплики, после которого чтение уходит на основную базу */
+    private Duration maxReplicaLag = Duration.ofSeconds(5);
+    /** Период проверки отставания реплик */
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+    /** Ограничение времени выполнения запросов статистики в пуле запросов и на репликах */
+    private Duration queryStatementTimeout = Duration.ofSeconds(10);
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,152 @@
+package ru.practicum.stats.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.EndpointHit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Дедупликация повторно присланных хитов по клиентскому идентификатору hitId.
+ * <p>
+ * Решение о записи принимает хранилище: вставка с проверкой уникальности hitId пропускает из одновременных
+ * повторов ровно один. Фильтры Блума служат только предварительным фильтром: при положительном ответе
+ * сначала ищется уже сохраненный хит, чтобы вернуть его без попытки записи, а несовпадения учитываются
+ * как ложноположительные срабатывания. Отрицательный ответ сразу ведет к записи.
+ * <p>
+ * Идентификаторы распределяются по полосам, у каждой полосы своя блокировка и пара фильтров (текущий
+ * и предыдущий), которые сменяются раз в окно stats.dedup.window. Блокировка защищает только фильтры
+ * и не удерживается во время обращений к хранилищу.
+ */
+@Slf4j
+@Component
+public class HitDeduplicator {
+    private final Stripe[] stripes;
+    private final long windowMillis;
+    private final int insertionsPerStripe;
+    private final double falsePositiveRate;
+    private final Clock clock;
+
+    private final Counter checks;
+    private final Counter bloomPositives;
+    private final Counter duplicates;
+    private final Counter falsePositives;
+
+    public HitDeduplicator(@Value("${stats.dedup.stripes:64}") int stripeCount,
+                           @Value("${stats.dedup.window:PT24H}") Duration window,
+                           @Value("${stats.dedup.expected-insertions:1000000}") int expectedInsertions,
+                           @Value("${stats.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+                           MeterRegistry meterRegistry) {
+        this.windowMillis = window.toMillis();
+        this.insertionsPerStripe = Math.max(1, expectedInsertions / stripeCount);
+        this.falsePositiveRate = falsePositiveRate;
+        this.clock = Clock.systemUTC();
+        this.stripes = new Stripe[stripeCount];
+        long now = clock.millis();
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(newFilter(), now);
+        }
+
+        this.checks = meterRegistry.counter("stats.dedup.checks");
+        this.bloomPositives = meterRegistry.counter("stats.dedup.bloom.positives");
+        this.duplicates = meterRegistry.counter("stats.dedup.duplicates");
+        this.falsePositives = meterRegistry.counter("stats.dedup.false.positives");
+        Gauge.builder("stats.dedup.false.positive.rate", this, HitDeduplicator::observedFalsePositiveRate)
+                .description("Доля ложноположительных ответов фильтра Блума среди новых hitId")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Записывает хит не более одного раза для данного hitId.
+     *
+     * @param hitId      клиентский идентификатор хита
+     * @param lookup     ранее сохраненный хит с этим hitId, если он еще в горячем хранилище
+     * @param insertOnce запись хита с точной проверкой hitId; пустой результат означает повтор
+     * @return новый хит, ранее сохраненный хит для повтора или пустой результат для повтора,
+     * исходный хит которого уже не найти
+     */
+    public Optional<EndpointHit> addOnce(String hitId, Supplier<Optional<EndpointHit>> lookup,
+                                         Supplier<Optional<EndpointHit>> insertOnce) {
+        long hash = BloomFilter.hash(hitId);
+        Stripe stripe = stripes[(int) ((hash >>> 1) % stripes.length)];
+        checks.increment();
+
+        boolean mightContain;
+        stripe.lock.lock();
+        try {
+            stripe.rotateIfExpired(clock.millis());
+            mightContain = stripe.mightContain(hash);
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (mightContain) {
+            bloomPositives.increment();
+            Optional<EndpointHit> existing = lookup.get();
+            if (existing.isPresent()) {
+                duplicates.increment();
+                log.info("Повтор хита с hitId={} пропущен", hitId);
+                return existing;
+            }
+        }
+
+        Optional<EndpointHit> inserted = insertOnce.get();
+        if (inserted.isEmpty()) {
+            duplicates.increment();
+            log.info("Повтор хита с hitId={} пропущен", hitId);
+            return lookup.get();
+        }
+        if (mightContain) {
+            falsePositives.increment();
+        }
+        stripe.lock.lock();
+        try {
+            stripe.current.put(hash);
+        } finally {
+            stripe.lock.unlock();
+        }
+        return inserted;
+    }
+
+    private double observedFalsePositiveRate() {
+        double newIds = checks.count() - duplicates.count();
+        return newIds <= 0 ? 0 : falsePositives.count() / newIds;
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(insertionsPerStripe, falsePositiveRate);
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private BloomFilter current;
+        private BloomFilter previous;
+        private long rotatedAt;
+
+        private Stripe(BloomFilter current, long rotatedAt) {
+            this.current = current;
+            this.previous = null;
+            this.rotatedAt = rotatedAt;
+        }
+
+        private void rotateIfExpired(long now) {
+            if (now - rotatedAt < windowMillis) {
+                return;
+            }
+            previous = now - rotatedAt < 2 * windowMillis ? current : null;
+            current = newFilter();
+            rotatedAt = now;
+        }
+
+        private boolean mightContain(long hash) {
+            return current.mightContain(hash) || previous != null && previous.mightContain(hash);
+        }
+    }
+}
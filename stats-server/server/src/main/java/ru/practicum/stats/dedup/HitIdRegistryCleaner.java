@@ -0,0 +1,93 @@
+package ru.practicum.stats.dedup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Удаляет из реестра endpoint_hit_id идентификаторы старше stats.dedup.retention, чтобы реестр
+ * не рос вместе с числом хитов. Дедупликация ограничена окном повторов клиента: по умолчанию
+ * хранятся два окна фильтров Блума stats.dedup.window. Повтор, пришедший позже, будет учтен как новый хит.
+ * <p>
+ * Строки удаляются порциями по {@value #BATCH_SIZE}, чтобы не держать долгих блокировок
+ * и не раздувать одну транзакцию.
+ */
+@Slf4j
+@Component
+@Profile("!memory")
+public class HitIdRegistryCleaner {
+    private static final int BATCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final Duration cleanupInterval;
+    private ScheduledExecutorService scheduler;
+
+    public HitIdRegistryCleaner(JdbcTemplate jdbcTemplate,
+                                @Value("${stats.dedup.window:PT24H}") Duration window,
+                                @Value("${stats.dedup.retention:PT48H}") Duration retention,
+                                @Value("${stats.dedup.cleanup-interval:PT1H}") Duration cleanupInterval) {
+        if (retention.compareTo(window) < 0) {
+            log.warn("stats.dedup.retention {} меньше окна дедупликации {}: повторы внутри окна могут быть учтены",
+                    retention, window);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        this.cleanupInterval = cleanupInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-hit-id-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = cleanupInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::cleanQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Удаляет идентификаторы, заявленные раньше stats.dedup.retention
+     *
+     * @return число удаленных идентификаторов
+     */
+    public long clean() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        long deleted = 0;
+        int batch;
+        do {
+            batch = jdbcTemplate.update("delete from endpoint_hit_id where hit_id in (" +
+                    "select hit_id from endpoint_hit_id where created < ? limit " + BATCH_SIZE + ")", cutoff);
+            deleted += batch;
+        } while (batch == BATCH_SIZE);
+        if (deleted > 0) {
+            log.info("Из реестра hitId удалено {} идентификаторов старше {}", deleted, cutoff);
+        }
+        return deleted;
+    }
+
+    private void cleanQuietly() {
+        try {
+            clean();
+        } catch (RuntimeException e) {
+            log.error("Ошибка очистки реестра hitId", e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.stats.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Подавление повторных просмотров: пара (app, uri, ip) учитывается не чаще одного раза
+ * за окно stats.repeat-view.window. По умолчанию окно нулевое и правило выключено.
+ * <p>
+ * Время последнего учтенного хита хранится в ConcurrentHashMap. При превышении stats.repeat-view.max-entries
+ * из нее удаляются записи старше окна, а если этого мало, карта очищается целиком: в худшем случае
+ * будет учтено несколько лишних повторов, но память останется ограниченной.
+ */
+@Slf4j
+@Component
+public class RepeatViewFilter {
+    private final long windowMillis;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Long> lastCounted = new ConcurrentHashMap<>();
+    private final AtomicLong latestTimestamp = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Counter suppressed;
+
+    public RepeatViewFilter(@Value("${stats.repeat-view.window:PT0S}") Duration window,
+                            @Value("${stats.repeat-view.max-entries:1000000}") int maxEntries,
+                            MeterRegistry meterRegistry) {
+        this.windowMillis = window.toMillis();
+        this.maxEntries = maxEntries;
+        this.suppressed = meterRegistry.counter("stats.hits.suppressed");
+        meterRegistry.gaugeMapSize("stats.repeat-view.entries", List.of(), lastCounted);
+    }
+
+    /**
+     * @return true, если хит нужно учесть, false, если это повтор внутри окна
+     */
+    public boolean shouldCount(EndpointHitDto endpointHitDto) {
+        if (windowMillis <= 0) {
+            return true;
+        }
+
+        long timestamp = Timestamp.valueOf(endpointHitDto.getTimestamp()).getTime();
+        latestTimestamp.accumulateAndGet(timestamp, Math::max);
+        String key = endpointHitDto.getApp() + '\n' + endpointHitDto.getUri() + '\n' + endpointHitDto.getIp();
+
+        boolean[] counted = new boolean[1];
+        lastCounted.compute(key, (k, last) -> {
+            if (last == null || Math.abs(timestamp - last) >= windowMillis) {
+                counted[0] = true;
+                return timestamp;
+            }
+            return last;
+        });
+
+        if (!counted[0]) {
+            suppressed.increment();
+            return false;
+        }
+        if (lastCounted.size() > maxEntries) {
+            evict();
+        }
+        return true;
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long expiredBefore = latestTimestamp.get() - windowMillis;
+            lastCounted.values().removeIf(last -> last <= expiredBefore);
+            if (lastCounted.size() > maxEntries) {
+                log.warn("Окно подавления повторов переполнено ({} записей), состояние сброшено", lastCounted.size());
+                lastCounted.clear();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
@@ -6,6 +6,9 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestControllerAdvice("ru.practicum.stats")
@@ -25,6 +28,20 @@ public class ErrorHandler {
         return new ErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST.value());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleRejectedExecutionException(final RejectedExecutionException e) {
+        log.warn(e.getMessage());
+        return new ErrorResponse(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleAsyncRequestTimeoutException(final AsyncRequestTimeoutException e) {
+        log.warn("Истек таймаут выполнения запроса");
+        return new ErrorResponse("Истек таймаут выполнения запроса", HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleThrowable(final Throwable e) {
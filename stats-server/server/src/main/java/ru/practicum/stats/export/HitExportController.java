@@ -0,0 +1,36 @@
+package ru.practicum.stats.export;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(path = "/admin/hits")
+public class HitExportController {
+    private final HitExportService hitExportService;
+
+    /**
+     * Потоковая выгрузка сырых хитов за период в CSV, сжатом gzip. Тело пишется асинхронно,
+     * поток Tomcat освобождается сразу после проверки параметров.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHits(@RequestParam(name = "start") String start,
+                                                            @RequestParam(name = "end") String end) {
+        log.info("Запрос на выгрузку хитов с {} по {}", start, end);
+        StreamingResponseBody body = hitExportService.exportCsvGzip(start, end);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"hits.csv.gz\"")
+                .body(body);
+    }
+}
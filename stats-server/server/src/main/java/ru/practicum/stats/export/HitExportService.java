@@ -0,0 +1,7 @@
+package ru.practicum.stats.export;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface HitExportService {
+    StreamingResponseBody exportCsvGzip(String start, String end);
+}
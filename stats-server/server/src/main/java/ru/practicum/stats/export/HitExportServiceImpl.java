@@ -0,0 +1,115 @@
+package ru.practicum.stats.export;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.stats.EndpointHit;
+import ru.practicum.stats.EndpointHitRepository;
+import ru.practicum.stats.cold.ColdStorage;
+import ru.practicum.stats.datasource.DataSourceRoute;
+import ru.practicum.stats.datasource.ReplicaRoutingDataSource;
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка сырых хитов за период в CSV со сжатием gzip.
+ * Строки пишутся в выходной поток по мере чтения курсором, поэтому объем выгрузки не влияет на кучу.
+ * Параметры проверяются сразу, а чтение начинается только при записи тела ответа. Сначала выгружаются
+ * дни из холодных сегментов, затем хиты из endpoint_hit; база читается через пул длинных выборок
+ * без statement_timeout.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HitExportServiceImpl implements HitExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String HEADER = "id,app,uri,ip,timestamp,hit_id,count,weight\n";
+
+    private final EndpointHitRepository endpointHitRepository;
+    private final ColdStorage coldStorage;
+
+    @Override
+    public StreamingResponseBody exportCsvGzip(String start, String end) {
+        LocalDateTime startDate = Timestamp.valueOf(start).toLocalDateTime();
+        LocalDateTime endDate = Timestamp.valueOf(end).toLocalDateTime();
+        if (startDate.isAfter(endDate)) {
+            throw new InvalidPathVariableException("Некорректные даты: начальная дата должна быть раньше конечной даты");
+        }
+
+        return output -> {
+            DataSourceRoute.bind(ReplicaRoutingDataSource.SCAN);
+            try {
+                long rows = write(startDate, endDate, output);
+                log.info("Выгружено {} хитов с {} по {}", rows, start, end);
+            } finally {
+                DataSourceRoute.unbind();
+            }
+        };
+    }
+
+    private long write(LocalDateTime startDate, LocalDateTime endDate, OutputStream output) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(output, BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(HEADER);
+        long[] rows = new long[1];
+        Consumer<EndpointHit> rowWriter = hit -> {
+            writeRow(writer, hit);
+            rows[0]++;
+        };
+        try {
+            if (coldStorage.overlaps(startDate, endDate)) {
+                coldStorage.scan(startDate, endDate, rowWriter);
+            }
+            endpointHitRepository.scanHits(startDate, endDate, rowWriter);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        gzip.finish();
+        return rows[0];
+    }
+
+    private static void writeRow(Writer writer, EndpointHit hit) {
+        try {
+            writer.write(String.valueOf(hit.getId()));
+            writer.write(',');
+            writeField(writer, hit.getApp());
+            writer.write(',');
+            writeField(writer, hit.getUri());
+            writer.write(',');
+            writeField(writer, hit.getIp());
+            writer.write(',');
+            writeField(writer, hit.getTimestamp() == null ? null : hit.getTimestamp().toLocalDateTime().toString());
+            writer.write(',');
+            writeField(writer, hit.getHitId());
+            writer.write(',');
+            writer.write(String.valueOf(hit.getCount()));
+            writer.write(',');
+            writer.write(String.valueOf(hit.getWeight()));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
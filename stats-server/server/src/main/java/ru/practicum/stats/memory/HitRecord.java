@@ -0,0 +1,49 @@
+package ru.practicum.stats.memory;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/** Запись журнала упреждающей записи о сохраненном хите */
+@Getter
+@AllArgsConstructor
+class HitRecord {
+    private final int id;
+    private final long second;
+    private final String app;
+    private final String uri;
+    private final String ip;
+    private final String hitId;
+    private final int count;
+    private final double weight;
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeLong(second);
+        writeNullable(out, app);
+        writeNullable(out, uri);
+        writeNullable(out, ip);
+        writeNullable(out, hitId);
+        out.writeInt(count);
+        out.writeDouble(weight);
+    }
+
+    static HitRecord read(DataInput in) throws IOException {
+        return new HitRecord(in.readInt(), in.readLong(), readNullable(in), readNullable(in), readNullable(in),
+                readNullable(in), in.readInt(), in.readDouble());
+    }
+
+    static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
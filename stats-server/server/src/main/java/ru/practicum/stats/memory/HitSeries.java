@@ -0,0 +1,123 @@
+package ru.practicum.stats.memory;
+
+import java.util.Arrays;
+
+/**
+ * Хиты одной пары (app, uri) в колонках примитивов: id, секунда, id IP из словаря, необязательный hitId
+ * число хитов в записи и ее вес при выборочной отправке.
+ * Колонки только дописываются, поэтому снятое под блокировкой представление {@link View}
+ * можно читать без блокировки, пока запись продолжается.
+ */
+class HitSeries {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int index;
+    private final String app;
+    private final String uri;
+    private final MinuteCounter minutes = new MinuteCounter();
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] seconds = new long[INITIAL_CAPACITY];
+    private int[] ips = new int[INITIAL_CAPACITY];
+    private String[] hitIds = new String[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private double[] weights = new double[INITIAL_CAPACITY];
+    private int size;
+    private boolean sorted = true;
+
+    HitSeries(int index, String app, String uri) {
+        this.index = index;
+        this.app = app;
+        this.uri = uri;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    String getApp() {
+        return app;
+    }
+
+    String getUri() {
+        return uri;
+    }
+
+    /** @return позиция хита в колонках */
+    synchronized int append(int id, long second, int ip, String hitId, int count, double weight) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+            ips = Arrays.copyOf(ips, capacity);
+            hitIds = Arrays.copyOf(hitIds, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        if (size > 0 && second < seconds[size - 1]) {
+            sorted = false;
+        }
+        ids[size] = id;
+        seconds[size] = second;
+        ips[size] = ip;
+        hitIds[size] = hitId;
+        counts[size] = count;
+        weights[size] = weight;
+        minutes.add(Math.floorDiv(second, 60), count * weight);
+        return size++;
+    }
+
+    synchronized View view() {
+        return new View(ids, seconds, ips, hitIds, counts, weights, size, sorted);
+    }
+
+    synchronized void forEachMinute(long fromMinute, long toMinute, MinuteCounter.MinuteConsumer consumer) {
+        minutes.forEach(fromMinute, toMinute, consumer);
+    }
+
+    static final class View {
+        final int[] ids;
+        final long[] seconds;
+        final int[] ips;
+        final String[] hitIds;
+        final int[] counts;
+        final double[] weights;
+        final int size;
+        private final boolean sorted;
+
+        private View(int[] ids, long[] seconds, int[] ips, String[] hitIds, int[] counts, double[] weights, int size,
+                     boolean sorted) {
+            this.ids = ids;
+            this.seconds = seconds;
+            this.ips = ips;
+            this.hitIds = hitIds;
+            this.counts = counts;
+            this.weights = weights;
+            this.size = size;
+            this.sorted = sorted;
+        }
+
+        /** Первая позиция, которую нужно просмотреть для периода, начинающегося с from */
+        int lowerBound(long from) {
+            return sorted ? search(from) : 0;
+        }
+
+        /** Позиция после последней, которую нужно просмотреть для периода, заканчивающегося to */
+        int upperBound(long to) {
+            return sorted ? search(to + 1) : size;
+        }
+
+        private int search(long second) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (seconds[mid] < second) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
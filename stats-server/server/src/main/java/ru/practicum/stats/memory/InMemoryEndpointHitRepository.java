@@ -0,0 +1,548 @@
+package ru.practicum.stats.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
+import ru.practicum.stats.EndpointHit;
+import ru.practicum.stats.EndpointHitMapper;
+import ru.practicum.stats.EndpointHitRepository;
+import ru.practicum.stats.TimeSeriesInterval;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище хитов в памяти процесса для запуска stats-server без PostgreSQL (профиль memory).
+ * <p>
+ * Хиты каждой пары (app, uri) лежат в колонках примитивов {@link HitSeries} с поминутными счетчиками,
+ * IP-адреса кодируются словарем. Долговечность обеспечивает {@link WriteAheadLog} с групповым fsync
+ * и периодические снапшоты: после снапшота старые сегменты журнала удаляются, а при старте состояние
+ * восстанавливается из последнего снапшота и хвоста журнала. Время восстановления пишется в лог.
+ */
+@Slf4j
+@Repository
+@Profile("memory")
+public class InMemoryEndpointHitRepository implements EndpointHitRepository {
+    private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int SNAPSHOT_MAGIC = 0x45574D53;
+    private static final int SNAPSHOT_VERSION = 3;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    /** Позиция hitId, занятого записью, которая еще не добавлена в серию */
+    private static final long PENDING_POSITION = -1;
+
+    private final Path directory;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+    private final boolean syncWrites;
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, HitSeries>> seriesByApp =
+            new ConcurrentHashMap<>();
+    private final List<HitSeries> series = new CopyOnWriteArrayList<>();
+    private final IpDictionary ips = new IpDictionary();
+    private final ConcurrentHashMap<String, Long> positionsByHitId = new ConcurrentHashMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+    /** Запись берет блокировку на чтение, снятие снапшота на запись, чтобы снапшот совпал с границей журнала */
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private WriteAheadLog wal;
+    private ScheduledExecutorService snapshotScheduler;
+
+    public InMemoryEndpointHitRepository(@Value("${stats.memory.data-dir:./stats-data}") String directory,
+                                         @Value("${stats.memory.fsync-interval:PT0.01S}") Duration fsyncInterval,
+                                         @Value("${stats.memory.snapshot-interval:PT5M}") Duration snapshotInterval,
+                                         @Value("${stats.memory.sync-writes:true}") boolean syncWrites) {
+        this.directory = Paths.get(directory);
+        this.fsyncInterval = fsyncInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.syncWrites = syncWrites;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        long started = System.currentTimeMillis();
+        Files.createDirectories(directory);
+
+        long firstSegment = loadSnapshot();
+        long snapshotLoaded = System.currentTimeMillis();
+        long lastSegment = WriteAheadLog.replay(directory, firstSegment, this::apply);
+        wal = new WriteAheadLog(directory, Math.max(firstSegment, lastSegment + 1), fsyncInterval);
+
+        long finished = System.currentTimeMillis();
+        log.info("Хранилище хитов восстановлено за {} мс: снапшот {} мс, журнал {} мс, хитов {}",
+                finished - started, snapshotLoaded - started, finished - snapshotLoaded, lastId.get());
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = snapshotInterval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        snapshotScheduler.shutdownNow();
+        snapshot();
+        wal.close();
+    }
+
+    @Override
+    public EndpointHit addHit(EndpointHitDto endpointHitDto) {
+        long second = toSecond(Timestamp.valueOf(endpointHitDto.getTimestamp()).toLocalDateTime());
+        int id;
+        long sequence;
+        snapshotLock.readLock().lock();
+        try {
+            id = lastId.incrementAndGet();
+            HitRecord record = new HitRecord(id, second, endpointHitDto.getApp(), endpointHitDto.getUri(),
+                    endpointHitDto.getIp(), endpointHitDto.getHitId(), EndpointHitMapper.countOf(endpointHitDto),
+                    EndpointHitMapper.weightOf(endpointHitDto));
+            sequence = wal.append(record);
+            apply(record);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        if (syncWrites) {
+            wal.awaitDurable(sequence);
+        }
+        return EndpointHitMapper.toEndpointHit(id, endpointHitDto);
+    }
+
+    @Override
+    public Optional<EndpointHit> addHitOnce(EndpointHitDto endpointHitDto) {
+        String hitId = endpointHitDto.getHitId();
+        if (positionsByHitId.putIfAbsent(hitId, PENDING_POSITION) != null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(addHit(endpointHitDto));
+        } catch (RuntimeException e) {
+            positionsByHitId.remove(hitId, PENDING_POSITION);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<EndpointHit> findByHitId(String hitId) {
+        Long position = positionsByHitId.get(hitId);
+        if (position == null || position == PENDING_POSITION) {
+            return Optional.empty();
+        }
+        HitSeries hitSeries = series.get((int) (position >>> 32));
+        return Optional.of(toEndpointHit(hitSeries, hitSeries.view(), (int) (long) position));
+    }
+
+    @Override
+    public List<EndpointHitStatDto> getHits(String start, String end, String[] uris, boolean unique) {
+        long from = toSecond(LocalDateTime.parse(start, df));
+        long to = toSecond(LocalDateTime.parse(end, df));
+
+        List<EndpointHitStatDto> result = new ArrayList<>();
+        for (HitSeries hitSeries : select(uris)) {
+            HitSeries.View view = hitSeries.view();
+            int lo = view.lowerBound(from);
+            int hi = view.upperBound(to);
+            BitSet distinct = unique ? new BitSet() : null;
+            double hits = 0;
+            double variance = 0;
+            boolean sampled = false;
+            boolean found = false;
+            for (int i = lo; i < hi; i++) {
+                long second = view.seconds[i];
+                if (second < from || second > to) {
+                    continue;
+                }
+                found = true;
+                if (unique) {
+                    distinct.set(view.ips[i]);
+                } else {
+                    double weight = view.weights[i];
+                    hits += view.counts[i] * weight;
+                    variance += view.counts[i] * weight * (weight - 1);
+                    sampled |= weight > 1;
+                }
+            }
+            if (found) {
+                result.add(EndpointHitStatDto.builder()
+                        .app(hitSeries.getApp())
+                        .uri(hitSeries.getUri())
+                        .hits(unique ? distinct.cardinality() : (int) Math.round(hits))
+                        .hitsError(sampled ? Math.sqrt(variance) : null)
+                        .build());
+            }
+        }
+        result.sort(Comparator.comparing(EndpointHitStatDto::getHits).reversed());
+        return result;
+    }
+
+    @Override
+    public List<EndpointHitStatDto> getUniqueHits(String start, String end, String[] uris,
+                                                  Map<List<String>, Set<String>> extraIps) {
+        long from = toSecond(LocalDateTime.parse(start, df));
+        long to = toSecond(LocalDateTime.parse(end, df));
+
+        Map<List<String>, Set<String>> remaining = new HashMap<>(extraIps);
+        List<EndpointHitStatDto> result = new ArrayList<>();
+        for (HitSeries hitSeries : select(uris)) {
+            HitSeries.View view = hitSeries.view();
+            BitSet distinct = new BitSet();
+            for (int i = view.lowerBound(from); i < view.upperBound(to); i++) {
+                long second = view.seconds[i];
+                if (second >= from && second <= to) {
+                    distinct.set(view.ips[i]);
+                }
+            }
+            int hits = distinct.cardinality();
+            Set<String> extra = remaining.remove(Arrays.asList(hitSeries.getApp(), hitSeries.getUri()));
+            if (extra != null) {
+                for (String ip : extra) {
+                    int id = ips.find(ip);
+                    if (id < 0 || !distinct.get(id)) {
+                        hits++;
+                    }
+                }
+            }
+            if (hits > 0) {
+                result.add(EndpointHitStatDto.builder()
+                        .app(hitSeries.getApp())
+                        .uri(hitSeries.getUri())
+                        .hits(hits)
+                        .build());
+            }
+        }
+        remaining.forEach((key, values) -> result.add(EndpointHitStatDto.builder()
+                .app(key.get(0))
+                .uri(key.get(1))
+                .hits(values.size())
+                .build()));
+        result.sort(Comparator.comparing(EndpointHitStatDto::getHits).reversed());
+        return result;
+    }
+
+    @Override
+    public List<EndpointHitTimeSeriesDto> getTimeSeries(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                        TimeSeriesInterval interval, boolean unique) {
+        long from = toSecond(start);
+        long to = toSecond(end);
+        long bucketMinutes = interval.getDuration().toMinutes();
+
+        List<EndpointHitTimeSeriesDto> result = new ArrayList<>();
+        for (HitSeries hitSeries : select(uris)) {
+            Map<Long, double[]> hitsByBucket = new HashMap<>();
+            Map<Long, BitSet> ipsByBucket = new HashMap<>();
+            if (unique) {
+                HitSeries.View view = hitSeries.view();
+                for (int i = view.lowerBound(from); i < view.upperBound(to); i++) {
+                    long second = view.seconds[i];
+                    if (second < from || second > to) {
+                        continue;
+                    }
+                    long bucket = Math.floorDiv(Math.floorDiv(second, 60), bucketMinutes);
+                    hitsByBucket.computeIfAbsent(bucket, b -> new double[1])[0] += view.counts[i] * view.weights[i];
+                    ipsByBucket.computeIfAbsent(bucket, b -> new BitSet()).set(view.ips[i]);
+                }
+            } else {
+                hitSeries.forEachMinute(Math.floorDiv(from, 60), Math.floorDiv(to, 60), (minute, count) ->
+                        hitsByBucket.computeIfAbsent(Math.floorDiv(minute, bucketMinutes), b -> new double[1])[0] += count);
+            }
+            hitsByBucket.forEach((bucket, hits) -> result.add(EndpointHitTimeSeriesDto.builder()
+                    .app(hitSeries.getApp())
+                    .uri(hitSeries.getUri())
+                    .bucket(toLocalDateTime(bucket * bucketMinutes * 60).format(df))
+                    .hits((int) Math.round(hits[0]))
+                    .uniqueHits(unique ? ipsByBucket.get(bucket).cardinality() : null)
+                    .build()));
+        }
+        result.sort(Comparator.comparing(EndpointHitTimeSeriesDto::getApp, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(EndpointHitTimeSeriesDto::getUri, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(EndpointHitTimeSeriesDto::getBucket));
+        return result;
+    }
+
+    @Override
+    public List<EndpointHitTimeSeriesDto> getUniqueTimeSeries(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                              TimeSeriesInterval interval,
+                                                              Map<List<String>, Map<String, Double>> extraHits) {
+        Map<List<String>, Map<String, Double>> remaining = new HashMap<>(extraHits);
+        List<EndpointHitTimeSeriesDto> result = new ArrayList<>();
+        long from = toSecond(start);
+        long to = toSecond(end);
+        long bucketMinutes = interval.getDuration().toMinutes();
+        for (HitSeries hitSeries : select(uris)) {
+            Map<Long, double[]> hitsByBucket = new HashMap<>();
+            Map<Long, BitSet> ipsByBucket = new HashMap<>();
+            HitSeries.View view = hitSeries.view();
+            for (int i = view.lowerBound(from); i < view.upperBound(to); i++) {
+                long second = view.seconds[i];
+                if (second < from || second > to) {
+                    continue;
+                }
+                long bucket = Math.floorDiv(Math.floorDiv(second, 60), bucketMinutes);
+                hitsByBucket.computeIfAbsent(bucket, b -> new double[1])[0] += view.counts[i] * view.weights[i];
+                ipsByBucket.computeIfAbsent(bucket, b -> new BitSet()).set(view.ips[i]);
+            }
+            for (Map.Entry<Long, double[]> entry : hitsByBucket.entrySet()) {
+                String bucket = toLocalDateTime(entry.getKey() * bucketMinutes * 60).format(df);
+                BitSet distinct = ipsByBucket.get(entry.getKey());
+                int uniqueHits = distinct.cardinality();
+                double hits = entry.getValue()[0];
+                Map<String, Double> extra = remaining.remove(Arrays.asList(hitSeries.getApp(), hitSeries.getUri(), bucket));
+                if (extra != null) {
+                    for (Map.Entry<String, Double> ip : extra.entrySet()) {
+                        hits += ip.getValue();
+                        if (ip.getKey() != null) {
+                            int id = ips.find(ip.getKey());
+                            if (id < 0 || !distinct.get(id)) {
+                                uniqueHits++;
+                            }
+                        }
+                    }
+                }
+                result.add(EndpointHitTimeSeriesDto.builder()
+                        .app(hitSeries.getApp())
+                        .uri(hitSeries.getUri())
+                        .bucket(bucket)
+                        .hits((int) Math.round(hits))
+                        .uniqueHits(uniqueHits)
+                        .build());
+            }
+        }
+        remaining.forEach((key, values) -> result.add(EndpointHitTimeSeriesDto.builder()
+                .app(key.get(0))
+                .uri(key.get(1))
+                .bucket(key.get(2))
+                .hits((int) Math.round(values.values().stream().mapToDouble(Double::doubleValue).sum()))
+                .uniqueHits((int) values.keySet().stream().filter(ip -> ip != null).count())
+                .build()));
+        result.sort(Comparator.comparing(EndpointHitTimeSeriesDto::getApp, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(EndpointHitTimeSeriesDto::getUri, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(EndpointHitTimeSeriesDto::getBucket));
+        return result;
+    }
+
+    @Override
+    public void scanHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer) {
+        long from = toSecond(start);
+        long to = toSecond(end);
+        for (HitSeries hitSeries : series) {
+            HitSeries.View view = hitSeries.view();
+            for (int i = view.lowerBound(from); i < view.upperBound(to); i++) {
+                long second = view.seconds[i];
+                if (second >= from && second <= to) {
+                    consumer.accept(toEndpointHit(hitSeries, view, i));
+                }
+            }
+        }
+    }
+
+    private void apply(HitRecord record) {
+        HitSeries hitSeries = seriesByApp
+                .computeIfAbsent(nullToEmpty(record.getApp()), app -> new ConcurrentHashMap<>())
+                .computeIfAbsent(nullToEmpty(record.getUri()), uri -> register(record.getApp(), record.getUri()));
+        int position = hitSeries.append(record.getId(), record.getSecond(), ips.idOf(record.getIp()), record.getHitId(),
+                record.getCount(), record.getWeight());
+        if (record.getHitId() != null) {
+            positionsByHitId.put(record.getHitId(), (long) hitSeries.getIndex() << 32 | position);
+        }
+        lastId.accumulateAndGet(record.getId(), Math::max);
+    }
+
+    private synchronized HitSeries register(String app, String uri) {
+        HitSeries hitSeries = new HitSeries(series.size(), app, uri);
+        series.add(hitSeries);
+        return hitSeries;
+    }
+
+    private List<HitSeries> select(String[] uris) {
+        if (uris == null || uris.length == 0) {
+            return series;
+        }
+        Set<String> filter = new HashSet<>(Arrays.asList(uris));
+        List<HitSeries> selected = new ArrayList<>();
+        for (HitSeries hitSeries : series) {
+            if (filter.contains(hitSeries.getUri())) {
+                selected.add(hitSeries);
+            }
+        }
+        return selected;
+    }
+
+    private EndpointHit toEndpointHit(HitSeries hitSeries, HitSeries.View view, int position) {
+        return EndpointHit.builder()
+                .id(view.ids[position])
+                .app(hitSeries.getApp())
+                .uri(hitSeries.getUri())
+                .ip(ips.get(view.ips[position]))
+                .timestamp(Timestamp.valueOf(toLocalDateTime(view.seconds[position])))
+                .hitId(view.hitIds[position])
+                .count(view.counts[position])
+                .weight(view.weights[position])
+                .build();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("Не удалось сохранить снапшот хитов", e);
+        }
+    }
+
+    /**
+     * Снимает снапшот: под блокировкой переключает журнал на новый сегмент и фиксирует размеры колонок,
+     * затем без блокировки пишет файл, атомарно подменяет им прежний снапшот и удаляет старые сегменты.
+     */
+    synchronized void snapshot() throws IOException {
+        long started = System.currentTimeMillis();
+        long nextSegment;
+        List<HitSeries.View> views = new ArrayList<>();
+        List<HitSeries> captured;
+        String[] ipValues;
+        int capturedLastId;
+        snapshotLock.writeLock().lock();
+        try {
+            nextSegment = wal.rotate();
+            captured = new ArrayList<>(series);
+            for (HitSeries hitSeries : captured) {
+                views.add(hitSeries.view());
+            }
+            ipValues = ips.copy();
+            capturedLastId = lastId.get();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(nextSegment);
+            out.writeInt(capturedLastId);
+            out.writeInt(ipValues.length);
+            for (String ip : ipValues) {
+                out.writeUTF(ip);
+            }
+            out.writeInt(captured.size());
+            for (int s = 0; s < captured.size(); s++) {
+                HitSeries hitSeries = captured.get(s);
+                HitSeries.View view = views.get(s);
+                HitRecord.writeNullable(out, hitSeries.getApp());
+                HitRecord.writeNullable(out, hitSeries.getUri());
+                out.writeInt(view.size);
+                for (int i = 0; i < view.size; i++) {
+                    out.writeInt(view.ids[i]);
+                    out.writeLong(view.seconds[i]);
+                    out.writeInt(view.ips[i]);
+                    HitRecord.writeNullable(out, view.hitIds[i]);
+                    out.writeInt(view.counts[i]);
+                    out.writeDouble(view.weights[i]);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        wal.deleteSegmentsBefore(nextSegment);
+        log.info("Снапшот хитов сохранен за {} мс", System.currentTimeMillis() - started);
+    }
+
+    /** @return номер первого сегмента журнала, который нужно воспроизвести поверх снапшота */
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Неизвестный формат снапшота " + file);
+            }
+            long firstSegment = in.readLong();
+            lastId.set(in.readInt());
+            int ipCount = in.readInt();
+            for (int i = 0; i < ipCount; i++) {
+                ips.idOf(in.readUTF());
+            }
+            int seriesCount = in.readInt();
+            for (int s = 0; s < seriesCount; s++) {
+                String app = HitRecord.readNullable(in);
+                String uri = HitRecord.readNullable(in);
+                HitSeries hitSeries = seriesByApp
+                        .computeIfAbsent(nullToEmpty(app), key -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(nullToEmpty(uri), key -> register(app, uri));
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    int id = in.readInt();
+                    long second = in.readLong();
+                    int ip = in.readInt();
+                    String hitId = HitRecord.readNullable(in);
+                    int count = in.readInt();
+                    double weight = in.readDouble();
+                    int position = hitSeries.append(id, second, ip, hitId, count, weight);
+                    if (hitId != null) {
+                        positionsByHitId.put(hitId, (long) hitSeries.getIndex() << 32 | position);
+                    }
+                }
+            }
+            return firstSegment;
+        }
+    }
+
+    private static long toSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toLocalDateTime(long second) {
+        return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.stats.memory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Словарь IP-адресов: каждому адресу выдается плотный int-идентификатор в порядке появления */
+class IpDictionary {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private String[] values = new String[1024];
+    private int size;
+
+    int idOf(String ip) {
+        String key = ip == null ? "" : ip;
+        Integer id = ids.get(key);
+        return id != null ? id : register(key);
+    }
+
+    /** Идентификатор уже известного адреса или -1, новый адрес при этом не регистрируется */
+    int find(String ip) {
+        Integer id = ids.get(ip == null ? "" : ip);
+        return id == null ? -1 : id;
+    }
+
+    synchronized String get(int id) {
+        String ip = values[id];
+        return ip.isEmpty() ? null : ip;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized String[] copy() {
+        return Arrays.copyOf(values, size);
+    }
+
+    private synchronized int register(String ip) {
+        Integer existing = ids.get(ip);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = ip;
+        ids.put(ip, size);
+        return size++;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.stats.memory;
+
+import java.util.Arrays;
+
+/**
+ * Взвешенные суммы хитов по минутам: хеш-таблица с открытой адресацией long -> double без упаковки в объекты.
+ * Не потокобезопасна, синхронизация на стороне {@link HitSeries}.
+ */
+class MinuteCounter {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private double[] counts;
+    private int size;
+
+    MinuteCounter() {
+        allocate(16);
+    }
+
+    void add(long minute, double delta) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize();
+        }
+        int slot = find(keys, minute);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = minute;
+            size++;
+        }
+        counts[slot] += delta;
+    }
+
+    void forEach(long fromMinute, long toMinute, MinuteConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            long minute = keys[i];
+            if (minute != EMPTY && minute >= fromMinute && minute <= toMinute) {
+                consumer.accept(minute, counts[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        double[] oldCounts = counts;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new double[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private static int find(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @FunctionalInterface
+    interface MinuteConsumer {
+        void accept(long minute, double count);
+    }
+}
@@ -0,0 +1,253 @@
+package ru.practicum.stats.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи хитов, разбитый на сегменты wal-N.log.
+ * <p>
+ * Каждая запись хранится как [длина][CRC32][данные]. Записи копятся в буфере, а фоновый поток раз в
+ * stats.memory.fsync-interval сбрасывает их на диск одним fsync для всей накопленной группы.
+ * Если включено ожидание, {@link #awaitDurable(long)} возвращает управление только после fsync записи.
+ * При восстановлении чтение сегмента останавливается на первой неполной или поврежденной записи.
+ */
+@Slf4j
+class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition durableCondition = lock.newCondition();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+
+    private long segment;
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long appended;
+    private long durable;
+
+    WriteAheadLog(Path directory, long segment, Duration fsyncInterval) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        open();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-wal-fsync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, fsyncInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::syncQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return порядковый номер записи для {@link #awaitDurable(long)} */
+    long append(HitRecord record) {
+        lock.lock();
+        try {
+            recordBuffer.reset();
+            record.write(recordOut);
+            crc.reset();
+            crc.update(recordBuffer.toByteArray());
+            out.writeInt(recordBuffer.size());
+            out.writeInt((int) crc.getValue());
+            recordBuffer.writeTo(out);
+            return ++appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать хит в журнал", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durable < sequence) {
+                durableCondition.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Закрывает текущий сегмент и начинает новый; возвращает номер нового сегмента */
+    long rotate() throws IOException {
+        syncLock.lock();
+        try {
+            sync();
+            lock.lock();
+            try {
+                out.close();
+                segment++;
+                open();
+                return segment;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    void deleteSegmentsBefore(long firstKept) throws IOException {
+        for (Path path : segments(directory)) {
+            if (segmentNumber(path) < firstKept) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        syncLock.lock();
+        try {
+            sync();
+            out.close();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void syncQuietly() {
+        syncLock.lock();
+        try {
+            sync();
+        } catch (IOException e) {
+            log.error("Не удалось выполнить fsync журнала хитов", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Вызывается под syncLock: сброс буфера под lock, fsync без него, чтобы не останавливать запись */
+    private void sync() throws IOException {
+        long target;
+        lock.lock();
+        try {
+            if (durable == appended) {
+                return;
+            }
+            out.flush();
+            target = appended;
+        } finally {
+            lock.unlock();
+        }
+        channel.force(false);
+        lock.lock();
+        try {
+            durable = Math.max(durable, target);
+            durableCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(directory.resolve(PREFIX + segment + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+    }
+
+    /**
+     * Воспроизводит записи всех сегментов начиная с firstSegment.
+     *
+     * @return номер последнего найденного сегмента или firstSegment - 1, если сегментов нет
+     */
+    static long replay(Path directory, long firstSegment, Consumer<HitRecord> consumer) throws IOException {
+        long last = firstSegment - 1;
+        for (Path path : segments(directory)) {
+            long number = segmentNumber(path);
+            if (number < firstSegment) {
+                continue;
+            }
+            last = number;
+            long records = replaySegment(path, consumer);
+            log.info("Из сегмента {} журнала восстановлено {} хитов", path.getFileName(), records);
+        }
+        return last;
+    }
+
+    private static long replaySegment(Path path, Consumer<HitRecord> consumer) throws IOException {
+        long records = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, BUFFER_SIZE))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] data;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > BUFFER_SIZE) {
+                        log.warn("Сегмент {} поврежден после {} записей", path.getFileName(), records);
+                        return records;
+                    }
+                    data = in.readNBytes(length);
+                } catch (EOFException e) {
+                    return records;
+                }
+                crc.reset();
+                crc.update(data);
+                if (data.length < length || (int) crc.getValue() != checksum) {
+                    log.warn("Сегмент {} обрывается после {} записей", path.getFileName(), records);
+                    return records;
+                }
+                consumer.accept(HitRecord.read(new DataInputStream(new ByteArrayInputStream(data))));
+                records++;
+            }
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).forEach(segments::add);
+        }
+        segments.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        return segments;
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
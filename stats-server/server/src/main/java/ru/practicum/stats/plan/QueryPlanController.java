@@ -0,0 +1,30 @@
+package ru.practicum.stats.plan;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@Profile("!memory")
+@ConditionalOnProperty(prefix = "stats.plan-check", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class QueryPlanController {
+    private final QueryPlanService queryPlanService;
+
+    /** Проверка планов запросов статистики; при полном проходе по endpoint_hit отвечает 409 */
+    @GetMapping("/admin/query-plans")
+    public ResponseEntity<List<QueryPlanReport>> check() {
+        log.info("Проверка планов запросов");
+        List<QueryPlanReport> reports = queryPlanService.check();
+        boolean passed = reports.stream().allMatch(QueryPlanReport::isPassed);
+        return ResponseEntity.status(passed ? HttpStatus.OK : HttpStatus.CONFLICT).body(reports);
+    }
+}
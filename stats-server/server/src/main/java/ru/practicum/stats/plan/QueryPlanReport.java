@@ -0,0 +1,21 @@
+package ru.practicum.stats.plan;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Результат EXPLAIN одной формы запроса: passed = false, если план читает endpoint_hit полным проходом */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueryPlanReport {
+    private String shape;
+    private String sql;
+    private boolean passed;
+    private List<String> seqScans;
+    private String plan;
+}
@@ -0,0 +1,8 @@
+package ru.practicum.stats.plan;
+
+import java.util.List;
+
+public interface QueryPlanService {
+    /** Выполняет EXPLAIN для каждой формы запроса к endpoint_hit, не изменяя данных */
+    List<QueryPlanReport> check();
+}
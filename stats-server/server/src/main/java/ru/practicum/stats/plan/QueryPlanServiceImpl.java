@@ -0,0 +1,94 @@
+package ru.practicum.stats.plan;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.practicum.stats.EndpointHitQueries;
+import ru.practicum.stats.TimeSeriesInterval;
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Регрессионная проверка планов: для каждой формы запроса из {@link EndpointHitQueries} выполняется EXPLAIN
+ * с параметрами, типичными для работы сервиса, — последние сутки данных и пара реальных URI.
+ * <p>
+ * Проверка только читает планы и ничего не пишет в базу. На почти пустой таблице планировщик честно выбирает
+ * полный проход, поэтому запускать ее стоит на заполненной базе; тест QueryPlanServiceImplTest
+ * заполняет синтетическими хитами локальную базу.
+ */
+@Slf4j
+@Service
+@Profile("!memory")
+@ConditionalOnProperty(prefix = "stats.plan-check", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class QueryPlanServiceImpl implements QueryPlanService {
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Override
+    public List<QueryPlanReport> check() {
+        Timestamp last = jdbcTemplate.queryForObject("select max(timestamp) from endpoint_hit", Timestamp.class);
+        if (last == null) {
+            throw new InvalidPathVariableException("Таблица endpoint_hit пуста: планы имеет смысл проверять на заполненной базе");
+        }
+        Timestamp first = Timestamp.valueOf(last.toLocalDateTime().minusDays(1));
+        String[] uris = jdbcTemplate.queryForList("select distinct uri from endpoint_hit " +
+                "where timestamp between ? and ? and uri is not null limit 2", String.class, first, last)
+                .toArray(new String[0]);
+        if (uris.length == 0) {
+            uris = new String[]{"/"};
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", first)
+                .addValue("end", last)
+                .addValue("uris", Arrays.asList(uris))
+                .addValue("uriHashes", EndpointHitQueries.uriHashes(uris));
+
+        Map<String, String> shapes = new LinkedHashMap<>();
+        shapes.put("hits", EndpointHitQueries.hits(false, false));
+        shapes.put("hits by uris", EndpointHitQueries.hits(false, true));
+        shapes.put("unique hits", EndpointHitQueries.hits(true, false));
+        shapes.put("unique hits by uris", EndpointHitQueries.hits(true, true));
+        shapes.put("unique time series", EndpointHitQueries.uniqueTimeSeries(TimeSeriesInterval.HOUR, false));
+        shapes.put("unique time series by uris", EndpointHitQueries.uniqueTimeSeries(TimeSeriesInterval.HOUR, true));
+        shapes.put("scan", EndpointHitQueries.SCAN_HITS);
+
+        List<QueryPlanReport> reports = new ArrayList<>();
+        shapes.forEach((shape, sql) -> {
+            String plan = String.join("\n", namedJdbcTemplate.queryForList("explain " + sql, params, String.class));
+            List<String> seqScans = new ArrayList<>();
+            Matcher matcher = SEQ_SCAN.matcher(plan);
+            while (matcher.find()) {
+                seqScans.add(matcher.group(1));
+            }
+            boolean passed = !seqScans.contains("endpoint_hit");
+            if (!passed) {
+                log.warn("План запроса {} читает endpoint_hit полным проходом:\n{}", shape, plan);
+            }
+            reports.add(QueryPlanReport.builder()
+                    .shape(shape)
+                    .sql(sql)
+                    .passed(passed)
+                    .seqScans(seqScans)
+                    .plan(plan)
+                    .build());
+        });
+        return reports;
+    }
+}
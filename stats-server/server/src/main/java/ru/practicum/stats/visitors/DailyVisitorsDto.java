@@ -0,0 +1,16 @@
+package ru.practicum.stats.visitors;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Уникальные посетители за скользящее окно из window суток, заканчивающееся днем day */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyVisitorsDto {
+    private String day;
+    private Long visitors;
+}
@@ -0,0 +1,46 @@
+package ru.practicum.stats.visitors;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Суточные множества посетителей для профиля memory. Хранятся только в памяти процесса:
+ * после перезапуска счетчики восстанавливаются через POST /admin/visitors/rebuild.
+ */
+@Repository
+@Profile("memory")
+public class InMemoryUniqueVisitorRepository implements UniqueVisitorRepository {
+    private final Map<String, Integer> ipIds = new HashMap<>();
+    private final Map<VisitorKey, RoaringBitmap> bitmaps = new HashMap<>();
+
+    @Override
+    public synchronized void merge(Map<VisitorKey, Set<String>> visitors) {
+        visitors.forEach((key, ips) -> {
+            RoaringBitmap bitmap = bitmaps.computeIfAbsent(key, k -> new RoaringBitmap());
+            for (String ip : ips) {
+                bitmap.add(ipIds.computeIfAbsent(ip, k -> ipIds.size() + 1));
+            }
+            bitmap.runOptimize();
+        });
+    }
+
+    @Override
+    public synchronized Map<LocalDate, RoaringBitmap> findDaily(String app, String uri, LocalDate start,
+                                                                LocalDate end) {
+        Map<LocalDate, RoaringBitmap> result = new TreeMap<>();
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            RoaringBitmap bitmap = bitmaps.get(new VisitorKey(app, uri, day));
+            if (bitmap != null) {
+                result.put(day, bitmap.clone());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.stats.visitors;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.practicum.stats.bulkhead.Bulkhead;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class UniqueVisitorController {
+    private final UniqueVisitorService uniqueVisitorService;
+    private final Bulkhead queryBulkhead;
+    private final Bulkhead scanBulkhead;
+
+    /** Уникальные посетители приложения или URI за период, например за календарный месяц (MAU) */
+    @GetMapping("/stats/visitors")
+    public DeferredResult<UniqueVisitorsDto> getVisitors(@RequestParam(name = "app") String app,
+                                                         @RequestParam(name = "uri", required = false) String uri,
+                                                         @RequestParam(name = "start") String start,
+                                                         @RequestParam(name = "end") String end) {
+        log.info("Уникальные посетители {} {} с {} по {}", app, uri, start, end);
+        return queryBulkhead.submit(() -> uniqueVisitorService.getVisitors(app, uri, start, end));
+    }
+
+    /** Посетители по дням: window=1 дает DAU, window=30 — скользящий MAU */
+    @GetMapping("/stats/visitors/daily")
+    public DeferredResult<List<DailyVisitorsDto>> getDailyVisitors(
+            @RequestParam(name = "app") String app,
+            @RequestParam(name = "uri", required = false) String uri,
+            @RequestParam(name = "start") String start,
+            @RequestParam(name = "end") String end,
+            @RequestParam(name = "window", defaultValue = "1") int window) {
+        log.info("Уникальные посетители {} {} по дням с {} по {}, окно {}", app, uri, start, end, window);
+        return queryBulkhead.submit(() -> uniqueVisitorService.getDailyVisitors(app, uri, start, end, window));
+    }
+
+    /**
+     * Пересчет счетчиков по сохраненным хитам, например после загрузки журнала через /admin/hits/import.
+     * Читает хиты периода целиком, поэтому выполняется в bulkhead длинных выборок, а не в потоке Tomcat.
+     */
+    @PostMapping("/admin/visitors/rebuild")
+    public DeferredResult<Long> rebuild(@RequestParam(name = "start") String start,
+                                        @RequestParam(name = "end") String end) {
+        log.info("Пересчет счетчиков посетителей с {} по {}", start, end);
+        return scanBulkhead.submit(() -> uniqueVisitorService.rebuild(start, end));
+    }
+}
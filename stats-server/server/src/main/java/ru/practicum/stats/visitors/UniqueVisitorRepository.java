@@ -0,0 +1,23 @@
+package ru.practicum.stats.visitors;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Хранилище суточных множеств уникальных посетителей. IP-адреса заменяются номерами из словаря,
+ * а множества хранятся как сжатые битмапы, поэтому сутки объединяются без обращения к сырым хитам.
+ */
+public interface UniqueVisitorRepository {
+    /** Добавляет IP-адреса к сохраненным множествам соответствующих суток */
+    void merge(Map<VisitorKey, Set<String>> visitors);
+
+    /**
+     * Множества посетителей по дням периода включительно. Дни без посетителей в результат не попадают.
+     *
+     * @param uri URI или null для приложения целиком
+     */
+    Map<LocalDate, RoaringBitmap> findDaily(String app, String uri, LocalDate start, LocalDate end);
+}
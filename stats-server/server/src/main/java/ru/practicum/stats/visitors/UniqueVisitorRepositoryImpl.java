@@ -0,0 +1,179 @@
+package ru.practicum.stats.visitors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.EndpointHitQueries;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Суточные множества посетителей в PostgreSQL. Номера IP-адресов выдает таблица ip_dictionary,
+ * битмапы приложений лежат в unique_visitors_app_daily, битмапы URI — в unique_visitors_uri_daily.
+ * Строки URI ищутся по хешу URI (см. {@link EndpointHitQueries#uriHash(String)}) с проверкой самого URI:
+ * длинный URI не помещается в ключ первичного индекса.
+ * <p>
+ * Слияние читает строку с блокировкой, объединяет битмапы и записывает результат, поэтому
+ * несколько экземпляров сервера могут сбрасывать свои счетчики одновременно. Ключи и адреса
+ * обрабатываются в отсортированном порядке, чтобы такие транзакции не блокировали друг друга по кругу.
+ */
+@Slf4j
+@Repository
+@Profile("!memory")
+public class UniqueVisitorRepositoryImpl implements UniqueVisitorRepository {
+    private static final Comparator<VisitorKey> KEY_ORDER = Comparator.comparing(VisitorKey::getApp)
+            .thenComparing(VisitorKey::getUri, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(VisitorKey::getDay);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int ipCacheSize;
+    private final ConcurrentHashMap<String, Integer> ipIds = new ConcurrentHashMap<>();
+
+    public UniqueVisitorRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                       @Value("${stats.visitors.ip-cache-size:1000000}") int ipCacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ipCacheSize = ipCacheSize;
+    }
+
+    @Override
+    @Transactional
+    public void merge(Map<VisitorKey, Set<String>> visitors) {
+        Set<String> ips = new HashSet<>();
+        visitors.values().forEach(ips::addAll);
+        Map<String, Integer> ids = resolveIps(ips);
+
+        List<VisitorKey> keys = new ArrayList<>(visitors.keySet());
+        keys.sort(KEY_ORDER);
+        for (VisitorKey key : keys) {
+            RoaringBitmap added = new RoaringBitmap();
+            for (String ip : visitors.get(key)) {
+                added.add(ids.get(ip));
+            }
+            mergeRow(key, added);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<LocalDate, RoaringBitmap> findDaily(String app, String uri, LocalDate start, LocalDate end) {
+        Map<LocalDate, RoaringBitmap> result = new TreeMap<>();
+        RowCallbackHandler handler = rs -> result.put(rs.getDate("day").toLocalDate(),
+                deserialize(rs.getBytes("visitors")));
+        if (uri == null) {
+            jdbcTemplate.query("select day, visitors from unique_visitors_app_daily " +
+                            "where app = ? and day between ? and ?",
+                    handler, app, Date.valueOf(start), Date.valueOf(end));
+        } else {
+            jdbcTemplate.query("select day, visitors from unique_visitors_uri_daily " +
+                            "where app = ? and uri_hash = ? and uri = ? and day between ? and ?",
+                    handler, app, EndpointHitQueries.uriHash(uri), uri, Date.valueOf(start), Date.valueOf(end));
+        }
+        return result;
+    }
+
+    private void mergeRow(VisitorKey key, RoaringBitmap added) {
+        Date day = Date.valueOf(key.getDay());
+        byte[] stored;
+        if (key.getUri() == null) {
+            jdbcTemplate.update("insert into unique_visitors_app_daily(app, day, visitors) values (?, ?, ?) " +
+                    "on conflict (app, day) do nothing", key.getApp(), day, serialize(new RoaringBitmap()));
+            stored = jdbcTemplate.queryForObject("select visitors from unique_visitors_app_daily " +
+                    "where app = ? and day = ? for update", byte[].class, key.getApp(), day);
+        } else {
+            jdbcTemplate.update("insert into unique_visitors_uri_daily(app, uri, day, visitors) values (?, ?, ?, ?) " +
+                    "on conflict (app, uri_hash, day) do nothing", key.getApp(), key.getUri(), day,
+                    serialize(new RoaringBitmap()));
+            stored = jdbcTemplate.queryForObject("select visitors from unique_visitors_uri_daily " +
+                    "where app = ? and uri_hash = ? and uri = ? and day = ? for update", byte[].class,
+                    key.getApp(), EndpointHitQueries.uriHash(key.getUri()), key.getUri(), day);
+        }
+
+        RoaringBitmap bitmap = deserialize(stored);
+        if (bitmap.contains(added)) {
+            return;
+        }
+        bitmap.or(added);
+        bitmap.runOptimize();
+        if (key.getUri() == null) {
+            jdbcTemplate.update("update unique_visitors_app_daily set visitors = ? where app = ? and day = ?",
+                    serialize(bitmap), key.getApp(), day);
+        } else {
+            jdbcTemplate.update("update unique_visitors_uri_daily set visitors = ? " +
+                            "where app = ? and uri_hash = ? and uri = ? and day = ?",
+                    serialize(bitmap), key.getApp(), EndpointHitQueries.uriHash(key.getUri()), key.getUri(), day);
+        }
+    }
+
+    /** Номера IP-адресов из словаря; недостающие адреса добавляются в словарь одной вставкой */
+    private Map<String, Integer> resolveIps(Set<String> ips) {
+        Map<String, Integer> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String ip : ips) {
+            Integer id = ipIds.get(ip);
+            if (id == null) {
+                missing.add(ip);
+            } else {
+                result.put(ip, id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        missing.sort(Comparator.naturalOrder());
+        String[] values = missing.toArray(new String[0]);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(
+                    "insert into ip_dictionary(ip) select unnest(?) on conflict (ip) do nothing");
+            stmt.setArray(1, connection.createArrayOf("varchar", values));
+            return stmt;
+        });
+        if (ipIds.size() + missing.size() > ipCacheSize) {
+            ipIds.clear();
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement stmt = connection.prepareStatement("select id, ip from ip_dictionary where ip = any(?)");
+            stmt.setArray(1, connection.createArrayOf("varchar", values));
+            return stmt;
+        }, (RowCallbackHandler) rs -> {
+            result.put(rs.getString("ip"), rs.getInt("id"));
+            ipIds.put(rs.getString("ip"), rs.getInt("id"));
+        });
+        return result;
+    }
+
+    private static byte[] serialize(RoaringBitmap bitmap) {
+        ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+        bitmap.serialize(buffer);
+        return buffer.array();
+    }
+
+    private static RoaringBitmap deserialize(byte[] bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        try {
+            bitmap.deserialize(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Поврежден битмап посетителей", e);
+        }
+        return bitmap;
+    }
+}
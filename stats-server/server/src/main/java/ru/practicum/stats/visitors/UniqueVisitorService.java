@@ -0,0 +1,12 @@
+package ru.practicum.stats.visitors;
+
+import java.util.List;
+
+public interface UniqueVisitorService {
+    UniqueVisitorsDto getVisitors(String app, String uri, String start, String end);
+
+    List<DailyVisitorsDto> getDailyVisitors(String app, String uri, String start, String end, int window);
+
+    /** Заново заполняет счетчики посетителей по хитам периода, включая холодное хранилище */
+    long rebuild(String start, String end);
+}
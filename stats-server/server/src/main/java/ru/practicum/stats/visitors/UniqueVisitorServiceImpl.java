@@ -0,0 +1,127 @@
+package ru.practicum.stats.visitors;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+import ru.practicum.stats.EndpointHit;
+import ru.practicum.stats.EndpointHitRepository;
+import ru.practicum.stats.cold.ColdStorage;
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * DAU/MAU по суточным битмапам посетителей: число посетителей за период или скользящее окно
+ * получается объединением битмапов нужных суток, сырые хиты при этом не читаются.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UniqueVisitorServiceImpl implements UniqueVisitorService {
+    /** Ограничение на длину периода и окна в сутках */
+    private static final long MAX_DAYS = 366;
+
+    private final UniqueVisitorRepository uniqueVisitorRepository;
+    private final UniqueVisitorTracker uniqueVisitorTracker;
+    private final EndpointHitRepository endpointHitRepository;
+    private final ColdStorage coldStorage;
+
+    @Override
+    public UniqueVisitorsDto getVisitors(String app, String uri, String start, String end) {
+        LocalDate startDay = parseDay(start);
+        LocalDate endDay = parseDay(end);
+        validateRange(startDay, endDay);
+
+        Map<LocalDate, RoaringBitmap> daily = uniqueVisitorRepository.findDaily(app, blankToNull(uri), startDay, endDay);
+        return UniqueVisitorsDto.builder()
+                .app(app)
+                .uri(blankToNull(uri))
+                .start(start)
+                .end(end)
+                .visitors(RoaringBitmap.or(daily.values().iterator()).getLongCardinality())
+                .build();
+    }
+
+    @Override
+    public List<DailyVisitorsDto> getDailyVisitors(String app, String uri, String start, String end, int window) {
+        LocalDate startDay = parseDay(start);
+        LocalDate endDay = parseDay(end);
+        validateRange(startDay, endDay);
+        if (window < 1 || window > MAX_DAYS) {
+            throw new InvalidPathVariableException("Окно должно быть от 1 до " + MAX_DAYS + " суток");
+        }
+
+        Map<LocalDate, RoaringBitmap> daily = uniqueVisitorRepository.findDaily(app, blankToNull(uri),
+                startDay.minusDays(window - 1), endDay);
+        List<DailyVisitorsDto> result = new ArrayList<>();
+        for (LocalDate day = startDay; !day.isAfter(endDay); day = day.plusDays(1)) {
+            List<RoaringBitmap> days = new ArrayList<>(window);
+            for (LocalDate d = day.minusDays(window - 1); !d.isAfter(day); d = d.plusDays(1)) {
+                RoaringBitmap bitmap = daily.get(d);
+                if (bitmap != null) {
+                    days.add(bitmap);
+                }
+            }
+            result.add(DailyVisitorsDto.builder()
+                    .day(day.toString())
+                    .visitors(RoaringBitmap.or(days.iterator()).getLongCardinality())
+                    .build());
+        }
+        return result;
+    }
+
+    @Override
+    public long rebuild(String start, String end) {
+        LocalDate startDay = parseDay(start);
+        LocalDate endDay = parseDay(end);
+        validateRange(startDay, endDay);
+
+        AtomicLong processed = new AtomicLong();
+        Consumer<EndpointHit> recorder = hit -> {
+            uniqueVisitorTracker.record(hit);
+            processed.incrementAndGet();
+        };
+        // по суткам, чтобы в памяти не копились адреса всего периода
+        for (LocalDate day = startDay; !day.isAfter(endDay); day = day.plusDays(1)) {
+            LocalDateTime from = day.atStartOfDay();
+            LocalDateTime to = day.plusDays(1).atStartOfDay().minusNanos(1);
+            endpointHitRepository.scanHits(from, to, recorder);
+            if (coldStorage.overlaps(from, to)) {
+                coldStorage.scan(from, to, recorder);
+            }
+            uniqueVisitorTracker.flush();
+        }
+        log.info("Счетчики посетителей с {} по {} пересчитаны по {} хитам", start, end, processed.get());
+        return processed.get();
+    }
+
+    private static LocalDate parseDay(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidPathVariableException("Некорректная дата " + value + ", ожидается формат yyyy-MM-dd");
+        }
+    }
+
+    private static void validateRange(LocalDate start, LocalDate end) {
+        if (start.isAfter(end)) {
+            throw new InvalidPathVariableException("Некорректные даты: начальная дата должна быть раньше конечной даты");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+            throw new InvalidPathVariableException("Период не должен превышать " + MAX_DAYS + " суток");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.stats.visitors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.EndpointHit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накапливает IP-адреса посетителей при приеме хитов и раз в stats.visitors.flush-interval
+ * сливает их в {@link UniqueVisitorRepository}. Хит учитывается дважды: в счетчике приложения
+ * и в счетчике своего URI. Добавление в множество идемпотентно, поэтому повторная запись того же
+ * хита счетчики не искажает. Данные становятся видны в запросах после очередного сброса.
+ */
+@Slf4j
+@Component
+public class UniqueVisitorTracker {
+    private final UniqueVisitorRepository uniqueVisitorRepository;
+    private final Duration flushInterval;
+    private final ConcurrentHashMap<VisitorKey, Set<String>> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public UniqueVisitorTracker(UniqueVisitorRepository uniqueVisitorRepository,
+                                @Value("${stats.visitors.flush-interval:PT10S}") Duration flushInterval) {
+        this.uniqueVisitorRepository = uniqueVisitorRepository;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-visitors-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        flushQuietly();
+    }
+
+    public void record(EndpointHit hit) {
+        if (hit.getIp() == null || hit.getTimestamp() == null) {
+            return;
+        }
+        String app = hit.getApp() == null ? "" : hit.getApp();
+        LocalDate day = hit.getTimestamp().toLocalDateTime().toLocalDate();
+        add(new VisitorKey(app, null, day), hit.getIp());
+        add(new VisitorKey(app, hit.getUri() == null ? "" : hit.getUri(), day), hit.getIp());
+    }
+
+    /** Сливает накопленные адреса в хранилище; при ошибке они возвращаются в очередь */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<VisitorKey, Set<String>> batch = new HashMap<>();
+        for (VisitorKey key : pending.keySet()) {
+            Set<String> ips = pending.remove(key);
+            if (ips != null) {
+                batch.put(key, ips);
+            }
+        }
+        try {
+            uniqueVisitorRepository.merge(batch);
+        } catch (RuntimeException e) {
+            batch.forEach((key, ips) -> ips.forEach(ip -> add(key, ip)));
+            throw e;
+        }
+        log.debug("Сброшены счетчики уникальных посетителей: {} записей", batch.size());
+    }
+
+    private void add(VisitorKey key, String ip) {
+        // compute держит блокировку ключа, поэтому адрес не потеряется при одновременном сбросе
+        pending.compute(key, (k, ips) -> {
+            Set<String> result = ips == null ? new HashSet<>() : ips;
+            result.add(ip);
+            return result;
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка сброса счетчиков уникальных посетителей", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.stats.visitors;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Число уникальных посетителей приложения или URI за период из целых суток */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UniqueVisitorsDto {
+    private String app;
+    private String uri;
+    private String start;
+    private String end;
+    private Long visitors;
+}
@@ -1,10 +1,81 @@
-drop table if exists endpoint_hit;
-
 create table if not exists
 endpoint_hit (
 id integer PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY NOT NULL,
 app	varchar(100),
 uri	varchar(8000),
+uri_hash uuid GENERATED ALWAYS AS (md5(uri)::uuid) STORED,
 ip varchar(45),
-timestamp timestamp
+timestamp timestamp,
+hit_id varchar(64),
+hit_count integer NOT NULL DEFAULT 1,
+weight double precision NOT NULL DEFAULT 1
+);
+
+alter table endpoint_hit add column if not exists uri_hash uuid GENERATED ALWAYS AS (md5(uri)::uuid) STORED;
+alter table endpoint_hit add column if not exists hit_id varchar(64);
+alter table endpoint_hit add column if not exists hit_count integer NOT NULL DEFAULT 1;
+alter table endpoint_hit add column if not exists weight double precision NOT NULL DEFAULT 1;
+
+create index if not exists endpoint_hit_hit_id_idx on endpoint_hit (hit_id) where hit_id is not null;
+create index if not exists endpoint_hit_timestamp_brin on endpoint_hit using brin (timestamp);
+create index if not exists endpoint_hit_uri_hash_timestamp_idx on endpoint_hit (uri_hash, timestamp) include (app, ip, hit_count, weight);
+
+create table if not exists
+endpoint_hit_id (
+hit_id varchar(64) PRIMARY KEY,
+created timestamp NOT NULL DEFAULT now()
+);
+
+alter table endpoint_hit_id add column if not exists created timestamp NOT NULL DEFAULT now();
+
+create index if not exists endpoint_hit_id_created_idx on endpoint_hit_id (created);
+
+create table if not exists
+endpoint_hit_minute (
+app	varchar(100) NOT NULL,
+uri	varchar(8000) NOT NULL,
+uri_hash uuid GENERATED ALWAYS AS (md5(uri)::uuid) STORED,
+bucket timestamp NOT NULL,
+hits double precision NOT NULL,
+PRIMARY KEY (app, uri_hash, bucket)
+);
+
+create index if not exists endpoint_hit_minute_bucket_idx on endpoint_hit_minute (bucket);
+create index if not exists endpoint_hit_minute_uri_hash_bucket_idx on endpoint_hit_minute (uri_hash, bucket);
+
+create table if not exists
+endpoint_hit_hour (
+app	varchar(100) NOT NULL,
+uri	varchar(8000) NOT NULL,
+uri_hash uuid GENERATED ALWAYS AS (md5(uri)::uuid) STORED,
+bucket timestamp NOT NULL,
+hits double precision NOT NULL,
+PRIMARY KEY (app, uri_hash, bucket)
+);
+
+create index if not exists endpoint_hit_hour_bucket_idx on endpoint_hit_hour (bucket);
+create index if not exists endpoint_hit_hour_uri_hash_bucket_idx on endpoint_hit_hour (uri_hash, bucket);
+
+create table if not exists
+ip_dictionary (
+id integer PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+ip varchar(45) NOT NULL UNIQUE
+);
+
+create table if not exists
+unique_visitors_app_daily (
+app	varchar(100) NOT NULL,
+day date NOT NULL,
+visitors bytea NOT NULL,
+PRIMARY KEY (app, day)
+);
+
+create table if not exists
+unique_visitors_uri_daily (
+app	varchar(100) NOT NULL,
+uri	varchar(8000) NOT NULL,
+uri_hash uuid GENERATED ALWAYS AS (md5(uri)::uuid) STORED,
+day date NOT NULL,
+visitors bytea NOT NULL,
+PRIMARY KEY (app, uri_hash, day)
 );
\ No newline at end of file
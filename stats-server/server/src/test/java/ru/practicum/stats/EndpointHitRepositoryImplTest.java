@@ -0,0 +1,148 @@
+package ru.practicum.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.EndpointHitStatDto;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EndpointHitRepositoryImplTest extends PostgresTest {
+    @Autowired
+    private EndpointHitRepository endpointHitRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit, endpoint_hit_minute, endpoint_hit_hour");
+    }
+
+    @Test
+    void longUriIsStoredAndFilteredByHash() {
+        String uri = longUri();
+        insertHit(uri, "2024-03-01 10:00:00");
+        insertHit(uri, "2024-03-01 10:05:00");
+        insertHit("/events/1", "2024-03-01 10:05:00");
+
+        List<EndpointHitStatDto> stats = endpointHitRepository.getHits("2024-03-01 00:00:00", "2024-03-02 00:00:00",
+                new String[]{uri}, false);
+
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getUri()).isEqualTo(uri);
+        assertThat(stats.get(0).getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void uriHashMatchesDatabaseColumn() {
+        String uri = longUri();
+        insertHit(uri, "2024-03-01 10:00:00");
+
+        UUID stored = jdbcTemplate.queryForObject("select uri_hash from endpoint_hit", UUID.class);
+
+        assertThat(stored).isEqualTo(EndpointHitQueries.uriHash(uri));
+    }
+
+    @Test
+    void longUriHitIsCountedInTimeSeries() {
+        String uri = longUri();
+        endpointHitRepository.addHit(hit(uri, "2024-03-01 10:00:00"));
+        endpointHitRepository.addHit(hit(uri, "2024-03-01 10:59:00"));
+
+        List<EndpointHitTimeSeriesDto> series = endpointHitRepository.getTimeSeries(
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 2, 0, 0),
+                new String[]{uri}, TimeSeriesInterval.HOUR, false);
+
+        assertThat(series).hasSize(1);
+        assertThat(series.get(0).getBucket()).isEqualTo("2024-03-01 10:00:00");
+        assertThat(series.get(0).getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void hourlySeriesSumsMinuteRollups() {
+        jdbcTemplate.update("insert into endpoint_hit_minute(app, uri, bucket, hits) " +
+                "select 'ewm-main-service', '/events/' || u, timestamp '2024-03-01' + interval '1 minute' * m, 1 " +
+                "from generate_series(0, 2) u, generate_series(0, 2 * 60 - 1) m");
+        jdbcTemplate.update("insert into endpoint_hit_hour(app, uri, bucket, hits) " +
+                "select app, uri, date_trunc('hour', bucket), sum(hits) from endpoint_hit_minute group by 1, 2, 3");
+
+        List<EndpointHitTimeSeriesDto> series = endpointHitRepository.getTimeSeries(
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 1, 59, 59),
+                new String[]{"/events/0", "/events/1"}, TimeSeriesInterval.HOUR, false);
+
+        assertThat(series).extracting(EndpointHitTimeSeriesDto::getUri)
+                .containsExactly("/events/0", "/events/0", "/events/1", "/events/1");
+        assertThat(series).extracting(EndpointHitTimeSeriesDto::getHits).containsOnly(60);
+    }
+
+    @Test
+    void uniqueHitsUnionHotAndExtraIps() {
+        insertHit("/events/1", "2024-03-01 10:00:00", "10.0.0.1");
+        insertHit("/events/1", "2024-03-01 11:00:00", "10.0.0.2");
+        insertHit("/events/2", "2024-03-01 11:00:00", "10.0.0.1");
+
+        List<EndpointHitStatDto> stats = endpointHitRepository.getUniqueHits("2024-03-01 00:00:00",
+                "2024-03-02 00:00:00", new String[]{"/events/1", "/events/3"}, Map.of(
+                        List.of("ewm-main-service", "/events/1"), Set.of("10.0.0.2", "10.0.0.3"),
+                        List.of("ewm-main-service", "/events/3"), Set.of("10.0.0.1")));
+
+        assertThat(stats).extracting(EndpointHitStatDto::getUri).containsExactly("/events/1", "/events/3");
+        assertThat(stats).extracting(EndpointHitStatDto::getHits).containsExactly(3, 1);
+    }
+
+    @Test
+    void uniqueTimeSeriesUnionsHotAndExtraHitsPerBucket() {
+        insertHit("/events/1", "2024-03-01 10:00:00", "10.0.0.1");
+        insertHit("/events/1", "2024-03-01 10:30:00", "10.0.0.2");
+
+        List<EndpointHitTimeSeriesDto> series = endpointHitRepository.getUniqueTimeSeries(
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 2, 0, 0),
+                new String[]{"/events/1"}, TimeSeriesInterval.HOUR, Map.of(
+                        List.of("ewm-main-service", "/events/1", "2024-03-01 10:00:00"),
+                        Map.of("10.0.0.2", 2.0, "10.0.0.3", 1.0),
+                        List.of("ewm-main-service", "/events/1", "2024-03-01 08:00:00"),
+                        Map.of("10.0.0.1", 3.0)));
+
+        assertThat(series).extracting(EndpointHitTimeSeriesDto::getBucket)
+                .containsExactly("2024-03-01 08:00:00", "2024-03-01 10:00:00");
+        assertThat(series).extracting(EndpointHitTimeSeriesDto::getHits).containsExactly(3, 5);
+        assertThat(series).extracting(EndpointHitTimeSeriesDto::getUniqueHits).containsExactly(1, 3);
+    }
+
+    /** URI из случайных символов около 6000 байт: такой ключ не помещается в строку btree-индекса даже после сжатия */
+    static String longUri() {
+        StringBuilder uri = new StringBuilder("/events?text=");
+        while (uri.length() < 6000) {
+            uri.append(UUID.randomUUID());
+        }
+        return uri.toString();
+    }
+
+    static EndpointHitDto hit(String uri, String timestamp) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private void insertHit(String uri, String timestamp) {
+        insertHit(uri, timestamp, "192.168.0.1");
+    }
+
+    private void insertHit(String uri, String timestamp, String ip) {
+        jdbcTemplate.update("insert into endpoint_hit(app, uri, ip, timestamp) values (?, ?, ?, ?)",
+                "ewm-main-service", uri, ip, Timestamp.valueOf(timestamp));
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.stats.exception.InvalidPathVariableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EndpointHitServiceImplTest extends PostgresTest {
+    @Autowired
+    private EndpointHitService endpointHitService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit, endpoint_hit_id, endpoint_hit_minute, endpoint_hit_hour");
+    }
+
+    @Test
+    void concurrentRetriesOfOneHitIdAreStoredOnce() throws Exception {
+        EndpointHitDto hit = withHitId("retry-1");
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EndpointHit>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return endpointHitService.addHit(hit);
+            }));
+        }
+        start.countDown();
+        for (Future<EndpointHit> result : results) {
+            assertThat(result.get().getHitId()).isEqualTo("retry-1");
+        }
+        executor.shutdown();
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from endpoint_hit", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select sum(hits) from endpoint_hit_minute", Double.class))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void retryIsRejectedAfterOriginalLeftHotStorage() {
+        endpointHitService.addHit(withHitId("retry-2"));
+        jdbcTemplate.execute("delete from endpoint_hit");
+
+        EndpointHit retried = endpointHitService.addHit(withHitId("retry-2"));
+
+        assertThat(retried.getHitId()).isEqualTo("retry-2");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from endpoint_hit", Integer.class)).isZero();
+    }
+
+    @Test
+    void tooLongHitIdIsRejected() {
+        assertThatThrownBy(() -> endpointHitService.addHit(withHitId("x".repeat(65))))
+                .isInstanceOf(InvalidPathVariableException.class);
+    }
+
+    private static EndpointHitDto withHitId(String hitId) {
+        EndpointHitDto hit = EndpointHitRepositoryImplTest.hit("/events/1", "2024-03-01 10:00:00");
+        hit.setHitId(hitId);
+        return hit;
+    }
+}
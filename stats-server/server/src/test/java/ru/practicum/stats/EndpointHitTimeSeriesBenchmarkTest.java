@@ -0,0 +1,84 @@
+package ru.practicum.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.dto.EndpointHitTimeSeriesDto;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер /stats/timeseries: 30 дней с шагом HOUR по десяти URI при целевой задержке p95 не более 200 мс.
+ * В агрегациях 30 дней данных по 1000 URI: десять запрашиваемых URI получают хиты каждую минуту,
+ * остальные — раз в час.
+ * Запускается только в профиле benchmark: mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+class EndpointHitTimeSeriesBenchmarkTest extends PostgresTest {
+    private static final long TARGET_P95_MILLIS = 200;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 50;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private EndpointHitRepository endpointHitRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit_minute, endpoint_hit_hour");
+    }
+
+    @Test
+    void thirtyDayHourlySeriesMeetsLatencyTarget() {
+        seed();
+        String[] uris = new String[10];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = "/events/" + i;
+        }
+        LocalDateTime end = START.plusDays(30).minusNanos(1);
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            endpointHitRepository.getTimeSeries(START, end, uris, TimeSeriesInterval.HOUR, false);
+        }
+        long[] durations = new long[MEASURED_RUNS];
+        List<EndpointHitTimeSeriesDto> series = null;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long started = System.nanoTime();
+            series = endpointHitRepository.getTimeSeries(START, end, uris, TimeSeriesInterval.HOUR, false);
+            durations[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(durations);
+        long p50 = durations[MEASURED_RUNS / 2] / 1_000_000;
+        long p95 = durations[(int) Math.ceil(MEASURED_RUNS * 0.95) - 1] / 1_000_000;
+        log.info("Временной ряд 30 дней по часам для {} URI: p50 {} мс, p95 {} мс", uris.length, p50, p95);
+
+        assertThat(series).hasSize(uris.length * 30 * 24);
+        assertThat(series.get(0).getHits()).isEqualTo(60);
+        assertThat(p95).isLessThanOrEqualTo(TARGET_P95_MILLIS);
+    }
+
+    private void seed() {
+        jdbcTemplate.update("insert into endpoint_hit_minute(app, uri, bucket, hits) " +
+                "select 'ewm-main-service', '/events/' || u, cast(? as timestamp) + interval '1 minute' * m, 1 " +
+                "from generate_series(0, 9) u, generate_series(0, 30 * 24 * 60 - 1) m", START);
+        jdbcTemplate.update("insert into endpoint_hit_minute(app, uri, bucket, hits) " +
+                "select 'ewm-main-service', '/events/' || u, cast(? as timestamp) + interval '1 hour' * h, 1 " +
+                "from generate_series(10, 999) u, generate_series(0, 30 * 24 - 1) h", START);
+        jdbcTemplate.update("insert into endpoint_hit_hour(app, uri, bucket, hits) " +
+                "select app, uri, date_trunc('hour', bucket), sum(hits) from endpoint_hit_minute group by 1, 2, 3");
+        jdbcTemplate.execute("analyze endpoint_hit_minute");
+        jdbcTemplate.execute("analyze endpoint_hit_hour");
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.stats.analytics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.PostgresTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер аналитики по двум миллионам хитов: время каждого запроса и число хитов в секунду пишутся в лог.
+ * Совпадение результатов с SQL проверяет HitAnalyticsServiceImplTest на меньшем наборе.
+ * Запускается только в профиле benchmark: mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HitAnalyticsBenchmarkTest extends PostgresTest {
+    private static final int HITS = 2_000_000;
+    private static final String START = "2024-03-01 00:00:00";
+    private static final String END = "2024-03-31 00:00:00";
+
+    @Autowired
+    private HitAnalyticsService hitAnalyticsService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("truncate endpoint_hit");
+        jdbcTemplate.update("insert into endpoint_hit(app, uri, ip, timestamp, hit_count, weight) " +
+                "select case when g % 10 = 0 then 'other-app' else 'ewm-main-service' end, " +
+                "'/events/' || g % 500, " +
+                "'10.' || g % 7 || '.' || g / 7 % 200 || '.' || g % 13, " +
+                "timestamp '2024-03-01' + g * interval '400 milliseconds', " +
+                "1 + g % 3, " +
+                "case when g % 50 = 0 then 4 else 1 end " +
+                "from generate_series(0, ? - 1) g", HITS);
+        jdbcTemplate.execute("analyze endpoint_hit");
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit");
+    }
+
+    @Test
+    void analyticsThroughput() {
+        assertThat(analyze(new String[]{"APP", "HOUR"}, null, null, 24, true)).isNotEmpty();
+        assertThat(analyze(new String[]{"URI"}, new String[]{"ewm-main-service"}, "10.1.", 24, false)).isNotEmpty();
+        assertThat(analyze(new String[]{"IP_PREFIX"}, null, null, 16, true)).isNotEmpty();
+    }
+
+    private List<HitAnalyticsRow> analyze(String[] groupBy, String[] apps, String ipPrefix, int prefixLength,
+                                          boolean unique) {
+        long started = System.nanoTime();
+        List<HitAnalyticsRow> rows = hitAnalyticsService.analyze(START, END, groupBy, apps, null, ipPrefix,
+                prefixLength, unique, 10_000);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("Аналитика {} по {} хитам: {} с, {} млн хитов в секунду", String.join(",", groupBy), HITS,
+                String.format("%.2f", seconds), String.format("%.2f", HITS / seconds / 1e6));
+        return rows;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.stats.analytics;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.PostgresTest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Результаты аналитики сверяются с тем же расчетом на SQL. Хиты распределены по всему месяцу,
+ * чтобы в выборку попали все часы суток; скорость на двух миллионах хитов замеряет HitAnalyticsBenchmarkTest.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HitAnalyticsServiceImplTest extends PostgresTest {
+    private static final int HITS = 50_000;
+    private static final String START = "2024-03-01 00:00:00";
+    private static final String END = "2024-03-31 00:00:00";
+
+    @Autowired
+    private HitAnalyticsService hitAnalyticsService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("truncate endpoint_hit");
+        jdbcTemplate.update("insert into endpoint_hit(app, uri, ip, timestamp, hit_count, weight) " +
+                "select case when g % 10 = 0 then 'other-app' else 'ewm-main-service' end, " +
+                "'/events/' || g % 500, " +
+                "'10.' || g % 7 || '.' || g / 7 % 200 || '.' || g % 13, " +
+                "timestamp '2024-03-01' + g * interval '51 seconds', " +
+                "1 + g % 3, " +
+                "case when g % 50 = 0 then 4 else 1 end " +
+                "from generate_series(0, ? - 1) g", HITS);
+        jdbcTemplate.execute("analyze endpoint_hit");
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit");
+    }
+
+    @Test
+    void uniqueVisitorsByAppAndHourMatchSql() {
+        List<HitAnalyticsRow> rows = analyze(new String[]{"APP", "HOUR"}, null, null, 24, true);
+
+        Map<String, long[]> expected = new HashMap<>();
+        jdbcTemplate.query("select app, extract(hour from timestamp)::int as hour_of_day, " +
+                "round(sum(hit_count * weight))::bigint hits, count(distinct ip) unique_hits " +
+                "from endpoint_hit group by 1, 2", rs -> {
+            expected.put(rs.getString("app") + "|" + rs.getInt("hour_of_day"),
+                    new long[]{rs.getLong("hits"), rs.getLong("unique_hits")});
+        });
+        assertThat(rows).hasSize(expected.size());
+        for (HitAnalyticsRow row : rows) {
+            long[] sums = expected.get(row.getApp() + "|" + row.getHour());
+            assertThat(row.getHits()).isEqualTo(sums[0]);
+            assertThat(row.getUniqueHits()).isEqualTo(sums[1]);
+        }
+    }
+
+    @Test
+    void filteredUriTotalsMatchSql() {
+        List<HitAnalyticsRow> rows = analyze(new String[]{"URI"}, new String[]{"ewm-main-service"}, "10.1.", 24,
+                false);
+
+        Map<String, Long> expected = jdbcTemplate.query("select uri, round(sum(hit_count * weight))::bigint hits " +
+                        "from endpoint_hit where app = 'ewm-main-service' and ip like '10.1.%' group by uri",
+                (rs, rowNum) -> Map.entry(rs.getString("uri"), rs.getLong("hits")))
+                .stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertThat(rows.stream().collect(Collectors.toMap(HitAnalyticsRow::getUri, HitAnalyticsRow::getHits)))
+                .isEqualTo(expected);
+        assertThat(rows.get(0).getHits()).isGreaterThanOrEqualTo(rows.get(rows.size() - 1).getHits());
+    }
+
+    @Test
+    void ipPrefixGroupsMatchSql() {
+        List<HitAnalyticsRow> rows = analyze(new String[]{"IP_PREFIX"}, null, null, 16, true);
+
+        Map<String, Long> expected = jdbcTemplate.query("select split_part(ip, '.', 1) || '.' || " +
+                        "split_part(ip, '.', 2) || '.0.0/16' prefix, count(distinct ip) unique_hits " +
+                        "from endpoint_hit group by 1",
+                (rs, rowNum) -> Map.entry(rs.getString("prefix"), rs.getLong("unique_hits")))
+                .stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertThat(rows.stream().collect(Collectors.toMap(HitAnalyticsRow::getIpPrefix,
+                HitAnalyticsRow::getUniqueHits))).isEqualTo(expected);
+    }
+
+    private List<HitAnalyticsRow> analyze(String[] groupBy, String[] apps, String ipPrefix, int prefixLength,
+                                          boolean unique) {
+        return hitAnalyticsService.analyze(START, END, groupBy, apps, null, ipPrefix, prefixLength, unique, 10_000);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.stats.backfill;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.stats.EndpointHitService;
+import ru.practicum.stats.PostgresTest;
+import ru.practicum.stats.visitors.UniqueVisitorRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitImportServiceImplTest extends PostgresTest {
+    private static final String LOG = line("a") + line("b") + line("b") + line("c") + line(null) + line("");
+
+    @Autowired
+    private HitImportService hitImportService;
+    @Autowired
+    private EndpointHitService endpointHitService;
+    @Autowired
+    private UniqueVisitorRepository uniqueVisitorRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit, endpoint_hit_id, endpoint_hit_minute, endpoint_hit_hour, " +
+                "unique_visitors_app_daily, unique_visitors_uri_daily");
+    }
+
+    @Test
+    void hitIdsKnownFromHitEndpointAndRepeatsInLogAreSkipped() {
+        endpointHitService.addHit(EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp("2024-03-01 10:00:00")
+                .hitId("a")
+                .build());
+
+        HitImportResult result = importLog();
+
+        assertThat(result.getRows()).isEqualTo(6);
+        assertThat(result.getDuplicates()).isEqualTo(2);
+        assertThat(hits()).isEqualTo(5);
+        assertThat(minuteHits()).isEqualTo(5);
+    }
+
+    @Test
+    void rerunOfImportCountsOnlyHitsWithoutId() {
+        importLog();
+
+        HitImportResult rerun = importLog();
+
+        assertThat(rerun.getDuplicates()).isEqualTo(4);
+        assertThat(hits()).isEqualTo(7);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from endpoint_hit where hit_id = 'b'", Long.class))
+                .isEqualTo(1);
+        assertThat(minuteHits()).isEqualTo(7);
+    }
+
+    @Test
+    void importedVisitorsAreMergedIntoDailyCounters() {
+        String log = LOG + "{\"app\":\"ewm-main-service\",\"uri\":\"/events/2\",\"ip\":\"10.0.0.3\"," +
+                "\"timestamp\":\"2024-03-01 11:00:00\"}\n";
+        hitImportService.importHits(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)),
+                HitImportFormat.NDJSON, false);
+
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        assertThat(uniqueVisitorRepository.findDaily("ewm-main-service", null, day, day).get(day)
+                .getLongCardinality()).isEqualTo(2);
+        assertThat(uniqueVisitorRepository.findDaily("ewm-main-service", "/events/1", day, day).get(day)
+                .getLongCardinality()).isEqualTo(1);
+    }
+
+    private HitImportResult importLog() {
+        return hitImportService.importHits(new ByteArrayInputStream(LOG.getBytes(StandardCharsets.UTF_8)),
+                HitImportFormat.NDJSON, false);
+    }
+
+    private long hits() {
+        return jdbcTemplate.queryForObject("select count(*) from endpoint_hit", Long.class);
+    }
+
+    private long minuteHits() {
+        return jdbcTemplate.queryForObject("select cast(sum(hits) as bigint) from endpoint_hit_minute", Long.class);
+    }
+
+    private static String line(String hitId) {
+        return "{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"ip\":\"10.0.0.2\"," +
+                "\"timestamp\":\"2024-03-01 10:00:00\"" + (hitId == null ? "" : ",\"hitId\":\"" + hitId + "\"") + "}\n";
+    }
+}
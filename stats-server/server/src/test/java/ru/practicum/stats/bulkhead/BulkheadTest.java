@@ -0,0 +1,47 @@
+package ru.practicum.stats.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.practicum.stats.datasource.DataSourceRoute;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkheadTest {
+    private final Bulkhead bulkhead = new Bulkhead("test", "query", 1, 1, Duration.ofSeconds(5),
+            new SimpleMeterRegistry());
+
+    @AfterEach
+    void close() {
+        bulkhead.close();
+    }
+
+    @Test
+    void errorCompletesResult() throws InterruptedException {
+        DeferredResult<String> result = bulkhead.submit(() -> {
+            throw new OutOfMemoryError("test");
+        });
+
+        assertThat(await(result)).isInstanceOf(OutOfMemoryError.class);
+    }
+
+    @Test
+    void taskRunsWithBulkheadRoute() throws InterruptedException {
+        DeferredResult<String> result = bulkhead.submit(DataSourceRoute::current);
+
+        assertThat(await(result)).isEqualTo("query");
+        assertThat(DataSourceRoute.current()).isNull();
+    }
+
+    static Object await(DeferredResult<?> result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!result.hasResult() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(result.hasResult()).isTrue();
+        return result.getResult();
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.stats.cold;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.stats.EndpointHit;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColdStorageTest {
+    private static final LocalDateTime DAY_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamedSegmentIsReadBackAfterRestart() throws IOException {
+        ColdStorage coldStorage = open();
+        ColdStorage.PendingSegment segment = coldStorage.create(DAY_START.toLocalDate());
+        segment.add(hit(1, "/events/1", "10.0.0.1", "hit-1", 1, 1.0, 0));
+        segment.add(hit(2, "/events/2", "10.0.0.2", null, 3, 4.0, 60));
+        segment.add(hit(5, "/events/1", "10.0.0.1", null, 1, 4.0, 120));
+        segment.finish();
+        segment.publish();
+
+        List<EndpointHit> hits = scanAll(open());
+
+        assertThat(hits).extracting(EndpointHit::getId).containsExactly(1, 2, 5);
+        assertThat(hits).extracting(EndpointHit::getUri).containsExactly("/events/1", "/events/2", "/events/1");
+        assertThat(hits).extracting(EndpointHit::getHitId).containsExactly("hit-1", null, null);
+        assertThat(hits).extracting(EndpointHit::getWeight).containsExactly(1.0, 4.0, 4.0);
+        assertThat(hits.get(2).getTimestamp()).isEqualTo(Timestamp.valueOf(DAY_START.plusMinutes(2)));
+    }
+
+    @Test
+    void discardedSegmentLeavesNoFiles() throws IOException {
+        ColdStorage coldStorage = open();
+        ColdStorage.PendingSegment segment = coldStorage.create(DAY_START.toLocalDate());
+        segment.add(hit(1, "/events/1", "10.0.0.1", null, 1, 1.0, 0));
+        segment.discard();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+        assertThat(coldStorage.overlaps(DAY_START, DAY_START.plusDays(1))).isFalse();
+    }
+
+    @Test
+    void segmentWithPrefixedDictionariesIsStillReadable() throws IOException {
+        long second = DAY_START.toEpochSecond(ZoneOffset.UTC);
+        try (OutputStream file = Files.newOutputStream(directory.resolve("hits-20240101-1.seg"))) {
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(ColdSegment.MAGIC);
+            header.writeInt(3);
+            header.writeLong(second);
+            header.writeLong(second + 60);
+            header.writeInt(2);
+            header.flush();
+            GZIPOutputStream gzip = new GZIPOutputStream(file);
+            DataOutputStream out = new DataOutputStream(gzip);
+            writeDictionary(out, "ewm-main-service");
+            writeDictionary(out, "/events/1", "/events/2");
+            writeDictionary(out, "10.0.0.1");
+            VarInts.writeLong(out, 1);
+            out.writeDouble(1.0);
+            writeRow(out, 0, 0, 7);
+            writeRow(out, 1, 60, 1);
+            out.flush();
+            gzip.finish();
+        }
+
+        List<EndpointHit> hits = scanAll(open());
+
+        assertThat(hits).extracting(EndpointHit::getId).containsExactly(7, 8);
+        assertThat(hits).extracting(EndpointHit::getUri).containsExactly("/events/1", "/events/2");
+    }
+
+    private ColdStorage open() throws IOException {
+        ColdStorage coldStorage = new ColdStorage(true, directory.toString());
+        coldStorage.loadIndex();
+        return coldStorage;
+    }
+
+    private static List<EndpointHit> scanAll(ColdStorage coldStorage) {
+        List<EndpointHit> hits = new ArrayList<>();
+        coldStorage.scan(DAY_START, DAY_START.plusDays(1), hits::add);
+        return hits;
+    }
+
+    private static EndpointHit hit(int id, String uri, String ip, String hitId, int count, double weight,
+                                   long offsetSeconds) {
+        return EndpointHit.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(Timestamp.valueOf(DAY_START.plusSeconds(offsetSeconds)))
+                .hitId(hitId)
+                .count(count)
+                .weight(weight)
+                .build();
+    }
+
+    private static void writeDictionary(DataOutputStream out, String... values) throws IOException {
+        VarInts.writeLong(out, values.length);
+        for (String value : values) {
+            out.writeBoolean(true);
+            out.writeUTF(value);
+        }
+    }
+
+    private static void writeRow(DataOutputStream out, int uri, long secondDelta, long idDelta) throws IOException {
+        VarInts.writeLong(out, 0);
+        VarInts.writeLong(out, uri);
+        VarInts.writeLong(out, secondDelta);
+        VarInts.writeSigned(out, idDelta);
+        VarInts.writeLong(out, 0);
+        out.writeBoolean(false);
+        VarInts.writeLong(out, 1);
+        VarInts.writeLong(out, 0);
+    }
+}
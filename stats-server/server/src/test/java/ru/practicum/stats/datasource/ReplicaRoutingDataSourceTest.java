@@ -0,0 +1,62 @@
+package ru.practicum.stats.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.practicum.stats.PostgresTest;
+import ru.practicum.stats.bulkhead.Bulkhead;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Соединение выбирается по bulkhead задачи, а не по признаку read-only: statement_timeout есть только у запросов */
+class ReplicaRoutingDataSourceTest extends PostgresTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private Bulkhead queryBulkhead;
+    @Autowired
+    private Bulkhead scanBulkhead;
+    @Autowired
+    private Bulkhead ingestBulkhead;
+
+    @Test
+    void queryBulkheadReadsWithStatementTimeout() throws InterruptedException {
+        assertThat(await(queryBulkhead.submit(this::readOnlyStatementTimeout))).isEqualTo("10s");
+    }
+
+    @Test
+    void scanBulkheadReadsWithoutStatementTimeout() throws InterruptedException {
+        assertThat(await(scanBulkhead.submit(this::readOnlyStatementTimeout))).isEqualTo("0");
+    }
+
+    @Test
+    void ingestBulkheadAndUnmarkedThreadsUsePrimary() throws Exception {
+        assertThat(await(ingestBulkhead.submit(this::readOnlyStatementTimeout))).isEqualTo("0");
+
+        Future<String> unmarked = Executors.newSingleThreadExecutor().submit(this::readOnlyStatementTimeout);
+        assertThat(unmarked.get()).isEqualTo("0");
+    }
+
+    private String readOnlyStatementTimeout() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> jdbcTemplate.queryForObject("show statement_timeout", String.class));
+    }
+
+    private static Object await(DeferredResult<?> result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!result.hasResult() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return result.getResult();
+    }
+}
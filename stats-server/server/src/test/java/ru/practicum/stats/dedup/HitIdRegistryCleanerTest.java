@@ -0,0 +1,35 @@
+package ru.practicum.stats.dedup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.PostgresTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitIdRegistryCleanerTest extends PostgresTest {
+    @Autowired
+    private HitIdRegistryCleaner hitIdRegistryCleaner;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit_id");
+    }
+
+    @Test
+    void idsOlderThanRetentionAreDeletedInBatches() {
+        jdbcTemplate.update("insert into endpoint_hit_id(hit_id, created) " +
+                "select 'old-' || g, now() - interval '3 days' from generate_series(1, 25000) g");
+        jdbcTemplate.update("insert into endpoint_hit_id(hit_id, created) " +
+                "select 'recent-' || g, now() - interval '1 day' from generate_series(1, 100) g");
+
+        assertThat(hitIdRegistryCleaner.clean()).isEqualTo(25000);
+
+        assertThat(jdbcTemplate.queryForList("select hit_id from endpoint_hit_id", String.class))
+                .hasSize(100)
+                .allMatch(hitId -> hitId.startsWith("recent-"));
+    }
+}
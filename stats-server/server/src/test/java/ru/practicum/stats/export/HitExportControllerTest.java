@@ -0,0 +1,90 @@
+package ru.practicum.stats.export;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.stats.EndpointHit;
+import ru.practicum.stats.EndpointHitRepository;
+import ru.practicum.stats.cold.ColdStorage;
+import ru.practicum.stats.datasource.DataSourceRoute;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class HitExportControllerTest {
+    private final EndpointHitRepository endpointHitRepository = mock(EndpointHitRepository.class);
+    private final ColdStorage coldStorage = mock(ColdStorage.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+            new HitExportController(new HitExportServiceImpl(endpointHitRepository, coldStorage))).build();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportsColdDaysThenHotHitsWithHeaders() throws Exception {
+        List<String> routes = new ArrayList<>();
+        when(coldStorage.overlaps(any(), any())).thenReturn(true);
+        doAnswer(invocation -> {
+            ((Consumer<EndpointHit>) invocation.getArgument(2)).accept(hit(1, "2024-01-01 10:00:00"));
+            return null;
+        }).when(coldStorage).scan(any(), any(), any());
+        doAnswer(invocation -> {
+            routes.add(DataSourceRoute.current());
+            ((Consumer<EndpointHit>) invocation.getArgument(2)).accept(hit(2, "2024-05-01 10:00:00"));
+            return null;
+        }).when(endpointHitRepository).scanHits(any(), any(), any());
+
+        MvcResult started = mockMvc.perform(get("/admin/hits/export")
+                        .param("start", "2024-01-01 00:00:00")
+                        .param("end", "2024-06-01 00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"hits.csv.gz\""))
+                .andReturn();
+
+        List<String> lines = gunzip(result.getResponse().getContentAsByteArray()).lines()
+                .collect(Collectors.toList());
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1)).startsWith("1,");
+        assertThat(lines.get(2)).startsWith("2,");
+        assertThat(routes).containsExactly("scan");
+    }
+
+    private static EndpointHit hit(int id, String timestamp) {
+        return EndpointHit.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.0.1")
+                .timestamp(Timestamp.valueOf(timestamp))
+                .count(1)
+                .weight(1.0)
+                .build();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
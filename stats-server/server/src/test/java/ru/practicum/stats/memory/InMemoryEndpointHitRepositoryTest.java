@@ -0,0 +1,127 @@
+package ru.practicum.stats.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.EndpointHitStatDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Восстановление после аварийной остановки: экземпляр бросается без shutdown, как при падении процесса,
+ * а новый экземпляр поднимает состояние из снапшота и журнала. Время восстановления пишется в лог.
+ */
+@Slf4j
+class InMemoryEndpointHitRepositoryTest {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final int MEASURED_HITS = 1_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void hitsSurviveCrashFromWalAndSnapshot() throws IOException {
+        InMemoryEndpointHitRepository crashed = open(true);
+        for (int i = 0; i < 100; i++) {
+            crashed.addHit(hit(i, "hit-" + i));
+        }
+        crashed.snapshot();
+        for (int i = 100; i < 150; i++) {
+            crashed.addHit(hit(i, "hit-" + i));
+        }
+
+        InMemoryEndpointHitRepository recovered = open(true);
+
+        assertThat(totalHits(recovered)).isEqualTo(150);
+        assertThat(recovered.findByHitId("hit-42")).isPresent();
+        assertThat(recovered.findByHitId("hit-142")).isPresent();
+        assertThat(recovered.addHit(hit(150, null)).getId()).isEqualTo(151);
+    }
+
+    @Test
+    void tornWalTailIsDiscarded() throws IOException {
+        InMemoryEndpointHitRepository crashed = open(true);
+        for (int i = 0; i < 10; i++) {
+            crashed.addHit(hit(i, null));
+        }
+        Files.write(lastWalSegment(), new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        InMemoryEndpointHitRepository recovered = open(true);
+        recovered.addHit(hit(10, null));
+
+        assertThat(totalHits(recovered)).isEqualTo(11);
+        assertThat(totalHits(open(true))).isEqualTo(11);
+    }
+
+    @Test
+    void recoveryTimeForMillionHits() throws Exception {
+        InMemoryEndpointHitRepository crashed = open(false);
+        long started = System.nanoTime();
+        for (int i = 0; i < MEASURED_HITS; i++) {
+            crashed.addHit(hit(i, null));
+        }
+        long written = System.nanoTime();
+        // без ожидания fsync на каждой записи хвост журнала сбрасывается фоновым потоком раз в 5 мс
+        Thread.sleep(500);
+
+        long walStarted = System.nanoTime();
+        InMemoryEndpointHitRepository fromWal = open(false);
+        long walRecovered = System.nanoTime();
+        assertThat(totalHits(fromWal)).isEqualTo(MEASURED_HITS);
+
+        fromWal.snapshot();
+        long snapshotStarted = System.nanoTime();
+        InMemoryEndpointHitRepository fromSnapshot = open(false);
+        long snapshotRecovered = System.nanoTime();
+        assertThat(totalHits(fromSnapshot)).isEqualTo(MEASURED_HITS);
+
+        log.info("{} хитов: запись {} мс, восстановление из журнала {} мс, из снапшота {} мс", MEASURED_HITS,
+                (written - started) / 1_000_000, (walRecovered - walStarted) / 1_000_000,
+                (snapshotRecovered - snapshotStarted) / 1_000_000);
+    }
+
+    private InMemoryEndpointHitRepository open(boolean syncWrites) throws IOException {
+        InMemoryEndpointHitRepository repository = new InMemoryEndpointHitRepository(directory.toString(),
+                Duration.ofMillis(5), Duration.ofHours(1), syncWrites);
+        repository.recover();
+        return repository;
+    }
+
+    private Path lastWalSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("wal-"))
+                    .max(Comparator.comparingLong(path -> Long.parseLong(
+                            path.getFileName().toString().replaceAll("\\D", ""))))
+                    .orElseThrow();
+        }
+    }
+
+    private static long totalHits(InMemoryEndpointHitRepository repository) {
+        List<EndpointHitStatDto> stats = repository.getHits(START.format(FORMAT), START.plusDays(30).format(FORMAT),
+                null, false);
+        return stats.stream().mapToLong(EndpointHitStatDto::getHits).sum();
+    }
+
+    private static EndpointHitDto hit(int i, String hitId) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + i % 100)
+                .ip("10.0." + i % 250 + "." + i / 250 % 250)
+                .timestamp(START.plusSeconds(i).format(FORMAT))
+                .hitId(hitId)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.stats.plan;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.stats.PostgresTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Регрессия планов запросов статистики: на заполненной синтетическими хитами базе ни одна форма запроса
+ * из EndpointHitQueries не должна читать endpoint_hit полным проходом.
+ */
+class QueryPlanServiceImplTest extends PostgresTest {
+    private static final int SEED_ROWS = 1_000_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.execute("truncate endpoint_hit");
+    }
+
+    @Test
+    void noQueryShapeScansWholeTable() {
+        seed();
+        jdbcTemplate.execute("analyze endpoint_hit");
+
+        List<QueryPlanReport> reports = new QueryPlanServiceImpl(jdbcTemplate, namedJdbcTemplate).check();
+
+        assertThat(reports).hasSize(7);
+        assertThat(reports)
+                .allSatisfy(report -> assertThat(report.isPassed())
+                        .as("%s:%n%s", report.getShape(), report.getPlan())
+                        .isTrue());
+    }
+
+    /** Хиты за последний год в порядке времени: 1000 URI, около 60 тысяч IP */
+    private void seed() {
+        jdbcTemplate.update("insert into endpoint_hit(app, uri, ip, timestamp) " +
+                "select 'plan-check', '/events/' || (g % 1000), " +
+                "'10.' || (g % 241) || '.' || (g % 251) || '.1', " +
+                "localtimestamp - interval '365 days' + interval '365 days' * (g / cast(? as double precision)) " +
+                "from generate_series(1, cast(? as integer)) g", SEED_ROWS, SEED_ROWS);
+    }
+}
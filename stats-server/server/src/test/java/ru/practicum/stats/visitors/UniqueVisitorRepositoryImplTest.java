@@ -0,0 +1,51 @@
+package ru.practicum.stats.visitors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.PostgresTest;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UniqueVisitorRepositoryImplTest extends PostgresTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private UniqueVisitorRepository uniqueVisitorRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("truncate unique_visitors_app_daily, unique_visitors_uri_daily");
+    }
+
+    @Test
+    void longUriVisitorsAreMergedAndFound() {
+        String uri = longUri();
+        VisitorKey key = new VisitorKey("ewm-main-service", uri, DAY);
+        uniqueVisitorRepository.merge(Map.of(key, Set.of("192.168.0.1", "192.168.0.2")));
+        uniqueVisitorRepository.merge(Map.of(key, Set.of("192.168.0.2", "192.168.0.3")));
+
+        Map<LocalDate, RoaringBitmap> daily = uniqueVisitorRepository.findDaily("ewm-main-service", uri, DAY, DAY);
+
+        assertThat(daily).containsOnlyKeys(DAY);
+        assertThat(daily.get(DAY).getLongCardinality()).isEqualTo(3);
+        assertThat(uniqueVisitorRepository.findDaily("ewm-main-service", uri + "/other", DAY, DAY)).isEmpty();
+    }
+
+    private static String longUri() {
+        StringBuilder uri = new StringBuilder("/events?text=");
+        while (uri.length() < 6000) {
+            uri.append(UUID.randomUUID());
+        }
+        return uri.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.client;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.dto.EndpointHitStatDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ClientStatsGet extends ClientStats {
+    private static final String API_PREFIX = "/stats";
+    private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * @param timeout таймаут соединения и чтения: статистика нужна для ответа пользователю,
+     *                поэтому медленный сервер статистики должен приводить к быстрой ошибке
+     */
+    @Autowired
+    public ClientStatsGet(@Value("${stats.server.url}") String serverUrl, RestTemplateBuilder builder,
+                          @Value("${stats.client.query-timeout:PT1S}") Duration timeout) {
+        super(builder.uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                .setConnectTimeout(timeout)
+                .setReadTimeout(timeout)
+                .build()
+        );
+    }
+
+    /**
+     * Статистика по всем переданным URI одним запросом к серверу статистики.
+     *
+     * @throws org.springframework.web.client.RestClientException если сервер недоступен, не ответил вовремя
+     *                                                            или ответил ошибкой
+     */
+    public List<EndpointHitStatDto> getStats(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                             boolean unique) {
+        StringBuilder template = new StringBuilder("?start={start}&end={end}&unique={unique}");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("start", start.format(DF));
+        parameters.put("end", end.format(DF));
+        parameters.put("unique", unique);
+        int i = 0;
+        for (String uri : uris) {
+            template.append("&uris={uri").append(i).append('}');
+            parameters.put("uri" + i, uri);
+            i++;
+        }
+        return rest.exchange(template.toString(), HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<EndpointHitStatDto>>() {
+                }, parameters).getBody();
+    }
+}
@@ -1,8 +1,12 @@
 package ru.practicum.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
@@ -10,19 +14,78 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.dto.EndpointHitDto;
 
+import java.time.Duration;
+import java.util.UUID;
+
+@Slf4j
 @Service
-public class ClientStatsPost extends ClientStats {
+public class ClientStatsPost extends ClientStats implements DisposableBean {
     private static final String API_PREFIX = "/hit";
 
+    private final HitAggregator aggregator;
+    private final HitSampler sampler;
+
     @Autowired
-    public ClientStatsPost(@Value("${stats.server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ClientStatsPost(@Value("${stats.server.url}") String serverUrl, RestTemplateBuilder builder,
+                           @Value("${stats.client.aggregation.enabled:false}") boolean aggregationEnabled,
+                           @Value("${stats.client.aggregation.window:PT1S}") Duration aggregationWindow,
+                           @Value("${stats.client.aggregation.max-entries:100000}") int aggregationMaxEntries,
+                           @Value("${stats.client.sampling.rates:}") String samplingRates,
+                           MeterRegistry meterRegistry) {
         super(builder.uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
                 .requestFactory(HttpComponentsClientHttpRequestFactory::new)
                 .build()
         );
+        this.aggregator = aggregationEnabled
+                ? new HitAggregator(aggregationWindow, aggregationMaxEntries, this::send, meterRegistry)
+                : null;
+        this.sampler = samplingRates.isBlank() ? null : new HitSampler(samplingRates);
     }
 
+    /**
+     * Отправляет хит на сервер статистики. Если у хита нет hitId, он генерируется здесь,
+     * поэтому повторная отправка того же объекта не увеличит счетчики.
+     * При включенной агрегации (stats.client.aggregation.enabled) хит только учитывается в локальном буфере
+     * и уходит на сервер в составе записи с count по истечении окна stats.client.aggregation.window.
+     * При заданных правилах stats.client.sampling.rates хиты подходящих URI отправляются выборочно с весом.
+     */
     public ResponseEntity<Object> addStatInfo(@RequestBody EndpointHitDto endpointHitDto) {
+        if (sampler != null) {
+            double weight = sampler.sample(endpointHitDto.getUri());
+            if (weight == 0) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+            }
+            if (weight > 1) {
+                double current = endpointHitDto.getWeight() == null ? 1 : endpointHitDto.getWeight();
+                endpointHitDto.setWeight(current * weight);
+            }
+        }
+        if (aggregator != null) {
+            aggregator.add(endpointHitDto);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+        }
+        if (endpointHitDto.getHitId() == null) {
+            endpointHitDto.setHitId(UUID.randomUUID().toString());
+        }
         return post("", endpointHitDto);
     }
+
+    @Override
+    public void destroy() {
+        if (aggregator != null) {
+            aggregator.close();
+        }
+    }
+
+    /** Отправка агрегированной записи: ошибки сервера приводят к повтору, отклоненные записи отбрасываются */
+    private void send(EndpointHitDto endpointHitDto) {
+        ResponseEntity<Object> response = post("", endpointHitDto);
+        if (response.getStatusCode().is5xxServerError()) {
+            throw new IllegalStateException("Сервер статистики ответил " + response.getStatusCode());
+        }
+        if (response.getStatusCode().is4xxClientError()) {
+            log.warn("Сервер статистики отклонил запись о хитах {}: {}", endpointHitDto.getUri(),
+                    response.getStatusCode());
+        }
+    }
 }
\ No newline at end of file
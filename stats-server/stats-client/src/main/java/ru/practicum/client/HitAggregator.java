@@ -0,0 +1,117 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Локальная агрегация хитов по (app, uri, ip, секунда, вес): за окно одинаковые хиты складываются в одну
+ * запись с полем count и отправляются на сервер статистики одним запросом.
+ * <p>
+ * hitId записи назначается один раз, при выборке из буфера. Если отправка не удалась, неотправленные записи
+ * остаются в очереди повтора с теми же hitId и уйдут первыми в следующем окне, поэтому сервер отбросит
+ * повтор уже принятой записи. Буфер и очередь повтора ограничены stats.client.aggregation.max-entries
+ * записями: новые ключи сверх предела и самые старые записи очереди отбрасываются, а число потерянных
+ * хитов считается в метрике stats.client.hits.dropped.
+ */
+@Slf4j
+class HitAggregator implements AutoCloseable {
+    private final ConcurrentHashMap<HitKey, Integer> counts = new ConcurrentHashMap<>();
+    /** Записи с назначенным hitId, ожидающие отправки; доступ под блокировкой flush */
+    private final List<EndpointHitDto> pending = new ArrayList<>();
+    private final int maxEntries;
+    private final Consumer<EndpointHitDto> sender;
+    private final Counter dropped;
+    private final ScheduledExecutorService scheduler;
+
+    HitAggregator(Duration window, int maxEntries, Consumer<EndpointHitDto> sender, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.sender = sender;
+        this.dropped = meterRegistry.counter("stats.client.hits.dropped");
+        meterRegistry.gaugeMapSize("stats.client.aggregation.entries", List.of(), counts);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-client-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = window.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void add(EndpointHitDto endpointHitDto) {
+        HitKey key = new HitKey(endpointHitDto.getApp(), endpointHitDto.getUri(), endpointHitDto.getIp(),
+                endpointHitDto.getTimestamp(), endpointHitDto.getWeight());
+        int count = endpointHitDto.getCount() == null ? 1 : endpointHitDto.getCount();
+        if (counts.size() >= maxEntries && !counts.containsKey(key)) {
+            dropped.increment(count);
+            return;
+        }
+        counts.merge(key, count, Integer::sum);
+    }
+
+    /** Отправляет накопленные записи; безопасно вызывать конкурентно с {@link #add(EndpointHitDto)} */
+    synchronized void flush() {
+        for (HitKey key : counts.keySet()) {
+            Integer count = counts.remove(key);
+            if (count != null) {
+                pending.add(EndpointHitDto.builder()
+                        .app(key.app)
+                        .uri(key.uri)
+                        .ip(key.ip)
+                        .timestamp(key.timestamp)
+                        .hitId(UUID.randomUUID().toString())
+                        .count(count)
+                        .weight(key.weight)
+                        .build());
+            }
+        }
+        if (pending.size() > maxEntries) {
+            List<EndpointHitDto> oldest = pending.subList(0, pending.size() - maxEntries);
+            int hits = oldest.stream().mapToInt(EndpointHitDto::getCount).sum();
+            log.warn("Очередь повтора переполнена, отброшено {} записей ({} хитов)", oldest.size(), hits);
+            dropped.increment(hits);
+            oldest.clear();
+        }
+
+        int sent = 0;
+        try {
+            for (EndpointHitDto endpointHitDto : pending) {
+                sender.accept(endpointHitDto);
+                sent++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить агрегированные хиты, {} записей отложено: {}",
+                    pending.size() - sent, e.getMessage());
+        }
+        pending.subList(0, sent).clear();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class HitKey {
+        private final String app;
+        private final String uri;
+        private final String ip;
+        private final String timestamp;
+        private final Double weight;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.client;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выборочная отправка хитов по шаблонам URI. Правила задаются строкой вида
+ * {@code /events/**:0.1,/events:0.5}: хит с подходящим URI отправляется с вероятностью rate
+ * и весом 1 / rate, поэтому суммы на сервере остаются несмещенными. Применяется первое подходящее правило,
+ * хиты без подходящего правила отправляются все.
+ */
+class HitSampler {
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final List<Rule> rules = new ArrayList<>();
+
+    HitSampler(String rates) {
+        for (String rule : rates.split(",")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            int separator = rule.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Правило выборки должно иметь вид шаблон:доля, получено " + rule);
+            }
+            double rate = Double.parseDouble(rule.substring(separator + 1).trim());
+            if (!(rate > 0 && rate <= 1)) {
+                throw new IllegalArgumentException("Доля выборки должна быть в (0, 1], получено " + rule);
+            }
+            rules.add(new Rule(rule.substring(0, separator).trim(), rate));
+        }
+    }
+
+    /** @return вес хита, если он попал в выборку, или 0, если хит нужно отбросить */
+    double sample(String uri) {
+        for (Rule rule : rules) {
+            if (uri != null && matcher.match(rule.pattern, uri)) {
+                return ThreadLocalRandom.current().nextDouble() < rule.rate ? 1 / rule.rate : 0;
+            }
+        }
+        return 1;
+    }
+
+    private static final class Rule {
+        private final String pattern;
+        private final double rate;
+
+        private Rule(String pattern, double rate) {
+            this.pattern = pattern;
+            this.rate = rate;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitAggregatorTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<EndpointHitDto> attempts = new ArrayList<>();
+    private boolean serverDown;
+
+    @Test
+    void retryKeepsHitIdAssignedAtDrain() {
+        HitAggregator aggregator = new HitAggregator(Duration.ofHours(1), 10, this::send, meterRegistry);
+        aggregator.add(hit("/events/1"));
+        aggregator.add(hit("/events/1"));
+
+        serverDown = true;
+        aggregator.flush();
+        aggregator.add(hit("/events/1"));
+        serverDown = false;
+        aggregator.flush();
+        aggregator.close();
+
+        assertThat(attempts).hasSize(3);
+        assertThat(attempts.get(1).getHitId()).isEqualTo(attempts.get(0).getHitId());
+        assertThat(attempts.get(1).getCount()).isEqualTo(2);
+        assertThat(attempts.get(2).getHitId()).isNotEqualTo(attempts.get(0).getHitId());
+        assertThat(attempts.get(2).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void hitsOverLimitAreDroppedAndCounted() {
+        HitAggregator aggregator = new HitAggregator(Duration.ofHours(1), 1, this::send, meterRegistry);
+        aggregator.add(hit("/events/1"));
+        aggregator.add(hit("/events/1"));
+        aggregator.add(hit("/events/2"));
+        assertThat(meterRegistry.counter("stats.client.hits.dropped").count()).isEqualTo(1);
+
+        serverDown = true;
+        aggregator.flush();
+        aggregator.add(hit("/events/3"));
+        serverDown = false;
+        aggregator.flush();
+        aggregator.close();
+
+        assertThat(meterRegistry.counter("stats.client.hits.dropped").count()).isEqualTo(3);
+        assertThat(attempts.get(attempts.size() - 1).getUri()).isEqualTo("/events/3");
+    }
+
+    private void send(EndpointHitDto endpointHitDto) {
+        attempts.add(endpointHitDto);
+        if (serverDown) {
+            throw new IllegalStateException("Сервер статистики недоступен");
+        }
+    }
+
+    private static EndpointHitDto hit(String uri) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp("2024-03-01 10:00:00")
+                .build();
+    }
+}
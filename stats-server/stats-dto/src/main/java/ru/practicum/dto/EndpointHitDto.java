@@ -14,4 +14,10 @@ public class EndpointHitDto {
     private String uri;
     private String ip;
     private String timestamp;
+    /** Необязательный идентификатор хита, сгенерированный клиентом, для дедупликации повторов */
+    private String hitId;
+    /** Число одинаковых хитов, схлопнутых клиентом в одну запись; если не задано, считается 1 */
+    private Integer count;
+    /** Вес записи при выборочной отправке: каждый хит записи представляет weight хитов; если не задан, считается 1 */
+    private Double weight;
 }
\ No newline at end of file
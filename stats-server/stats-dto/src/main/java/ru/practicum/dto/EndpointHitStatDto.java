@@ -1,5 +1,6 @@
 package ru.practicum.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,10 @@ public class EndpointHitStatDto {
     private	String app;
     private String uri;
     private Integer hits;
+    /**
+     * Стандартная ошибка оценки hits, если часть хитов пришла выборочно с весом больше 1.
+     * Для точных данных и для уникальных IP не заполняется и в ответ не попадает.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double hitsError;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package ru.practicum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EndpointHitTimeSeriesDto {
+    private String app;
+    private String uri;
+    private String bucket;
+    private Integer hits;
+    private Integer uniqueHits;
+}